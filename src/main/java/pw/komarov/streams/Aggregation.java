@@ -0,0 +1,232 @@
+package pw.komarov.streams;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.Collector;
+
+/*
+    Set of aggregates, which are computed by Streamer.aggregate() in one pass over elements.
+    Each added aggregate returns typed key, by which its value is taken from the result:
+
+        Aggregation<Person> aggregation = new Aggregation<>();
+        Aggregation.Key<Long> count = aggregation.count();
+        Aggregation.Key<Long> ages = aggregation.longSum(person -> person.age);
+        Aggregation.Key<Map<Gender, List<Person>>> byGender = aggregation.collect(Collectors.groupingBy(person -> person.gender));
+
+        Aggregation.Result result = Streamer.from(persons).aggregate(aggregation);
+        long total = result.get(count);
+
+    Numeric aggregates (count, sum, statistics) are using primitive accumulators (without boxing per element).
+    Aggregation itself is only a description, so it can be used by several streams
+*/
+
+public final class Aggregation<T> {
+    //accumulator of one aggregate (created for each run)
+    private interface Accumulator<T> {
+        void accept(T element);
+
+        Object finish();
+    }
+
+    private final List<Supplier<Accumulator<T>>> accumulators = new ArrayList<>();
+
+    public static final class Key<R> {
+        private final Aggregation<?> aggregation;
+        private final int index;
+
+        private Key(Aggregation<?> aggregation, int index) {
+            this.aggregation = aggregation;
+            this.index = index;
+        }
+    }
+
+    public static final class Result {
+        private final Aggregation<?> aggregation;
+        private final Object[] values;
+
+        private Result(Aggregation<?> aggregation, Object[] values) {
+            this.aggregation = aggregation;
+            this.values = values;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <R> R get(Key<R> key) {
+            if (key.aggregation != aggregation)
+                throw new IllegalArgumentException("key of another aggregation");
+
+            return (R) values[key.index];
+        }
+    }
+
+    private <R> Key<R> add(Supplier<Accumulator<T>> accumulator) {
+        accumulators.add(accumulator);
+
+        return new Key<>(this, accumulators.size() - 1);
+    }
+
+    /*
+            Aggregates
+    */
+
+    public Key<Long> count() {
+        return add(() -> new Accumulator<T>() {
+            private long count;
+
+            @Override
+            public void accept(T element) {
+                count++;
+            }
+
+            @Override
+            public Object finish() {
+                return count;
+            }
+        });
+    }
+
+    public Key<Long> longSum(ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return add(() -> new Accumulator<T>() {
+            private long sum;
+
+            @Override
+            public void accept(T element) {
+                sum += mapper.applyAsLong(element);
+            }
+
+            @Override
+            public Object finish() {
+                return sum;
+            }
+        });
+    }
+
+    public Key<Double> doubleSum(ToDoubleFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return add(() -> new Accumulator<T>() {
+            private final DoubleSummaryStatistics statistics = new DoubleSummaryStatistics(); //compensated summation
+
+            @Override
+            public void accept(T element) {
+                statistics.accept(mapper.applyAsDouble(element));
+            }
+
+            @Override
+            public Object finish() {
+                return statistics.getSum();
+            }
+        });
+    }
+
+    public Key<LongSummaryStatistics> longStatistics(ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return add(() -> new Accumulator<T>() {
+            private final LongSummaryStatistics statistics = new LongSummaryStatistics();
+
+            @Override
+            public void accept(T element) {
+                statistics.accept(mapper.applyAsLong(element));
+            }
+
+            @Override
+            public Object finish() {
+                return statistics;
+            }
+        });
+    }
+
+    public Key<DoubleSummaryStatistics> doubleStatistics(ToDoubleFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return add(() -> new Accumulator<T>() {
+            private final DoubleSummaryStatistics statistics = new DoubleSummaryStatistics();
+
+            @Override
+            public void accept(T element) {
+                statistics.accept(mapper.applyAsDouble(element));
+            }
+
+            @Override
+            public Object finish() {
+                return statistics;
+            }
+        });
+    }
+
+    public Key<Optional<T>> min(Comparator<? super T> comparator) {
+        Objects.requireNonNull(comparator);
+
+        return add(() -> new Accumulator<T>() {
+            private boolean present;
+            private T min;
+
+            @Override
+            public void accept(T element) {
+                if (!present || comparator.compare(element, min) < 0) {
+                    min = element;
+                    present = true;
+                }
+            }
+
+            @Override
+            public Object finish() {
+                return present ? Optional.of(min) : Optional.empty();
+            }
+        });
+    }
+
+    public Key<Optional<T>> max(Comparator<? super T> comparator) {
+        Objects.requireNonNull(comparator);
+
+        return min(comparator.reversed());
+    }
+
+    public <R> Key<R> collect(Collector<? super T, ?, R> collector) {
+        Objects.requireNonNull(collector);
+
+        return add(() -> collectorAccumulator(collector));
+    }
+
+    private static <T, A, R> Accumulator<T> collectorAccumulator(Collector<? super T, A, R> collector) {
+        BiConsumer<A, ? super T> accumulator = collector.accumulator();
+        A container = collector.supplier().get();
+
+        return new Accumulator<T>() {
+            @Override
+            public void accept(T element) {
+                accumulator.accept(container, element);
+            }
+
+            @Override
+            public Object finish() {
+                return collector.finisher().apply(container);
+            }
+        };
+    }
+
+    /*
+            Computing
+    */
+
+    //run - pushes all elements to given action (ex: forEachRemaining() of iterator)
+    @SuppressWarnings("unchecked")
+    Result aggregate(Consumer<Consumer<? super T>> run) {
+        Accumulator<T>[] accumulators = (Accumulator<T>[]) new Accumulator<?>[this.accumulators.size()];
+        for (int i = 0; i < accumulators.length; i++)
+            accumulators[i] = this.accumulators.get(i).get();
+
+        run.accept(element -> {
+            for (Accumulator<T> accumulator : accumulators)
+                accumulator.accept(element);
+        });
+
+        Object[] values = new Object[accumulators.length];
+        for (int i = 0; i < accumulators.length; i++)
+            values[i] = accumulators[i].finish();
+
+        return new Result(this, values);
+    }
+}
@@ -0,0 +1,43 @@
+package pw.komarov.streams;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    Default executor of mapAsync() tasks (mapper usually blocks on I/O, so tasks must not occupy ForkJoinPool):
+    cached daemon threads here, virtual threads on Java 21+ (VirtualThreadAsyncExecution of multi-release jar)
+*/
+
+class AsyncExecution {
+    static final AsyncExecution INSTANCE = load();
+
+    private static AsyncExecution load() {
+        try {
+            return (AsyncExecution) Class.forName("pw.komarov.streams.VirtualThreadAsyncExecution").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) { //before Java 21
+            return new AsyncExecution();
+        }
+    }
+
+    Executor executor() {
+        return DaemonThreads.EXECUTOR;
+    }
+
+    //created on first use (idle threads are terminated)
+    private static class DaemonThreads {
+        private static final AtomicInteger THREADS_COUNT = new AtomicInteger();
+
+        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "streamer-async-" + THREADS_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+    }
+}
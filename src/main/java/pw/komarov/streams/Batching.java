@@ -0,0 +1,74 @@
+package pw.komarov.streams;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/*
+    Grouping of elements to batches (lists) by Streamer.batch(), ex: for bulk inserts or batched calls:
+
+        Streamer.from(records).batch(Batching.of(1000).reusingBuffer()).forEach(repository::insertAll);
+        Streamer.generate(sensor::read).batch(Batching.of(100).maxWait(1, TimeUnit.SECONDS)).forEach(sender::send);
+
+    Last batch contains remaining elements (can be smaller). Reusing buffer: the same list is given as each batch,
+    so it is valid only until the next batch is pulled (it is not reused, when batches are kept by sorted(),
+    reversed(), last() or distinct())
+*/
+
+public final class Batching {
+    private final int size;
+    private long maxWaitNanos = Long.MAX_VALUE; //Long.MAX_VALUE - batch is emitted by size only
+    private boolean reusingBuffer;
+    private LongSupplier clock = System::nanoTime;
+
+    private Batching(int size) {
+        this.size = size;
+    }
+
+    public static Batching of(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("batch size must be positive: " + size);
+
+        return new Batching(size);
+    }
+
+    /*
+        Batch is emitted incomplete, when maxWait has elapsed since its first element. Time is checked, when element
+        is received (pulling of source is not interrupted), so it suits slow sources, not blocked ones
+    */
+    public Batching maxWait(long duration, TimeUnit unit) {
+        if (duration <= 0)
+            throw new IllegalArgumentException("maxWait must be positive: " + duration);
+
+        this.maxWaitNanos = unit.toNanos(duration);
+
+        return this;
+    }
+
+    public Batching reusingBuffer() {
+        this.reusingBuffer = true;
+
+        return this;
+    }
+
+    Batching clock(LongSupplier clock) {
+        this.clock = clock;
+
+        return this;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long maxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    boolean isReusingBuffer() {
+        return reusingBuffer;
+    }
+
+    LongSupplier clock() {
+        return clock;
+    }
+}
@@ -0,0 +1,102 @@
+package pw.komarov.streams;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+    Writer of Streamer.writeTo(): elements are encoded to direct buffers (taken from pool, shared by all writers),
+    filled buffers are written to channel together, by gathering write (when channel supports it)
+*/
+
+final class ChannelWriter<T> {
+    static final int BUFFER_SIZE = 256 * 1024;
+    private static final int BUFFERS_COUNT = 4; //buffers of one gathering write
+    private static final int MAX_POOLED = 16;
+
+    private static final Queue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+
+    private final WritableByteChannel channel;
+    private final ElementEncoder<? super T> encoder;
+
+    private final ByteBuffer[] buffers = new ByteBuffer[BUFFERS_COUNT];
+    private int current; //index of buffer being filled
+
+    private long elements;
+    private long bytes;
+
+    ChannelWriter(WritableByteChannel channel, ElementEncoder<? super T> encoder) {
+        this.channel = channel;
+        this.encoder = encoder;
+
+        for (int i = 0; i < buffers.length; i++) {
+            ByteBuffer buffer = POOL.poll();
+            buffers[i] = (buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE)).order(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    void write(T element) throws IOException {
+        ByteBuffer buffer = buffers[current];
+        int start = buffer.position();
+
+        try {
+            encoder.encode(element, buffer);
+        } catch (BufferOverflowException e) {
+            buffer.position(start); //partially encoded element is dropped
+            if (start == 0)
+                throw new IllegalArgumentException("encoded element is larger than buffer (" + BUFFER_SIZE + " bytes)");
+
+            if (current < buffers.length - 1)
+                current++;
+            else
+                flush();
+
+            buffer = buffers[current];
+            try {
+                encoder.encode(element, buffer);
+            } catch (BufferOverflowException again) {
+                buffer.position(0);
+                throw new IllegalArgumentException("encoded element is larger than buffer (" + BUFFER_SIZE + " bytes)");
+            }
+        }
+
+        elements++;
+    }
+
+    //writes all encoded bytes to channel
+    void flush() throws IOException {
+        for (int i = 0; i <= current; i++)
+            buffers[i].flip();
+
+        if (channel instanceof GatheringByteChannel) {
+            ByteBuffer last = buffers[current];
+            while (last.hasRemaining())
+                bytes += ((GatheringByteChannel) channel).write(buffers, 0, current + 1);
+        } else
+            for (int i = 0; i <= current; i++)
+                while (buffers[i].hasRemaining())
+                    bytes += channel.write(buffers[i]);
+
+        for (int i = 0; i <= current; i++)
+            buffers[i].clear();
+        current = 0;
+    }
+
+    WriteResult result() {
+        return new WriteResult(elements, bytes);
+    }
+
+    //returns buffers to pool (byte order, changed by encoder, is not passed to other writers)
+    void release() {
+        for (ByteBuffer buffer : buffers)
+            if (POOL.size() < MAX_POOLED) {
+                buffer.clear().order(ByteOrder.BIG_ENDIAN);
+                POOL.offer(buffer);
+            }
+    }
+}
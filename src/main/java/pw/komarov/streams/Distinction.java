@@ -0,0 +1,175 @@
+package pw.komarov.streams;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.*;
+
+/*
+    Strategy of Streamer.distinct(Distinction): decides, which elements are passed as first occurrences.
+
+        Streamer.generate(events::poll).distinct(Distinction.lastSeen(10_000))   //bounded memory
+        Streamer.from(sortedIds).distinct(Distinction.sorted())                 //O(1) memory
+        Streamer.from(persons).distinct(Distinction.byLong(person -> person.id)) //without boxing
+
+    Distinction itself is only a description (state is created for each stream), so it can be used by several streams
+*/
+
+public final class Distinction<T> {
+    private final Supplier<Predicate<T>> filters; //filter returns true for element, which must be passed
+    private final boolean distinct; //passed elements are surely distinct (false for bounded and adjacent strategies)
+
+    private Distinction(Supplier<Predicate<T>> filters, boolean distinct) {
+        this.filters = filters;
+        this.distinct = distinct;
+    }
+
+    Predicate<T> newFilter() {
+        return filters.get();
+    }
+
+    boolean isDistinct() {
+        return distinct;
+    }
+
+    //exact, keeps all passed elements (default of distinct())
+    public static <T> Distinction<T> hashed() {
+        return new Distinction<>(() -> new HashSet<T>()::add, true);
+    }
+
+    //exact for sorted (or grouped) elements: each element is compared with previous one only, O(1) memory
+    public static <T> Distinction<T> sorted() {
+        return new Distinction<>(() -> new Predicate<T>() {
+            private boolean first = true;
+            private T previous;
+
+            @Override
+            public boolean test(T element) {
+                if (!first && Objects.equals(previous, element))
+                    return false;
+
+                first = false;
+                previous = element;
+
+                return true;
+            }
+        }, false);
+    }
+
+    //passes element, which is not within capacity of recently seen elements (LRU, seen duplicate becomes recent again)
+    public static <T> Distinction<T> lastSeen(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+
+        return new Distinction<>(() -> {
+            Map<T, Boolean> recent = new LinkedHashMap<T, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<T, Boolean> eldest) {
+                    return size() > capacity;
+                }
+            };
+
+            return element -> recent.put(element, Boolean.TRUE) == null;
+        }, false);
+    }
+
+    //passes element, which was not passed during the last duration (time window), memory is bounded by window
+    public static <T> Distinction<T> window(long duration, TimeUnit unit) {
+        return window(unit.toNanos(duration), System::nanoTime);
+    }
+
+    static <T> Distinction<T> window(long nanos, LongSupplier clock) {
+        if (nanos <= 0)
+            throw new IllegalArgumentException("duration must be positive: " + nanos);
+
+        return new Distinction<>(() -> {
+            LinkedHashMap<T, Long> passed = new LinkedHashMap<>(); //in order of passing time
+
+            return element -> {
+                long now = clock.getAsLong();
+
+                Iterator<Long> times = passed.values().iterator();
+                while (times.hasNext() && now - times.next() >= nanos) //expired
+                    times.remove();
+
+                return passed.putIfAbsent(element, now) == null;
+            };
+        }, false);
+    }
+
+    //exact by int key of element, keys are stored in primitive open addressing set
+    public static <T> Distinction<T> byInt(ToIntFunction<? super T> keyExtractor) {
+        Objects.requireNonNull(keyExtractor);
+
+        return new Distinction<>(() -> {
+            LongHashSet keys = new LongHashSet();
+
+            return element -> keys.add(keyExtractor.applyAsInt(element));
+        }, true);
+    }
+
+    //exact by long key of element, keys are stored in primitive open addressing set
+    public static <T> Distinction<T> byLong(ToLongFunction<? super T> keyExtractor) {
+        Objects.requireNonNull(keyExtractor);
+
+        return new Distinction<>(() -> {
+            LongHashSet keys = new LongHashSet();
+
+            return element -> keys.add(keyExtractor.applyAsLong(element));
+        }, true);
+    }
+
+    /*
+        Approximate (Bloom filter): memory is fixed by expected elements count and false positive rate.
+        Duplicates are never passed, but new element can be dropped as duplicate with falsePositiveRate probability
+        (while count of distinct elements does not exceed expectedCount)
+    */
+    public static <T> Distinction<T> approximate(long expectedCount, double falsePositiveRate) {
+        if (expectedCount <= 0)
+            throw new IllegalArgumentException("expectedCount must be positive: " + expectedCount);
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1))
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1): " + falsePositiveRate);
+
+        double ln2 = Math.log(2);
+        long bits = Math.max(64, (long) Math.ceil(-expectedCount * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        if (bits > (long) Integer.MAX_VALUE * Long.SIZE)
+            throw new IllegalArgumentException("too large filter: " + bits + " bits");
+
+        int hashes = Math.max(1, (int) Math.round((double) bits / expectedCount * ln2));
+
+        return new Distinction<>(() -> new BloomFilter<>(bits, hashes), true);
+    }
+
+    private static class BloomFilter<T> implements Predicate<T> {
+        private final long[] words;
+        private final long bits;
+        private final int hashes;
+
+        BloomFilter(long bits, int hashes) {
+            this.words = new long[(int) ((bits + Long.SIZE - 1) / Long.SIZE)];
+            this.bits = bits;
+            this.hashes = hashes;
+        }
+
+        //true, if element was not (probably) added before
+        @Override
+        public boolean test(T element) {
+            long h = Objects.hashCode(element) * 0x9E3779B97F4A7C15L;
+            long h1 = h ^ (h >>> 29);
+            long h2 = (h * 0xBF58476D1CE4E5B9L) | 1; //double hashing: i-th index is h1 + i * h2
+
+            boolean added = false;
+            for (int i = 0; i < hashes; i++) {
+                long index = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+                long mask = 1L << index;
+                int word = (int) (index >>> 6);
+
+                if ((words[word] & mask) == 0) {
+                    words[word] |= mask;
+                    added = true;
+                }
+            }
+
+            return added;
+        }
+    }
+}
@@ -0,0 +1,597 @@
+package pw.komarov.streams;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/*
+    Streamer of primitive double values: operations are running on raw double values (without boxing),
+    collected operations (sorted, reversed, last) are using primitive buffers (see PrimitiveStreamer)
+*/
+
+public final class DoubleStreamer extends PrimitiveStreamer<DoubleStreamer> implements DoubleStream {
+    /*
+            Constructing
+    */
+
+    private DoubleStreamer(Source source) {
+        this(source, new LinkedList<>(), new LinkedList<>());
+    }
+
+    DoubleStreamer(Source source, List<Stage> intermediateOperations, List<Runnable> onCloseSequences) {
+        super(source, intermediateOperations, onCloseSequences);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public static DoubleStreamer empty() {
+        return of();
+    }
+
+    public static DoubleStreamer of(double... values) {
+        return new DoubleStreamer(new ArraySource(values, values.length, false));
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public static DoubleStreamer from(PrimitiveIterator.OfDouble iterator) {
+        return new DoubleStreamer(new IteratorSource(iterator, null));
+    }
+
+    @SuppressWarnings("unused")
+    public static DoubleStreamer from(DoubleStream stream) {
+        return new DoubleStreamer(source(stream));
+    }
+
+    //source of stream elements (stream is closed with source), null stream - empty source (ex: children of flatMap())
+    static Source source(DoubleStream stream) {
+        return stream != null ? new IteratorSource(stream.iterator(), stream) : Source.EMPTY;
+    }
+
+    private static class InfiniteGenerator implements PrimitiveIterator.OfDouble {
+        private final DoubleSupplier supplier;
+
+        InfiniteGenerator(DoubleSupplier supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        @Override
+        public double nextDouble() {
+            return supplier.getAsDouble();
+        }
+    }
+
+    public static DoubleStreamer generate(DoubleSupplier supplier) {
+        return from(new InfiniteGenerator(supplier));
+    }
+
+    private static class InfiniteIterator implements PrimitiveIterator.OfDouble {
+        private double value; //previous value (at first call - initial value)
+        private final DoubleUnaryOperator unaryOperator;
+
+        InfiniteIterator(double initial, DoubleUnaryOperator unaryOperator) {
+            this.value = initial;
+            this.unaryOperator = unaryOperator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        @Override
+        public double nextDouble() {
+            double prev = this.value; //store previous value
+            this.value = unaryOperator.applyAsDouble(prev);
+
+            return prev;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public static DoubleStreamer iterate(double initial, DoubleUnaryOperator unaryOperator) {
+        return from(new InfiniteIterator(initial, unaryOperator));
+    }
+
+    /*
+            Sources and buffers
+    */
+
+    //source over iterator (closes its stream, if any)
+    private static class IteratorSource extends Source {
+        private final PrimitiveIterator.OfDouble iterator;
+        private final DoubleStream stream;
+
+        IteratorSource(PrimitiveIterator.OfDouble iterator, DoubleStream stream) {
+            this.iterator = iterator;
+            this.stream = stream;
+        }
+
+        @Override
+        boolean advance(Stage head) {
+            if (!iterator.hasNext())
+                return false;
+
+            head.accept(iterator.nextDouble());
+
+            return true;
+        }
+
+        @Override
+        void forEach(Stage head) {
+            while (!head.isCancelled() && iterator.hasNext())
+                head.accept(iterator.nextDouble());
+        }
+
+        @Override
+        void close() {
+            if (stream != null)
+                stream.close();
+        }
+    }
+
+    //source over part of array (forward or backward), used by collected operations and of()
+    private static class ArraySource extends Source {
+        private final double[] elements;
+        private final int size;
+        private final boolean reversed;
+        private int index; //count of pushed elements
+
+        ArraySource(double[] elements, int size, boolean reversed) {
+            this.elements = elements;
+            this.size = size;
+            this.reversed = reversed;
+        }
+
+        @Override
+        boolean advance(Stage head) {
+            if (index == size)
+                return false;
+
+            head.accept(elements[reversed ? size - 1 - index++ : index++]);
+
+            return true;
+        }
+
+        @Override
+        void forEach(Stage head) {
+            while (!head.isCancelled() && index < size)
+                head.accept(elements[reversed ? size - 1 - index++ : index++]);
+        }
+    }
+
+    //growable double[], primitive buffer for collected operations and terminals
+    private static class DoubleArray extends Buffer {
+        private double[] elements = new double[16];
+
+        @Override
+        void accept(double element) {
+            if (size == elements.length)
+                elements = Arrays.copyOf(elements, size << 1);
+
+            elements[size++] = element;
+        }
+
+        double[] toArray() {
+            return Arrays.copyOf(elements, size);
+        }
+
+        @Override
+        void sort() {
+            Arrays.sort(elements, 0, size);
+        }
+
+        @Override
+        void keepLast(int count) {
+            if (size > count) {
+                System.arraycopy(elements, size - count, elements, 0, count);
+                size = count;
+            }
+        }
+
+        @Override
+        Source source(boolean reversed) {
+            return new ArraySource(elements, size, reversed);
+        }
+    }
+
+    @Override
+    Buffer newBuffer() {
+        return new DoubleArray();
+    }
+
+    /*
+            Intermediate methods (conveyor/pipeline)
+    */
+
+    //filter()
+    private static class FilterOperation extends Stage {
+        private final DoublePredicate predicate;
+
+        FilterOperation(DoublePredicate predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        void accept(double element) {
+            if (predicate.test(element))
+                downstream.accept(element);
+        }
+    }
+
+    @Override
+    public DoubleStreamer filter(DoublePredicate predicate) {
+        Objects.requireNonNull(predicate);
+
+        return add(new FilterOperation(predicate));
+    }
+
+    //map()
+    private static class MapOperation extends Stage {
+        private final DoubleUnaryOperator function;
+
+        MapOperation(DoubleUnaryOperator function) {
+            this.function = function;
+        }
+
+        @Override
+        void accept(double element) {
+            downstream.accept(function.applyAsDouble(element));
+        }
+    }
+
+    @Override
+    public DoubleStreamer map(DoubleUnaryOperator mapper) {
+        Objects.requireNonNull(mapper);
+
+        return add(new MapOperation(mapper));
+    }
+
+    //peek()
+    private static class PeekOperation extends Stage {
+        private final DoubleConsumer action;
+
+        PeekOperation(DoubleConsumer action) {
+            this.action = action;
+        }
+
+        @Override
+        void accept(double element) {
+            action.accept(element);
+            downstream.accept(element);
+        }
+    }
+
+    @Override
+    public DoubleStreamer peek(DoubleConsumer action) {
+        Objects.requireNonNull(action);
+
+        return add(new PeekOperation(action));
+    }
+
+    //flatMap()
+    private static class FlatMapOperation extends ExpandingOperation {
+        private final DoubleFunction<? extends DoubleStream> mapper;
+
+        FlatMapOperation(DoubleFunction<? extends DoubleStream> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        void accept(double element) {
+            expand(source(mapper.apply(element)));
+        }
+    }
+
+    @Override
+    public DoubleStreamer flatMap(DoubleFunction<? extends DoubleStream> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return add(new FlatMapOperation(mapper));
+    }
+
+    //mapToObj(), boxed()
+    private static class MapToObjStage<U> extends ObjectStage<U> {
+        private final DoubleFunction<? extends U> mapper;
+
+        MapToObjStage(DoubleFunction<? extends U> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        void accept(double element) {
+            action.accept(mapper.apply(element));
+        }
+
+        @Override
+        U take(Output output) {
+            return mapper.apply(output.takeDouble());
+        }
+    }
+
+    @Override
+    public <U> Streamer<U> mapToObj(DoubleFunction<? extends U> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return continuedBy(new MapToObjStage<>(mapper));
+    }
+
+    @Override
+    public Streamer<Double> boxed() {
+        return mapToObj(Double::valueOf);
+    }
+
+    //mapToInt()
+    private static class MapToIntOperation extends Stage {
+        private final DoubleToIntFunction function;
+
+        MapToIntOperation(DoubleToIntFunction function) {
+            this.function = function;
+        }
+
+        @Override
+        void accept(double element) {
+            downstream.accept(function.applyAsInt(element));
+        }
+    }
+
+    @Override
+    public IntStreamer mapToInt(DoubleToIntFunction mapper) {
+        Objects.requireNonNull(mapper);
+
+        return continued(new MapToIntOperation(mapper), IntStreamer::new);
+    }
+
+    //mapToLong()
+    private static class MapToLongOperation extends Stage {
+        private final DoubleToLongFunction function;
+
+        MapToLongOperation(DoubleToLongFunction function) {
+            this.function = function;
+        }
+
+        @Override
+        void accept(double element) {
+            downstream.accept(function.applyAsLong(element));
+        }
+    }
+
+    @Override
+    public LongStreamer mapToLong(DoubleToLongFunction mapper) {
+        Objects.requireNonNull(mapper);
+
+        return continued(new MapToLongOperation(mapper), LongStreamer::new);
+    }
+
+    @Override
+    public double sum() {
+        return summaryStatistics().getSum(); //compensated summation
+    }
+
+    /*
+            Terminal methods
+    */
+
+    //pulls elements of run
+    private static class RunIterator implements PrimitiveIterator.OfDouble {
+        private final Run run;
+
+        RunIterator(Run run) {
+            this.run = run;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return run.hasNext();
+        }
+
+        @Override
+        public double nextDouble() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            return run.output.takeDouble();
+        }
+    }
+
+    @Override
+    public PrimitiveIterator.OfDouble iterator() {
+        return new RunIterator(prepareRun());
+    }
+
+    @Override
+    public boolean anyMatch(DoublePredicate predicate) {
+        Objects.requireNonNull(predicate);
+
+        Run run = prepareRun();
+
+        try {
+            while (run.hasNext())
+                if (predicate.test(run.output.takeDouble()))
+                    return true;
+
+            return false;
+        } finally {
+            internalClose();
+        }
+    }
+
+    @Override
+    public boolean allMatch(DoublePredicate predicate) {
+        Objects.requireNonNull(predicate);
+
+        Run run = prepareRun();
+
+        try {
+            while (run.hasNext())
+                if (!predicate.test(run.output.takeDouble()))
+                    return false;
+
+            return true;
+        } finally {
+            internalClose();
+        }
+    }
+
+    @Override
+    public boolean noneMatch(DoublePredicate predicate) {
+        return !anyMatch(predicate);
+    }
+
+    @Override
+    public OptionalDouble findFirst() {
+        return findAny();
+    }
+
+    @Override
+    public OptionalDouble findAny() {
+        Run run = prepareRun();
+
+        try {
+            return run.hasNext() ? OptionalDouble.of(run.output.takeDouble()) : OptionalDouble.empty();
+        } finally {
+            internalClose();
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public OptionalDouble findLast() {
+        return reduce((first, second) -> second);
+    }
+
+    @Override
+    public void forEach(DoubleConsumer action) {
+        Objects.requireNonNull(action);
+
+        push(new Stage() {
+            @Override
+            void accept(double element) {
+                action.accept(element);
+            }
+        });
+    }
+
+    @Override
+    public void forEachOrdered(DoubleConsumer action) {
+        forEach(action);
+    }
+
+    @Override
+    public OptionalDouble min() {
+        return reduce(Math::min);
+    }
+
+    @Override
+    public OptionalDouble max() {
+        return reduce(Math::max);
+    }
+
+    //accumulates elements by operator
+    private static class Reduction extends Stage {
+        private final DoubleBinaryOperator accumulator;
+        private boolean found;
+        private double value;
+
+        Reduction(DoubleBinaryOperator accumulator) {
+            this.accumulator = accumulator;
+        }
+
+        @Override
+        void accept(double element) {
+            if (found)
+                value = accumulator.applyAsDouble(value, element);
+            else {
+                value = element;
+                found = true;
+            }
+        }
+    }
+
+    @Override
+    public double reduce(double identity, DoubleBinaryOperator accumulator) {
+        Objects.requireNonNull(accumulator);
+
+        Reduction reduction = new Reduction(accumulator);
+        reduction.value = identity;
+        reduction.found = true;
+
+        push(reduction);
+
+        return reduction.value;
+    }
+
+    @Override
+    public OptionalDouble reduce(DoubleBinaryOperator accumulator) {
+        Objects.requireNonNull(accumulator);
+
+        Reduction reduction = new Reduction(accumulator);
+
+        push(reduction);
+
+        return reduction.found ? OptionalDouble.of(reduction.value) : OptionalDouble.empty();
+    }
+
+    @Override
+    public <R> R collect(Supplier<R> supplier, ObjDoubleConsumer<R> accumulator, BiConsumer<R, R> combiner) {
+        Objects.requireNonNull(supplier);
+        Objects.requireNonNull(accumulator);
+
+        R result = supplier.get();
+
+        push(new Stage() {
+            @Override
+            void accept(double element) {
+                accumulator.accept(result, element);
+            }
+        });
+
+        return result;
+    }
+
+    @Override
+    public double[] toArray() {
+        DoubleArray array = new DoubleArray();
+
+        push(array);
+
+        return array.toArray();
+    }
+
+    @Override
+    public OptionalDouble average() {
+        DoubleSummaryStatistics statistics = summaryStatistics();
+
+        return statistics.getCount() > 0 ? OptionalDouble.of(statistics.getAverage()) : OptionalDouble.empty();
+    }
+
+    @Override
+    public DoubleSummaryStatistics summaryStatistics() {
+        return collect(DoubleSummaryStatistics::new, DoubleSummaryStatistics::accept, DoubleSummaryStatistics::combine);
+    }
+
+    @Override
+    public Spliterator.OfDouble spliterator() {
+        return Spliterators.spliteratorUnknownSize(this.iterator(), Spliterator.ORDERED);
+    }
+
+    /*
+            Additional
+    */
+
+    @SuppressWarnings("WeakerAccess")
+    public <K> Map<K, double[]> groupBy(DoubleFunction<? extends K> groupMapper) {
+        Objects.requireNonNull(groupMapper);
+
+        Map<K, DoubleArray> groups = collect(HashMap::new,
+                (map, element) -> map.computeIfAbsent(groupMapper.apply(element), key -> new DoubleArray()).accept(element),
+                null);
+
+        Map<K, double[]> result = new HashMap<>(groups.size() * 4 / 3 + 1);
+        groups.forEach((key, array) -> result.put(key, array.toArray()));
+
+        return result;
+    }
+}
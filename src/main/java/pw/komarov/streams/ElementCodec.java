@@ -0,0 +1,49 @@
+package pw.komarov.streams;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+//writes elements to (and reads them back from) temporary files of spilled operations (see Spilling)
+public interface ElementCodec<T> {
+    void write(T element, DataOutput output) throws IOException;
+
+    T read(DataInput input) throws IOException;
+
+    //strings of any length (UTF-8 bytes with length), without nulls
+    static ElementCodec<String> strings() {
+        return new ElementCodec<String>() {
+            @Override
+            public void write(String element, DataOutput output) throws IOException {
+                byte[] bytes = element.getBytes(StandardCharsets.UTF_8);
+
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+
+            @Override
+            public String read(DataInput input) throws IOException {
+                byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    //long values, without nulls
+    static ElementCodec<Long> longs() {
+        return new ElementCodec<Long>() {
+            @Override
+            public void write(Long element, DataOutput output) throws IOException {
+                output.writeLong(element);
+            }
+
+            @Override
+            public Long read(DataInput input) throws IOException {
+                return input.readLong();
+            }
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package pw.komarov.streams;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/*
+    Encodes elements to buffer of Streamer.writeTo(). Encoder writes element by relative puts, and throws
+    BufferOverflowException (as puts do), when element does not fit: then element is encoded again to the next buffer
+*/
+@FunctionalInterface
+public interface ElementEncoder<T> {
+    void encode(T element, ByteBuffer buffer);
+
+    //text lines: string of element with "\n" (encoder of charset is reused, so encoder is for one stream at a time)
+    static <T> ElementEncoder<T> lines(Charset charset) {
+        CharsetEncoder encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+        return (element, buffer) -> {
+            CharSequence line = element instanceof CharSequence ? (CharSequence) element : String.valueOf(element);
+
+            encoder.reset();
+            CoderResult result = encoder.encode(CharBuffer.wrap(line), buffer, false);
+            if (result.isUnderflow())
+                result = encoder.encode(CharBuffer.wrap("\n"), buffer, true);
+            if (result.isUnderflow())
+                result = encoder.flush(buffer);
+
+            if (result.isOverflow())
+                throw new BufferOverflowException();
+            if (result.isError())
+                try {
+                    result.throwException();
+                } catch (CharacterCodingException e) {
+                    throw new IllegalArgumentException("line can not be encoded: " + line, e);
+                }
+        };
+    }
+}
@@ -0,0 +1,106 @@
+package pw.komarov.streams;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+    Returns elements in sort order lazily: heap is built in O(n) and each of first elements is extracted in O(log n),
+    so partial consumption (findFirst(), iterator()) doesn't pay for the full sort.
+    After HEAP_EXTRACTIONS elements the rest is sorted at once (consumption seems to be complete).
+    Equal elements are ordered by their indexes, so result is the same as by stable sorting
+*/
+
+final class IncrementalSortingIterator<E> implements Iterator<E> {
+    private static final int HEAP_EXTRACTIONS = 1024;
+
+    private final Comparator<? super E> comparator;
+
+    private Object[] elements;
+    private int[] heap; //min-heap of elements indexes
+    private int size; //heap size
+    private int extracted;
+
+    private int index; //after full sort: index of next element in sorted elements
+
+    IncrementalSortingIterator(Object[] elements, Comparator<? super E> comparator) {
+        this.elements = elements;
+        this.comparator = comparator;
+
+        size = elements.length;
+        heap = new int[size];
+        for (int i = 0; i < size; i++)
+            heap[i] = i;
+
+        for (int i = (size >>> 1) - 1; i >= 0; i--)
+            siftDown(i);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return heap != null ? size > 0 : index < elements.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        if (heap != null && extracted++ == HEAP_EXTRACTIONS)
+            sortRest();
+
+        if (heap == null) {
+            E element = (E) elements[index];
+            elements[index++] = null;
+
+            return element;
+        }
+
+        E element = (E) elements[heap[0]];
+        heap[0] = heap[--size];
+        siftDown(0);
+
+        return element;
+    }
+
+    //remaining elements (in their original order) are sorted by stable sort
+    private void sortRest() {
+        Arrays.sort(heap, 0, size);
+
+        Object[] rest = new Object[size];
+        for (int i = 0; i < size; i++)
+            rest[i] = elements[heap[i]];
+
+        @SuppressWarnings("unchecked")
+        Comparator<Object> comparator = (Comparator<Object>) this.comparator;
+        Arrays.sort(rest, comparator);
+
+        elements = rest;
+        heap = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean less(int i, int j) {
+        int result = comparator.compare((E) elements[i], (E) elements[j]);
+
+        return result < 0 || result == 0 && i < j;
+    }
+
+    private void siftDown(int index) {
+        int element = heap[index];
+
+        for (int child; (child = (index << 1) + 1) < size; index = child) {
+            if (child + 1 < size && less(heap[child + 1], heap[child]))
+                child++;
+
+            if (!less(heap[child], element))
+                break;
+
+            heap[index] = heap[child];
+        }
+
+        heap[index] = element;
+    }
+}
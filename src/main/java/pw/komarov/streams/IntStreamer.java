@@ -0,0 +1,670 @@
+package pw.komarov.streams;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/*
+    Streamer of primitive int values: operations are running on raw int values (without boxing),
+    collected operations (sorted, reversed, last) are using primitive buffers (see PrimitiveStreamer)
+*/
+
+public final class IntStreamer extends PrimitiveStreamer<IntStreamer> implements IntStream {
+    /*
+            Constructing
+    */
+
+    private IntStreamer(Source source) {
+        this(source, new LinkedList<>(), new LinkedList<>());
+    }
+
+    IntStreamer(Source source, List<Stage> intermediateOperations, List<Runnable> onCloseSequences) {
+        super(source, intermediateOperations, onCloseSequences);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public static IntStreamer empty() {
+        return of();
+    }
+
+    public static IntStreamer of(int... values) {
+        return new IntStreamer(new ArraySource(values, values.length, false));
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public static IntStreamer from(PrimitiveIterator.OfInt iterator) {
+        return new IntStreamer(new IteratorSource(iterator, null));
+    }
+
+    @SuppressWarnings("unused")
+    public static IntStreamer from(IntStream stream) {
+        return new IntStreamer(source(stream));
+    }
+
+    //source of stream elements (stream is closed with source), null stream - empty source (ex: children of flatMap())
+    static Source source(IntStream stream) {
+        return stream != null ? new IteratorSource(stream.iterator(), stream) : Source.EMPTY;
+    }
+
+    private static class InfiniteGenerator implements PrimitiveIterator.OfInt {
+        private final IntSupplier supplier;
+
+        InfiniteGenerator(IntSupplier supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        @Override
+        public int nextInt() {
+            return supplier.getAsInt();
+        }
+    }
+
+    public static IntStreamer generate(IntSupplier supplier) {
+        return from(new InfiniteGenerator(supplier));
+    }
+
+    private static class InfiniteIterator implements PrimitiveIterator.OfInt {
+        private int value; //previous value (at first call - initial value)
+        private final IntUnaryOperator unaryOperator;
+
+        InfiniteIterator(int initial, IntUnaryOperator unaryOperator) {
+            this.value = initial;
+            this.unaryOperator = unaryOperator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        @Override
+        public int nextInt() {
+            int prev = this.value; //store previous value
+            this.value = unaryOperator.applyAsInt(prev);
+
+            return prev;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public static IntStreamer iterate(int initial, IntUnaryOperator unaryOperator) {
+        return from(new InfiniteIterator(initial, unaryOperator));
+    }
+
+    //iterator over closed range of values
+    private static class RangeIterator implements PrimitiveIterator.OfInt {
+        private int next;
+        private final int last;
+        private boolean finished;
+
+        RangeIterator(int first, int last) {
+            this.next = first;
+            this.last = last;
+            this.finished = first > last;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !finished;
+        }
+
+        @Override
+        public int nextInt() {
+            if (finished)
+                throw new NoSuchElementException();
+
+            int value = next;
+            if (value == last)
+                finished = true;
+            else
+                next++;
+
+            return value;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public static IntStreamer range(int startInclusive, int endExclusive) {
+        return startInclusive < endExclusive ? rangeClosed(startInclusive, endExclusive - 1) : empty();
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public static IntStreamer rangeClosed(int startInclusive, int endInclusive) {
+        return from(new RangeIterator(startInclusive, endInclusive));
+    }
+
+    //chars of sequence (without boxing)
+    @SuppressWarnings("unused")
+    public static IntStreamer from(CharSequence charSequence) {
+        return from(new PrimitiveIterator.OfInt() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < charSequence.length();
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                return charSequence.charAt(index++);
+            }
+        });
+    }
+
+    /*
+            Sources and buffers
+    */
+
+    //source over iterator (closes its stream, if any)
+    private static class IteratorSource extends Source {
+        private final PrimitiveIterator.OfInt iterator;
+        private final IntStream stream;
+
+        IteratorSource(PrimitiveIterator.OfInt iterator, IntStream stream) {
+            this.iterator = iterator;
+            this.stream = stream;
+        }
+
+        @Override
+        boolean advance(Stage head) {
+            if (!iterator.hasNext())
+                return false;
+
+            head.accept(iterator.nextInt());
+
+            return true;
+        }
+
+        @Override
+        void forEach(Stage head) {
+            while (!head.isCancelled() && iterator.hasNext())
+                head.accept(iterator.nextInt());
+        }
+
+        @Override
+        void close() {
+            if (stream != null)
+                stream.close();
+        }
+    }
+
+    //source over part of array (forward or backward), used by collected operations and of()
+    private static class ArraySource extends Source {
+        private final int[] elements;
+        private final int size;
+        private final boolean reversed;
+        private int index; //count of pushed elements
+
+        ArraySource(int[] elements, int size, boolean reversed) {
+            this.elements = elements;
+            this.size = size;
+            this.reversed = reversed;
+        }
+
+        @Override
+        boolean advance(Stage head) {
+            if (index == size)
+                return false;
+
+            head.accept(elements[reversed ? size - 1 - index++ : index++]);
+
+            return true;
+        }
+
+        @Override
+        void forEach(Stage head) {
+            while (!head.isCancelled() && index < size)
+                head.accept(elements[reversed ? size - 1 - index++ : index++]);
+        }
+    }
+
+    //growable int[], primitive buffer for collected operations and terminals
+    private static class IntArray extends Buffer {
+        private int[] elements = new int[16];
+
+        @Override
+        void accept(int element) {
+            if (size == elements.length)
+                elements = Arrays.copyOf(elements, size << 1);
+
+            elements[size++] = element;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(elements, size);
+        }
+
+        @Override
+        void sort() {
+            Arrays.sort(elements, 0, size);
+        }
+
+        @Override
+        void keepLast(int count) {
+            if (size > count) {
+                System.arraycopy(elements, size - count, elements, 0, count);
+                size = count;
+            }
+        }
+
+        @Override
+        Source source(boolean reversed) {
+            return new ArraySource(elements, size, reversed);
+        }
+    }
+
+    @Override
+    Buffer newBuffer() {
+        return new IntArray();
+    }
+
+    /*
+            Intermediate methods (conveyor/pipeline)
+    */
+
+    //filter()
+    private static class FilterOperation extends Stage {
+        private final IntPredicate predicate;
+
+        FilterOperation(IntPredicate predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        void accept(int element) {
+            if (predicate.test(element))
+                downstream.accept(element);
+        }
+    }
+
+    @Override
+    public IntStreamer filter(IntPredicate predicate) {
+        Objects.requireNonNull(predicate);
+
+        return add(new FilterOperation(predicate));
+    }
+
+    //map()
+    private static class MapOperation extends Stage {
+        private final IntUnaryOperator function;
+
+        MapOperation(IntUnaryOperator function) {
+            this.function = function;
+        }
+
+        @Override
+        void accept(int element) {
+            downstream.accept(function.applyAsInt(element));
+        }
+    }
+
+    @Override
+    public IntStreamer map(IntUnaryOperator mapper) {
+        Objects.requireNonNull(mapper);
+
+        return add(new MapOperation(mapper));
+    }
+
+    //peek()
+    private static class PeekOperation extends Stage {
+        private final IntConsumer action;
+
+        PeekOperation(IntConsumer action) {
+            this.action = action;
+        }
+
+        @Override
+        void accept(int element) {
+            action.accept(element);
+            downstream.accept(element);
+        }
+    }
+
+    @Override
+    public IntStreamer peek(IntConsumer action) {
+        Objects.requireNonNull(action);
+
+        return add(new PeekOperation(action));
+    }
+
+    //flatMap()
+    private static class FlatMapOperation extends ExpandingOperation {
+        private final IntFunction<? extends IntStream> mapper;
+
+        FlatMapOperation(IntFunction<? extends IntStream> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        void accept(int element) {
+            expand(source(mapper.apply(element)));
+        }
+    }
+
+    @Override
+    public IntStreamer flatMap(IntFunction<? extends IntStream> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return add(new FlatMapOperation(mapper));
+    }
+
+    //mapToObj(), boxed()
+    private static class MapToObjStage<U> extends ObjectStage<U> {
+        private final IntFunction<? extends U> mapper;
+
+        MapToObjStage(IntFunction<? extends U> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        void accept(int element) {
+            action.accept(mapper.apply(element));
+        }
+
+        @Override
+        U take(Output output) {
+            return mapper.apply(output.takeInt());
+        }
+    }
+
+    @Override
+    public <U> Streamer<U> mapToObj(IntFunction<? extends U> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return continuedBy(new MapToObjStage<>(mapper));
+    }
+
+    @Override
+    public Streamer<Integer> boxed() {
+        return mapToObj(Integer::valueOf);
+    }
+
+    //mapToLong(), asLongStream()
+    private static class MapToLongOperation extends Stage {
+        private final IntToLongFunction function;
+
+        MapToLongOperation(IntToLongFunction function) {
+            this.function = function;
+        }
+
+        @Override
+        void accept(int element) {
+            downstream.accept(function.applyAsLong(element));
+        }
+    }
+
+    @Override
+    public LongStreamer mapToLong(IntToLongFunction mapper) {
+        Objects.requireNonNull(mapper);
+
+        return continued(new MapToLongOperation(mapper), LongStreamer::new);
+    }
+
+    //mapToDouble(), asDoubleStream()
+    private static class MapToDoubleOperation extends Stage {
+        private final IntToDoubleFunction function;
+
+        MapToDoubleOperation(IntToDoubleFunction function) {
+            this.function = function;
+        }
+
+        @Override
+        void accept(int element) {
+            downstream.accept(function.applyAsDouble(element));
+        }
+    }
+
+    @Override
+    public DoubleStreamer mapToDouble(IntToDoubleFunction mapper) {
+        Objects.requireNonNull(mapper);
+
+        return continued(new MapToDoubleOperation(mapper), DoubleStreamer::new);
+    }
+
+    @Override
+    public LongStreamer asLongStream() {
+        return mapToLong(value -> value);
+    }
+
+    @Override
+    public DoubleStreamer asDoubleStream() {
+        return mapToDouble(value -> value);
+    }
+
+    @Override
+    public int sum() {
+        return reduce(0, Integer::sum);
+    }
+
+    /*
+            Terminal methods
+    */
+
+    //pulls elements of run
+    private static class RunIterator implements PrimitiveIterator.OfInt {
+        private final Run run;
+
+        RunIterator(Run run) {
+            this.run = run;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return run.hasNext();
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            return run.output.takeInt();
+        }
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new RunIterator(prepareRun());
+    }
+
+    @Override
+    public boolean anyMatch(IntPredicate predicate) {
+        Objects.requireNonNull(predicate);
+
+        Run run = prepareRun();
+
+        try {
+            while (run.hasNext())
+                if (predicate.test(run.output.takeInt()))
+                    return true;
+
+            return false;
+        } finally {
+            internalClose();
+        }
+    }
+
+    @Override
+    public boolean allMatch(IntPredicate predicate) {
+        Objects.requireNonNull(predicate);
+
+        Run run = prepareRun();
+
+        try {
+            while (run.hasNext())
+                if (!predicate.test(run.output.takeInt()))
+                    return false;
+
+            return true;
+        } finally {
+            internalClose();
+        }
+    }
+
+    @Override
+    public boolean noneMatch(IntPredicate predicate) {
+        return !anyMatch(predicate);
+    }
+
+    @Override
+    public OptionalInt findFirst() {
+        return findAny();
+    }
+
+    @Override
+    public OptionalInt findAny() {
+        Run run = prepareRun();
+
+        try {
+            return run.hasNext() ? OptionalInt.of(run.output.takeInt()) : OptionalInt.empty();
+        } finally {
+            internalClose();
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public OptionalInt findLast() {
+        return reduce((first, second) -> second);
+    }
+
+    @Override
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action);
+
+        push(new Stage() {
+            @Override
+            void accept(int element) {
+                action.accept(element);
+            }
+        });
+    }
+
+    @Override
+    public void forEachOrdered(IntConsumer action) {
+        forEach(action);
+    }
+
+    @Override
+    public OptionalInt min() {
+        return reduce(Math::min);
+    }
+
+    @Override
+    public OptionalInt max() {
+        return reduce(Math::max);
+    }
+
+    //accumulates elements by operator
+    private static class Reduction extends Stage {
+        private final IntBinaryOperator accumulator;
+        private boolean found;
+        private int value;
+
+        Reduction(IntBinaryOperator accumulator) {
+            this.accumulator = accumulator;
+        }
+
+        @Override
+        void accept(int element) {
+            if (found)
+                value = accumulator.applyAsInt(value, element);
+            else {
+                value = element;
+                found = true;
+            }
+        }
+    }
+
+    @Override
+    public int reduce(int identity, IntBinaryOperator accumulator) {
+        Objects.requireNonNull(accumulator);
+
+        Reduction reduction = new Reduction(accumulator);
+        reduction.value = identity;
+        reduction.found = true;
+
+        push(reduction);
+
+        return reduction.value;
+    }
+
+    @Override
+    public OptionalInt reduce(IntBinaryOperator accumulator) {
+        Objects.requireNonNull(accumulator);
+
+        Reduction reduction = new Reduction(accumulator);
+
+        push(reduction);
+
+        return reduction.found ? OptionalInt.of(reduction.value) : OptionalInt.empty();
+    }
+
+    @Override
+    public <R> R collect(Supplier<R> supplier, ObjIntConsumer<R> accumulator, BiConsumer<R, R> combiner) {
+        Objects.requireNonNull(supplier);
+        Objects.requireNonNull(accumulator);
+
+        R result = supplier.get();
+
+        push(new Stage() {
+            @Override
+            void accept(int element) {
+                accumulator.accept(result, element);
+            }
+        });
+
+        return result;
+    }
+
+    @Override
+    public int[] toArray() {
+        IntArray array = new IntArray();
+
+        push(array);
+
+        return array.toArray();
+    }
+
+    @Override
+    public OptionalDouble average() {
+        IntSummaryStatistics statistics = summaryStatistics();
+
+        return statistics.getCount() > 0 ? OptionalDouble.of(statistics.getAverage()) : OptionalDouble.empty();
+    }
+
+    @Override
+    public IntSummaryStatistics summaryStatistics() {
+        return collect(IntSummaryStatistics::new, IntSummaryStatistics::accept, IntSummaryStatistics::combine);
+    }
+
+    @Override
+    public Spliterator.OfInt spliterator() {
+        return Spliterators.spliteratorUnknownSize(this.iterator(), Spliterator.ORDERED);
+    }
+
+    /*
+            Additional
+    */
+
+    @SuppressWarnings("WeakerAccess")
+    public <K> Map<K, int[]> groupBy(IntFunction<? extends K> groupMapper) {
+        Objects.requireNonNull(groupMapper);
+
+        Map<K, IntArray> groups = collect(HashMap::new,
+                (map, element) -> map.computeIfAbsent(groupMapper.apply(element), key -> new IntArray()).accept(element),
+                null);
+
+        Map<K, int[]> result = new HashMap<>(groups.size() * 4 / 3 + 1);
+        groups.forEach((key, array) -> result.put(key, array.toArray()));
+
+        return result;
+    }
+}
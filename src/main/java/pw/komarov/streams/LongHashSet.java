@@ -0,0 +1,82 @@
+package pw.komarov.streams;
+
+//set of long values (open addressing, linear probing), without boxing: int values are stored widened, double values - by bits
+final class LongHashSet {
+    private static final long FREE = 0; //zero marks free slot, zero value itself is stored in flag
+    static final int MAX_CAPACITY = 1 << 30; //slots count (set holds at most half of it)
+
+    private long[] keys;
+    private int size;
+    private boolean containsZero;
+
+    LongHashSet() {
+        this(16);
+    }
+
+    LongHashSet(int expectedSize) {
+        keys = new long[capacityFor(expectedSize)];
+    }
+
+    //slots count for expected size (load factor <= 0.5)
+    static int capacityFor(int expectedSize) {
+        long capacity = Long.highestOneBit(Math.max(expectedSize, 8) * 2L - 1) << 1;
+        if (capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("expected size is too large: " + expectedSize + " (maximum: " + MAX_CAPACITY / 2 + ")");
+
+        return (int) capacity;
+    }
+
+    //slots count after growth of full table
+    static int grownCapacity(int capacity) {
+        if (capacity == MAX_CAPACITY)
+            throw new IllegalStateException("too many keys (maximum: " + MAX_CAPACITY / 2 + ")");
+
+        return capacity << 1;
+    }
+
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    //true, if key was not in set
+    boolean add(long key) {
+        if (key == FREE) {
+            if (containsZero)
+                return false;
+
+            containsZero = true;
+            return true;
+        }
+
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask)
+            if (keys[i] == FREE) {
+                keys[i] = key;
+                if (++size * 2 > keys.length)
+                    rehash();
+
+                return true;
+            } else if (keys[i] == key)
+                return false;
+    }
+
+    int size() {
+        return containsZero ? size + 1 : size;
+    }
+
+    private void rehash() {
+        long[] old = keys;
+        keys = new long[grownCapacity(old.length)];
+
+        int mask = keys.length - 1;
+        for (long key : old)
+            if (key != FREE) {
+                int i = hash(key) & mask;
+                while (keys[i] != FREE)
+                    i = (i + 1) & mask;
+
+                keys[i] = key;
+            }
+    }
+}
@@ -0,0 +1,100 @@
+package pw.komarov.streams;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+import static pw.komarov.streams.LongHashSet.*;
+
+//map of long keys to values (open addressing, linear probing), keys are not boxed while values are computed (int keys are stored widened)
+final class LongKeyedMap<V> {
+    private static final long FREE = 0; //zero marks free slot, value of zero key itself is stored in field
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    private boolean containsZero;
+    private V zeroValue;
+
+    LongKeyedMap() {
+        this(16);
+    }
+
+    LongKeyedMap(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+
+        keys = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    //value of key, which is created by factory, when key is absent
+    @SuppressWarnings("unchecked")
+    V computeIfAbsent(long key, LongFunction<? extends V> factory) {
+        if (key == FREE) {
+            if (!containsZero) {
+                zeroValue = factory.apply(key);
+                containsZero = true;
+            }
+
+            return zeroValue;
+        }
+
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask)
+            if (keys[i] == key)
+                return (V) values[i];
+            else if (keys[i] == FREE) {
+                V value = factory.apply(key);
+
+                keys[i] = key;
+                values[i] = value;
+                if (++size * 2 > keys.length)
+                    rehash();
+
+                return value;
+            }
+    }
+
+    int size() {
+        return containsZero ? size + 1 : size;
+    }
+
+    int capacity() { //slots count (map is rehashed, when it is half full)
+        return keys.length;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[grownCapacity(oldKeys.length)];
+        values = new Object[keys.length];
+
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++)
+            if (oldKeys[j] != FREE) {
+                int i = hash(oldKeys[j]) & mask;
+                while (keys[i] != FREE)
+                    i = (i + 1) & mask;
+
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+    }
+
+    //boxed map of finished values (sized for all keys), keys are boxed by function (ex: to Integer)
+    @SuppressWarnings("unchecked")
+    <K, R> Map<K, R> toMap(LongFunction<? extends K> boxing, Function<? super V, ? extends R> finisher) {
+        Map<K, R> map = new HashMap<>((int) (size() / 0.75f) + 1);
+
+        if (containsZero)
+            map.put(boxing.apply(FREE), finisher.apply(zeroValue));
+
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != FREE)
+                map.put(boxing.apply(keys[i]), finisher.apply((V) values[i]));
+
+        return map;
+    }
+}
@@ -0,0 +1,644 @@
+package pw.komarov.streams;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/*
+    Streamer of primitive long values: operations are running on raw long values (without boxing),
+    collected operations (sorted, reversed, last) are using primitive buffers (see PrimitiveStreamer)
+*/
+
+public final class LongStreamer extends PrimitiveStreamer<LongStreamer> implements LongStream {
+    /*
+            Constructing
+    */
+
+    private LongStreamer(Source source) {
+        this(source, new LinkedList<>(), new LinkedList<>());
+    }
+
+    LongStreamer(Source source, List<Stage> intermediateOperations, List<Runnable> onCloseSequences) {
+        super(source, intermediateOperations, onCloseSequences);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public static LongStreamer empty() {
+        return of();
+    }
+
+    public static LongStreamer of(long... values) {
+        return new LongStreamer(new ArraySource(values, values.length, false));
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public static LongStreamer from(PrimitiveIterator.OfLong iterator) {
+        return new LongStreamer(new IteratorSource(iterator, null));
+    }
+
+    @SuppressWarnings("unused")
+    public static LongStreamer from(LongStream stream) {
+        return new LongStreamer(source(stream));
+    }
+
+    //source of stream elements (stream is closed with source), null stream - empty source (ex: children of flatMap())
+    static Source source(LongStream stream) {
+        return stream != null ? new IteratorSource(stream.iterator(), stream) : Source.EMPTY;
+    }
+
+    private static class InfiniteGenerator implements PrimitiveIterator.OfLong {
+        private final LongSupplier supplier;
+
+        InfiniteGenerator(LongSupplier supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        @Override
+        public long nextLong() {
+            return supplier.getAsLong();
+        }
+    }
+
+    public static LongStreamer generate(LongSupplier supplier) {
+        return from(new InfiniteGenerator(supplier));
+    }
+
+    private static class InfiniteIterator implements PrimitiveIterator.OfLong {
+        private long value; //previous value (at first call - initial value)
+        private final LongUnaryOperator unaryOperator;
+
+        InfiniteIterator(long initial, LongUnaryOperator unaryOperator) {
+            this.value = initial;
+            this.unaryOperator = unaryOperator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        @Override
+        public long nextLong() {
+            long prev = this.value; //store previous value
+            this.value = unaryOperator.applyAsLong(prev);
+
+            return prev;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public static LongStreamer iterate(long initial, LongUnaryOperator unaryOperator) {
+        return from(new InfiniteIterator(initial, unaryOperator));
+    }
+
+    //iterator over closed range of values
+    private static class RangeIterator implements PrimitiveIterator.OfLong {
+        private long next;
+        private final long last;
+        private boolean finished;
+
+        RangeIterator(long first, long last) {
+            this.next = first;
+            this.last = last;
+            this.finished = first > last;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !finished;
+        }
+
+        @Override
+        public long nextLong() {
+            if (finished)
+                throw new NoSuchElementException();
+
+            long value = next;
+            if (value == last)
+                finished = true;
+            else
+                next++;
+
+            return value;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public static LongStreamer range(long startInclusive, long endExclusive) {
+        return startInclusive < endExclusive ? rangeClosed(startInclusive, endExclusive - 1) : empty();
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public static LongStreamer rangeClosed(long startInclusive, long endInclusive) {
+        return from(new RangeIterator(startInclusive, endInclusive));
+    }
+
+    /*
+            Sources and buffers
+    */
+
+    //source over iterator (closes its stream, if any)
+    private static class IteratorSource extends Source {
+        private final PrimitiveIterator.OfLong iterator;
+        private final LongStream stream;
+
+        IteratorSource(PrimitiveIterator.OfLong iterator, LongStream stream) {
+            this.iterator = iterator;
+            this.stream = stream;
+        }
+
+        @Override
+        boolean advance(Stage head) {
+            if (!iterator.hasNext())
+                return false;
+
+            head.accept(iterator.nextLong());
+
+            return true;
+        }
+
+        @Override
+        void forEach(Stage head) {
+            while (!head.isCancelled() && iterator.hasNext())
+                head.accept(iterator.nextLong());
+        }
+
+        @Override
+        void close() {
+            if (stream != null)
+                stream.close();
+        }
+    }
+
+    //source over part of array (forward or backward), used by collected operations and of()
+    private static class ArraySource extends Source {
+        private final long[] elements;
+        private final int size;
+        private final boolean reversed;
+        private int index; //count of pushed elements
+
+        ArraySource(long[] elements, int size, boolean reversed) {
+            this.elements = elements;
+            this.size = size;
+            this.reversed = reversed;
+        }
+
+        @Override
+        boolean advance(Stage head) {
+            if (index == size)
+                return false;
+
+            head.accept(elements[reversed ? size - 1 - index++ : index++]);
+
+            return true;
+        }
+
+        @Override
+        void forEach(Stage head) {
+            while (!head.isCancelled() && index < size)
+                head.accept(elements[reversed ? size - 1 - index++ : index++]);
+        }
+    }
+
+    //growable long[], primitive buffer for collected operations and terminals
+    private static class LongArray extends Buffer {
+        private long[] elements = new long[16];
+
+        @Override
+        void accept(long element) {
+            if (size == elements.length)
+                elements = Arrays.copyOf(elements, size << 1);
+
+            elements[size++] = element;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(elements, size);
+        }
+
+        @Override
+        void sort() {
+            Arrays.sort(elements, 0, size);
+        }
+
+        @Override
+        void keepLast(int count) {
+            if (size > count) {
+                System.arraycopy(elements, size - count, elements, 0, count);
+                size = count;
+            }
+        }
+
+        @Override
+        Source source(boolean reversed) {
+            return new ArraySource(elements, size, reversed);
+        }
+    }
+
+    @Override
+    Buffer newBuffer() {
+        return new LongArray();
+    }
+
+    /*
+            Intermediate methods (conveyor/pipeline)
+    */
+
+    //filter()
+    private static class FilterOperation extends Stage {
+        private final LongPredicate predicate;
+
+        FilterOperation(LongPredicate predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        void accept(long element) {
+            if (predicate.test(element))
+                downstream.accept(element);
+        }
+    }
+
+    @Override
+    public LongStreamer filter(LongPredicate predicate) {
+        Objects.requireNonNull(predicate);
+
+        return add(new FilterOperation(predicate));
+    }
+
+    //map()
+    private static class MapOperation extends Stage {
+        private final LongUnaryOperator function;
+
+        MapOperation(LongUnaryOperator function) {
+            this.function = function;
+        }
+
+        @Override
+        void accept(long element) {
+            downstream.accept(function.applyAsLong(element));
+        }
+    }
+
+    @Override
+    public LongStreamer map(LongUnaryOperator mapper) {
+        Objects.requireNonNull(mapper);
+
+        return add(new MapOperation(mapper));
+    }
+
+    //peek()
+    private static class PeekOperation extends Stage {
+        private final LongConsumer action;
+
+        PeekOperation(LongConsumer action) {
+            this.action = action;
+        }
+
+        @Override
+        void accept(long element) {
+            action.accept(element);
+            downstream.accept(element);
+        }
+    }
+
+    @Override
+    public LongStreamer peek(LongConsumer action) {
+        Objects.requireNonNull(action);
+
+        return add(new PeekOperation(action));
+    }
+
+    //flatMap()
+    private static class FlatMapOperation extends ExpandingOperation {
+        private final LongFunction<? extends LongStream> mapper;
+
+        FlatMapOperation(LongFunction<? extends LongStream> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        void accept(long element) {
+            expand(source(mapper.apply(element)));
+        }
+    }
+
+    @Override
+    public LongStreamer flatMap(LongFunction<? extends LongStream> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return add(new FlatMapOperation(mapper));
+    }
+
+    //mapToObj(), boxed()
+    private static class MapToObjStage<U> extends ObjectStage<U> {
+        private final LongFunction<? extends U> mapper;
+
+        MapToObjStage(LongFunction<? extends U> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        void accept(long element) {
+            action.accept(mapper.apply(element));
+        }
+
+        @Override
+        U take(Output output) {
+            return mapper.apply(output.takeLong());
+        }
+    }
+
+    @Override
+    public <U> Streamer<U> mapToObj(LongFunction<? extends U> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return continuedBy(new MapToObjStage<>(mapper));
+    }
+
+    @Override
+    public Streamer<Long> boxed() {
+        return mapToObj(Long::valueOf);
+    }
+
+    //mapToInt()
+    private static class MapToIntOperation extends Stage {
+        private final LongToIntFunction function;
+
+        MapToIntOperation(LongToIntFunction function) {
+            this.function = function;
+        }
+
+        @Override
+        void accept(long element) {
+            downstream.accept(function.applyAsInt(element));
+        }
+    }
+
+    @Override
+    public IntStreamer mapToInt(LongToIntFunction mapper) {
+        Objects.requireNonNull(mapper);
+
+        return continued(new MapToIntOperation(mapper), IntStreamer::new);
+    }
+
+    //mapToDouble(), asDoubleStream()
+    private static class MapToDoubleOperation extends Stage {
+        private final LongToDoubleFunction function;
+
+        MapToDoubleOperation(LongToDoubleFunction function) {
+            this.function = function;
+        }
+
+        @Override
+        void accept(long element) {
+            downstream.accept(function.applyAsDouble(element));
+        }
+    }
+
+    @Override
+    public DoubleStreamer mapToDouble(LongToDoubleFunction mapper) {
+        Objects.requireNonNull(mapper);
+
+        return continued(new MapToDoubleOperation(mapper), DoubleStreamer::new);
+    }
+
+    @Override
+    public DoubleStreamer asDoubleStream() {
+        return mapToDouble(value -> value);
+    }
+
+    @Override
+    public long sum() {
+        return reduce(0, Long::sum);
+    }
+
+    /*
+            Terminal methods
+    */
+
+    //pulls elements of run
+    private static class RunIterator implements PrimitiveIterator.OfLong {
+        private final Run run;
+
+        RunIterator(Run run) {
+            this.run = run;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return run.hasNext();
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            return run.output.takeLong();
+        }
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new RunIterator(prepareRun());
+    }
+
+    @Override
+    public boolean anyMatch(LongPredicate predicate) {
+        Objects.requireNonNull(predicate);
+
+        Run run = prepareRun();
+
+        try {
+            while (run.hasNext())
+                if (predicate.test(run.output.takeLong()))
+                    return true;
+
+            return false;
+        } finally {
+            internalClose();
+        }
+    }
+
+    @Override
+    public boolean allMatch(LongPredicate predicate) {
+        Objects.requireNonNull(predicate);
+
+        Run run = prepareRun();
+
+        try {
+            while (run.hasNext())
+                if (!predicate.test(run.output.takeLong()))
+                    return false;
+
+            return true;
+        } finally {
+            internalClose();
+        }
+    }
+
+    @Override
+    public boolean noneMatch(LongPredicate predicate) {
+        return !anyMatch(predicate);
+    }
+
+    @Override
+    public OptionalLong findFirst() {
+        return findAny();
+    }
+
+    @Override
+    public OptionalLong findAny() {
+        Run run = prepareRun();
+
+        try {
+            return run.hasNext() ? OptionalLong.of(run.output.takeLong()) : OptionalLong.empty();
+        } finally {
+            internalClose();
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public OptionalLong findLast() {
+        return reduce((first, second) -> second);
+    }
+
+    @Override
+    public void forEach(LongConsumer action) {
+        Objects.requireNonNull(action);
+
+        push(new Stage() {
+            @Override
+            void accept(long element) {
+                action.accept(element);
+            }
+        });
+    }
+
+    @Override
+    public void forEachOrdered(LongConsumer action) {
+        forEach(action);
+    }
+
+    @Override
+    public OptionalLong min() {
+        return reduce(Math::min);
+    }
+
+    @Override
+    public OptionalLong max() {
+        return reduce(Math::max);
+    }
+
+    //accumulates elements by operator
+    private static class Reduction extends Stage {
+        private final LongBinaryOperator accumulator;
+        private boolean found;
+        private long value;
+
+        Reduction(LongBinaryOperator accumulator) {
+            this.accumulator = accumulator;
+        }
+
+        @Override
+        void accept(long element) {
+            if (found)
+                value = accumulator.applyAsLong(value, element);
+            else {
+                value = element;
+                found = true;
+            }
+        }
+    }
+
+    @Override
+    public long reduce(long identity, LongBinaryOperator accumulator) {
+        Objects.requireNonNull(accumulator);
+
+        Reduction reduction = new Reduction(accumulator);
+        reduction.value = identity;
+        reduction.found = true;
+
+        push(reduction);
+
+        return reduction.value;
+    }
+
+    @Override
+    public OptionalLong reduce(LongBinaryOperator accumulator) {
+        Objects.requireNonNull(accumulator);
+
+        Reduction reduction = new Reduction(accumulator);
+
+        push(reduction);
+
+        return reduction.found ? OptionalLong.of(reduction.value) : OptionalLong.empty();
+    }
+
+    @Override
+    public <R> R collect(Supplier<R> supplier, ObjLongConsumer<R> accumulator, BiConsumer<R, R> combiner) {
+        Objects.requireNonNull(supplier);
+        Objects.requireNonNull(accumulator);
+
+        R result = supplier.get();
+
+        push(new Stage() {
+            @Override
+            void accept(long element) {
+                accumulator.accept(result, element);
+            }
+        });
+
+        return result;
+    }
+
+    @Override
+    public long[] toArray() {
+        LongArray array = new LongArray();
+
+        push(array);
+
+        return array.toArray();
+    }
+
+    @Override
+    public OptionalDouble average() {
+        LongSummaryStatistics statistics = summaryStatistics();
+
+        return statistics.getCount() > 0 ? OptionalDouble.of(statistics.getAverage()) : OptionalDouble.empty();
+    }
+
+    @Override
+    public LongSummaryStatistics summaryStatistics() {
+        return collect(LongSummaryStatistics::new, LongSummaryStatistics::accept, LongSummaryStatistics::combine);
+    }
+
+    @Override
+    public Spliterator.OfLong spliterator() {
+        return Spliterators.spliteratorUnknownSize(this.iterator(), Spliterator.ORDERED);
+    }
+
+    /*
+            Additional
+    */
+
+    @SuppressWarnings("WeakerAccess")
+    public <K> Map<K, long[]> groupBy(LongFunction<? extends K> groupMapper) {
+        Objects.requireNonNull(groupMapper);
+
+        Map<K, LongArray> groups = collect(HashMap::new,
+                (map, element) -> map.computeIfAbsent(groupMapper.apply(element), key -> new LongArray()).accept(element),
+                null);
+
+        Map<K, long[]> result = new HashMap<>(groups.size() * 4 / 3 + 1);
+        groups.forEach((key, array) -> result.put(key, array.toArray()));
+
+        return result;
+    }
+}
@@ -0,0 +1,236 @@
+package pw.komarov.streams;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+    Lines of file (source of Streamer.lines()), which are split in memory mapped window of file. Line is given as
+    reusable view (the same object for each line, valid until the next line is pulled): bytes of ASCII line
+    (and of any ISO-8859-1 line) are read by view directly from mapping, others are decoded to reused char buffer.
+    Files larger than window (ex: over 2 GB) are mapped by consecutive windows, each starts at the beginning of line.
+    Line separators: "\n", "\r\n" and "\r"
+*/
+
+final class MappedLines implements Iterator<CharSequence>, Streamer.ReusingSource, AutoCloseable {
+    static final int WINDOW_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+
+    private final boolean latin1; //each byte is char
+    private final CharsetDecoder decoder;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int position; //start of the next line in window
+
+    private boolean prepared; //line is found by hasNext()
+    private boolean hasLine;
+    private int lineStart;
+    private int lineEnd;
+    private boolean ascii; //line has not bytes above 0x7F
+
+    private final LineView view = new LineView();
+    private CharBuffer chars = CharBuffer.allocate(0); //decoded line
+    private boolean reusing = true; //false - each line is new String
+
+    MappedLines(FileChannel channel, Charset charset, int windowSize) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        this.latin1 = charset.equals(StandardCharsets.ISO_8859_1);
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+
+    //lines can be split by bytes (and ASCII bytes can be read as chars) for charsets, which encode ASCII as is
+    static boolean isAsciiCompatible(Charset charset) {
+        if (!charset.canEncode())
+            return false;
+
+        char[] ascii = new char[128];
+        for (char c = 0; c < ascii.length; c++)
+            ascii[c] = c;
+        String probe = new String(ascii);
+
+        return probe.equals(new String(probe.getBytes(charset), StandardCharsets.ISO_8859_1));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!prepared) {
+            hasLine = windowStart + position < fileSize && findLine();
+            prepared = true;
+        }
+
+        return hasLine;
+    }
+
+    //finds bounds of the next line (remapping window, when line is not complete in it)
+    private boolean findLine() {
+        if (window == null)
+            map(0);
+
+        while (true) {
+            int limit = window.limit();
+            boolean lastWindow = windowStart + limit == fileSize;
+            boolean ascii = true;
+
+            for (int i = position; i < limit; i++) {
+                byte b = window.get(i);
+                if (b == '\n' || b == '\r') {
+                    if (b == '\r' && i + 1 == limit && !lastWindow)
+                        break; //"\r\n" can be split by windows
+
+                    lineStart = position;
+                    lineEnd = i;
+                    position = b == '\r' && i + 1 < limit && window.get(i + 1) == '\n' ? i + 2 : i + 1;
+                    this.ascii = ascii;
+
+                    return true;
+                }
+
+                ascii &= b >= 0;
+            }
+
+            if (lastWindow) { //last line without separator
+                lineStart = position;
+                lineEnd = limit;
+                position = limit;
+                this.ascii = ascii;
+
+                return true;
+            }
+
+            if (position == 0)
+                throw new IllegalStateException("line is longer than mapping window (" + windowSize + " bytes)");
+
+            map(windowStart + position);
+        }
+    }
+
+    private void map(long start) {
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, fileSize - start));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        windowStart = start;
+        position = 0;
+    }
+
+    @Override
+    public CharSequence next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        prepared = false;
+
+        if (ascii || latin1)
+            view.bytes(lineStart, lineEnd - lineStart);
+        else
+            view.chars(decode());
+
+        return reusing ? view : view.toString();
+    }
+
+    private CharBuffer decode() {
+        ByteBuffer bytes = window.duplicate();
+        bytes.limit(lineEnd).position(lineStart);
+
+        int capacity = (int) Math.ceil((lineEnd - lineStart) * (double) decoder.maxCharsPerByte());
+        if (chars.capacity() < capacity)
+            chars = CharBuffer.allocate(capacity);
+
+        chars.clear();
+        decoder.reset();
+
+        try {
+            CoderResult result = decoder.decode(bytes, chars, true);
+            if (result.isUnderflow())
+                result = decoder.flush(chars);
+            if (result.isError())
+                result.throwException();
+        } catch (CharacterCodingException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        chars.flip();
+
+        return chars;
+    }
+
+    @Override
+    public void stopReusing() {
+        reusing = false;
+    }
+
+    //mapping is released by garbage collector, when it is not referenced anymore (so the last view is valid after close)
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //current line: bytes of mapping (each byte is char) or decoded chars
+    private class LineView implements CharSequence {
+        private int offset; //of bytes in window
+        private int length;
+        private CharBuffer decoded; //null - line is bytes of window
+
+        void bytes(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+            this.decoded = null;
+        }
+
+        void chars(CharBuffer decoded) {
+            this.decoded = decoded;
+            this.length = decoded.remaining();
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length)
+                throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+
+            return decoded != null ? decoded.get(index) : (char) (window.get(offset + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            if (decoded != null)
+                return decoded.toString();
+
+            byte[] bytes = new byte[length];
+            ByteBuffer line = window.duplicate();
+            line.position(offset);
+            line.get(bytes);
+
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package pw.komarov.streams;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/*
+    Stable parallel sorting: parts of array are sorted concurrently (by Arrays.sort(), stable too),
+    then merged by pairs. Unlike Arrays.parallelSort(), parts are split by parallelism of the pool,
+    where sorting runs (pool of the calling task, or common pool), and all tasks are running in it
+*/
+
+final class ParallelMergeSort<E> extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private static final int MIN_PART_SIZE = 8192; //smaller parts are not split
+
+    private final E[] array;
+    private final Object[] buffer; //for merging (left half is copied to it)
+    private final int from;
+    private final int to;
+    private final int threshold;
+    private final Comparator<? super E> comparator;
+
+    private ParallelMergeSort(E[] array, Object[] buffer, int from, int to, int threshold, Comparator<? super E> comparator) {
+        this.array = array;
+        this.buffer = buffer;
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+        this.comparator = comparator;
+    }
+
+    //sorts array in pool of the calling task (else in common pool)
+    static <E> void sort(E[] array, Comparator<? super E> comparator) {
+        ForkJoinPool pool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+        int threshold = Math.max(array.length / (pool.getParallelism() * 4), MIN_PART_SIZE);
+
+        ParallelMergeSort<E> task = new ParallelMergeSort<>(array, new Object[array.length], 0, array.length, threshold, comparator);
+        if (ForkJoinTask.inForkJoinPool())
+            task.invoke();
+        else
+            pool.invoke(task);
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= threshold) {
+            Arrays.sort(array, from, to, comparator);
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        invokeAll(new ParallelMergeSort<>(array, buffer, from, middle, threshold, comparator),
+                new ParallelMergeSort<>(array, buffer, middle, to, threshold, comparator));
+
+        merge(middle);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void merge(int middle) {
+        if (comparator.compare(array[middle - 1], array[middle]) <= 0) //already ordered
+            return;
+
+        System.arraycopy(array, from, buffer, from, middle - from);
+
+        int left = from;
+        int right = middle;
+        int position = from;
+        while (left < middle && right < to) //equal elements are taken from left part first (stable)
+            array[position++] = comparator.compare(array[right], (E) buffer[left]) < 0 ? array[right++] : (E) buffer[left++];
+
+        while (left < middle)
+            array[position++] = (E) buffer[left++];
+    }
+}
@@ -0,0 +1,89 @@
+package pw.komarov.streams;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+    Metrics of one run of metered pipeline: stages in order of operations (operations, which are computed by indexes
+    of random access source, ex: leading skip() or limit(), are not stages).
+    Stage time is the own time of operation (without its downstream), for collected operations (sorted(), reversed(),
+    last()) it includes finishing (ex: sorting) of collected elements
+*/
+
+public final class PipelineMetrics {
+    private final String name;
+    private final long nanos;
+    private final List<Stage> stages;
+
+    PipelineMetrics(String name, long nanos, List<Stage> stages) {
+        this.name = name;
+        this.nanos = nanos;
+        this.stages = Collections.unmodifiableList(stages);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    //wall time from the start of pipeline to its completion
+    public long getNanos() {
+        return nanos;
+    }
+
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + stages + " " + nanos + "ns";
+    }
+
+    public static final class Stage {
+        private final String operation;
+        private final long in;
+        private final long out;
+        private final int peakBufferSize;
+        private final long nanos;
+
+        Stage(String operation, long in, long out, int peakBufferSize, long nanos) {
+            this.operation = operation;
+            this.in = in;
+            this.out = out;
+            this.peakBufferSize = peakBufferSize;
+            this.nanos = nanos;
+        }
+
+        //name of operation (ex: "filter", "sorted")
+        public String getOperation() {
+            return operation;
+        }
+
+        public long getIn() {
+            return in;
+        }
+
+        public long getOut() {
+            return out;
+        }
+
+        //out / in (1 - for stage without incoming elements)
+        public double getSelectivity() {
+            return in > 0 ? (double) out / in : 1;
+        }
+
+        //maximum count of elements, which were held by collected operation (-1 - for not collected operations)
+        public int getPeakBufferSize() {
+            return peakBufferSize;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return operation + "(in=" + in + ", out=" + out + (peakBufferSize >= 0 ? ", buffer=" + peakBufferSize : "") + ", " + nanos + "ns)";
+        }
+    }
+}
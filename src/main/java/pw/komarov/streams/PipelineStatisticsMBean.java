@@ -0,0 +1,22 @@
+package pw.komarov.streams;
+
+//statistics of metered pipelines with the same name (see StreamerMetrics.registerJmx()), totals of all runs
+public interface PipelineStatisticsMBean {
+    long getRuns();
+
+    long getTotalNanos();
+
+    String[] getStageOperations();
+
+    long[] getStageIn();
+
+    long[] getStageOut();
+
+    double[] getStageSelectivity();
+
+    int[] getStagePeakBufferSizes();
+
+    long[] getStageNanos();
+
+    void reset();
+}
@@ -0,0 +1,800 @@
+package pw.komarov.streams;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/*
+    Engine of primitive streamers (IntStreamer, LongStreamer, DoubleStreamer): pipeline is compiled to the chain of
+    stages, which accept raw values (without boxing). Operations, which do not depend on the type of elements
+    (limit(), skip(), distinct(), sorted(), reversed(), last(), flatMap()), are shared. Streamers specialise sources,
+    buffers of collected operations, operations by primitive functions and terminals. Conversions (ex: mapToLong())
+    are stages of the same chain: pipeline is continued by streamer of other type.
+    Primitive streamers are always sequential: parallel() returns the same streamer (isParallel() is false), use
+    parallel() of Streamer before mapToInt() (mapToLong(), mapToDouble()) to evaluate upstream operations in parallel
+*/
+
+abstract class PrimitiveStreamer<S extends PrimitiveStreamer<S>> {
+    /*
+            Constructing
+    */
+
+    private Run run;
+    private Source source;
+    private final List<Stage> intermediateOperations;
+    private final List<Runnable> onCloseSequences;
+
+    PrimitiveStreamer(Source source, List<Stage> intermediateOperations, List<Runnable> onCloseSequences) {
+        this.source = source;
+        this.intermediateOperations = intermediateOperations;
+        this.onCloseSequences = onCloseSequences;
+    }
+
+    @SuppressWarnings("unchecked")
+    private S self() {
+        return (S) this;
+    }
+
+    //constructor of streamer (IntStreamer, LongStreamer, DoubleStreamer), which continues the pipeline
+    interface Continuation<R> {
+        R create(Source source, List<Stage> intermediateOperations, List<Runnable> onCloseSequences);
+    }
+
+    //continues the pipeline with other elements type (ex: mapToLong()), this streamer becomes operated
+    final <R> R continued(Stage operation, Continuation<R> continuation) {
+        add(operation);
+
+        R streamer = continuation.create(source, intermediateOperations, onCloseSequences);
+        source = null;
+
+        state = State.OPERATED;
+
+        return streamer;
+    }
+
+    //continues the pipeline by Streamer (ex: mapToObj()), which run starts the run of this pipeline
+    final <U> Streamer<U> continuedBy(ObjectStage<U> stage) {
+        throwIfNotWaiting();
+
+        state = State.CONTINUED;
+
+        return Streamer.from(new ObjectSpliterator<>(stage)).onClose(this::close); //closing continued stream closes this stream too
+    }
+
+    /*
+            Closure
+    */
+
+    private enum State {WAITING, CONTINUED, OPERATED, CLOSED} //CONTINUED - run is started by continuing Streamer only
+
+    private State state = State.WAITING;
+
+    public void close() {
+        if (state != State.CLOSED) //not started or not completed run (ex: by iterator())
+            internalClose();
+
+        //completing onClose sequences
+        RuntimeException rte = null;
+        for (Iterator<Runnable> iterator = onCloseSequences.iterator(); iterator.hasNext(); ) {
+            Runnable runnable = iterator.next();
+            try {
+                runnable.run();
+            } catch (RuntimeException e) {
+                if (rte == null) //if it first exception
+                    rte = e; //...save it
+                else //if not first...
+                    rte.addSuppressed(e); //...save it in suppressed
+            } finally {
+                iterator.remove();
+            }
+        }
+
+        if (rte != null)
+            throw rte;
+    }
+
+    final void internalClose() {
+        state = State.CLOSED;
+
+        if (run != null)
+            run.close();
+        else if (source != null) { //not started
+            Source source = this.source;
+            this.source = null;
+
+            source.close();
+        }
+    }
+
+    final void throwIfNotWaiting() {
+        if (state != State.WAITING)
+            throw new IllegalStateException("stream has already been operated upon or closed");
+    }
+
+    final Run prepareRun() {
+        throwIfNotWaiting();
+
+        state = State.OPERATED;
+
+        run = new Run(source);
+        source = null;
+
+        return run;
+    }
+
+    //pushes all elements to sink (terminal operations, except short-circuiting ones)
+    final void push(Stage sink) {
+        Run run = prepareRun();
+
+        try {
+            run.forEachRemaining(sink);
+        } finally {
+            internalClose();
+        }
+    }
+
+    /*
+            Run (compiled pipeline)
+    */
+
+    final class Run {
+        private Source source; //source of data (of current segment)
+
+        //pipeline, compiled to segments: each segment (except last) ends with collected operation
+        private final Stage[] heads;
+        private final CollectedOperation[] collectedOperations;
+        private final boolean expanding; //last segment contains 1:N operation
+        final Output output = new Output();
+
+        private boolean collected;
+
+        private Run(Source source) {
+            this.source = source;
+
+            //linking operations to the chain of stages (from the end)
+            List<Stage> heads = new ArrayList<>();
+            List<CollectedOperation> collectedOperations = new ArrayList<>();
+
+            Stage downstream = output;
+            for (ListIterator<Stage> itr = intermediateOperations.listIterator(intermediateOperations.size()); itr.hasPrevious(); ) {
+                Stage operation = itr.previous();
+                if (operation instanceof CollectedOperation) {
+                    heads.add(0, downstream);
+                    collectedOperations.add(0, (CollectedOperation) operation);
+                } else
+                    operation.downstream = downstream;
+
+                downstream = operation;
+            }
+            heads.add(0, downstream);
+
+            intermediateOperations.clear();
+
+            this.heads = heads.toArray(new Stage[0]);
+            this.collectedOperations = collectedOperations.toArray(new CollectedOperation[0]);
+            this.expanding = ExpandingOperation.isInChain(this.heads[this.collectedOperations.length]);
+        }
+
+        //pulls the next element to output (false - when pipeline is completed)
+        boolean hasNext() {
+            if (!output.filled) {
+                collectSegments();
+
+                calcNext();
+
+                if (!output.filled && state != State.CLOSED)
+                    internalClose();
+            }
+
+            return output.filled;
+        }
+
+        //push mode: elements of the last segment are given to sink directly from the loop over source
+        void forEachRemaining(Stage sink) {
+            output.sink = sink;
+            try {
+                collectSegments();
+
+                Stage head = heads[collectedOperations.length];
+                if (expanding) //paused by previous pulls
+                    head.resume();
+
+                source.forEach(head);
+            } finally {
+                output.sink = null;
+            }
+        }
+
+        private void collectSegments() {
+            if (!collected) {
+                for (int i = 0; i < collectedOperations.length; i++) {
+                    source.forEach(heads[i]); //data collecting (whole segment, in one loop)
+                    source.close();
+
+                    //now, we can replace the source
+                    source = collectedOperations[i].finish();
+                }
+
+                collected = true;
+            }
+        }
+
+        private void calcNext() { //pulling the source, until element reaches the output stage
+            Stage head = heads[collectedOperations.length];
+            if (expanding && head.resume()) //next child of paused 1:N operation
+                return;
+
+            while (!output.filled && !head.isCancelled() && source.advance(head))
+                ;
+        }
+
+        private void close() {
+            Source source = this.source;
+            this.source = Source.EMPTY;
+
+            if (expanding)
+                ExpandingOperation.releaseChain(heads[collectedOperations.length]);
+
+            source.close();
+        }
+    }
+
+    //source of elements (of pipeline or of segment after collected operation)
+    static abstract class Source {
+        static final Source EMPTY = new Source() {
+            @Override
+            boolean advance(Stage head) {
+                return false;
+            }
+        };
+
+        //pushes the next element to head, false - when source is exhausted
+        abstract boolean advance(Stage head);
+
+        //pushes elements to head, until it is cancelled
+        void forEach(Stage head) {
+            while (!head.isCancelled() && advance(head))
+                ;
+        }
+
+        void close() {}
+    }
+
+    /*
+            Stages
+    */
+
+    //stage receives element from upstream and pushes it (or result of it) to downstream stage, elements of other types are never pushed to it
+    static abstract class Stage {
+        Stage downstream;
+
+        void accept(int element) {
+            throw new IllegalStateException("int element is not accepted by " + getClass().getName());
+        }
+
+        void accept(long element) {
+            throw new IllegalStateException("long element is not accepted by " + getClass().getName());
+        }
+
+        void accept(double element) {
+            throw new IllegalStateException("double element is not accepted by " + getClass().getName());
+        }
+
+        //true, when no more elements required (ex: limit reached), source must not be pulled anymore
+        boolean isCancelled() {
+            return downstream.isCancelled();
+        }
+
+        //true, when downstream can not take element now (output holds element), 1:N operation must pause
+        boolean isFull() {
+            return downstream.isFull();
+        }
+
+        //continues paused 1:N operations of stage and its downstream (downstream first): true, while one is paused
+        boolean resume() {
+            return downstream.resume();
+        }
+    }
+
+    //last stage of pipeline: holds one element for pulling, in push mode elements are given to sink directly
+    static final class Output extends Stage {
+        private int intElement;
+        private long longElement;
+        private double doubleElement;
+        private boolean filled;
+
+        private Stage sink; //not null in push mode
+
+        @Override
+        void accept(int element) {
+            if (sink != null)
+                sink.accept(element);
+            else {
+                intElement = element;
+                filled = true;
+            }
+        }
+
+        @Override
+        void accept(long element) {
+            if (sink != null)
+                sink.accept(element);
+            else {
+                longElement = element;
+                filled = true;
+            }
+        }
+
+        @Override
+        void accept(double element) {
+            if (sink != null)
+                sink.accept(element);
+            else {
+                doubleElement = element;
+                filled = true;
+            }
+        }
+
+        //gives held element
+        int takeInt() {
+            filled = false;
+
+            return intElement;
+        }
+
+        long takeLong() {
+            filled = false;
+
+            return longElement;
+        }
+
+        double takeDouble() {
+            filled = false;
+
+            return doubleElement;
+        }
+
+        @Override
+        boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        boolean isFull() {
+            return filled;
+        }
+
+        @Override
+        boolean resume() {
+            return false;
+        }
+    }
+
+    //sink of continuing Streamer (ex: mapToObj()): maps elements to objects for action (push mode) or takes them from output
+    static abstract class ObjectStage<U> extends Stage {
+        Consumer<? super U> action;
+
+        abstract U take(Output output);
+    }
+
+    //elements of pipeline, mapped to objects by stage: run is started by the first pull
+    private final class ObjectSpliterator<U> extends Spliterators.AbstractSpliterator<U> {
+        private final ObjectStage<U> stage;
+
+        ObjectSpliterator(ObjectStage<U> stage) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+
+            this.stage = stage;
+        }
+
+        private Run run() {
+            if (state == State.CONTINUED) {
+                state = State.WAITING;
+
+                prepareRun();
+            }
+
+            return state == State.CLOSED ? null : run;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super U> action) {
+            Run run = run();
+            if (run == null || !run.hasNext())
+                return false;
+
+            action.accept(stage.take(run.output));
+
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super U> action) {
+            Run run = run();
+            if (run == null)
+                return;
+
+            stage.action = action;
+            try {
+                run.forEachRemaining(stage);
+            } finally {
+                stage.action = null;
+
+                internalClose();
+            }
+        }
+    }
+
+    //growable array of primitive values: buffer of collected operations and terminals (elements are accepted as by stage)
+    static abstract class Buffer extends Stage {
+        int size;
+
+        abstract void sort();
+
+        //drops the oldest elements, except the last count ones
+        abstract void keepLast(int count);
+
+        //source over buffered elements (forward or backward)
+        abstract Source source(boolean reversed);
+
+        @Override
+        boolean isCancelled() {
+            return false;
+        }
+    }
+
+    abstract Buffer newBuffer();
+
+    /*
+            Intermediate methods (conveyor/pipeline)
+    */
+
+    final S add(Stage operation) {
+        throwIfNotWaiting();
+
+        intermediateOperations.add(operation);
+
+        return self();
+    }
+
+    //limit()
+    private static class LimitOperation extends Stage {
+        private final long maxSize; //maximum elements count that stream can return
+        private long passed; //passed elements count
+
+        LimitOperation(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        void accept(int element) {
+            passed++;
+            downstream.accept(element);
+        }
+
+        @Override
+        void accept(long element) {
+            passed++;
+            downstream.accept(element);
+        }
+
+        @Override
+        void accept(double element) {
+            passed++;
+            downstream.accept(element);
+        }
+
+        @Override
+        boolean isCancelled() {
+            return passed >= maxSize || downstream.isCancelled();
+        }
+    }
+
+    public S limit(long maxSize) {
+        return add(new LimitOperation(maxSize));
+    }
+
+    //skip()
+    private static class SkipOperation extends Stage {
+        private final long totalCount; //Total elements count, that streams must skip
+        private long processedCount; //elements count that streams was skipped
+
+        SkipOperation(long totalCount) {
+            this.totalCount = totalCount;
+        }
+
+        private boolean skipped() {
+            if (processedCount < totalCount) {
+                processedCount++;
+
+                return true;
+            }
+
+            return false;
+        }
+
+        @Override
+        void accept(int element) {
+            if (!skipped())
+                downstream.accept(element);
+        }
+
+        @Override
+        void accept(long element) {
+            if (!skipped())
+                downstream.accept(element);
+        }
+
+        @Override
+        void accept(double element) {
+            if (!skipped())
+                downstream.accept(element);
+        }
+    }
+
+    public S skip(long n) {
+        return add(new SkipOperation(n));
+    }
+
+    //distinct(): int values are stored widened, double values - by bits (as by equals() of Double)
+    private static class DistinctOperation extends Stage {
+        private final LongHashSet elements = new LongHashSet();
+
+        @Override
+        void accept(int element) {
+            if (elements.add(element))
+                downstream.accept(element);
+        }
+
+        @Override
+        void accept(long element) {
+            if (elements.add(element))
+                downstream.accept(element);
+        }
+
+        @Override
+        void accept(double element) {
+            if (elements.add(Double.doubleToLongBits(element)))
+                downstream.accept(element);
+        }
+    }
+
+    public S distinct() {
+        return add(new DistinctOperation());
+    }
+
+    //collected operation ends the segment of pipeline: collects all elements of segment, and gives them to the next segment
+    private static abstract class CollectedOperation extends Stage {
+        final Buffer data;
+
+        CollectedOperation(Buffer data) {
+            this.data = data;
+        }
+
+        @Override
+        void accept(int element) {
+            data.accept(element);
+        }
+
+        @Override
+        void accept(long element) {
+            data.accept(element);
+        }
+
+        @Override
+        void accept(double element) {
+            data.accept(element);
+        }
+
+        @Override
+        boolean isCancelled() {
+            return false;
+        }
+
+        abstract Source finish();
+    }
+
+    //sorted()
+    private static class SortedOperation extends CollectedOperation {
+        SortedOperation(Buffer data) {
+            super(data);
+        }
+
+        @Override
+        Source finish() {
+            data.sort();
+
+            return data.source(false);
+        }
+    }
+
+    public S sorted() {
+        return add(new SortedOperation(newBuffer()));
+    }
+
+    //reversed()
+    private static class ReversedOperation extends CollectedOperation {
+        ReversedOperation(Buffer data) {
+            super(data);
+        }
+
+        @Override
+        Source finish() {
+            return data.source(true);
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public S reversed() {
+        return add(new ReversedOperation(newBuffer()));
+    }
+
+    //last(): buffer is trimmed to count elements, when it holds twice more (negative count is treated as 0)
+    private static class LastOperation extends CollectedOperation {
+        private final int count; //Total elements count, that stream must take from end
+        private final int trimmingSize; //buffered elements count, when the oldest ones are dropped
+
+        LastOperation(int count, Buffer data) {
+            super(data);
+
+            this.count = Math.max(count, 0);
+            this.trimmingSize = (int) Math.min(Math.max(this.count, 8) * 2L, Integer.MAX_VALUE - 8);
+        }
+
+        @Override
+        void accept(int element) {
+            data.accept(element);
+            if (data.size == trimmingSize)
+                data.keepLast(count);
+        }
+
+        @Override
+        void accept(long element) {
+            data.accept(element);
+            if (data.size == trimmingSize)
+                data.keepLast(count);
+        }
+
+        @Override
+        void accept(double element) {
+            data.accept(element);
+            if (data.size == trimmingSize)
+                data.keepLast(count);
+        }
+
+        @Override
+        Source finish() {
+            data.keepLast(count);
+
+            return data.source(false);
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public S last(int count) {
+        return add(new LastOperation(count, newBuffer()));
+    }
+
+    /*
+        1:N operation (flatMap()): children of element are pushed to downstream directly, while downstream requires
+        them. In pull mode, expansion is paused, while output holds element, and it is resumed by the next pull
+    */
+    static abstract class ExpandingOperation extends Stage {
+        private Source children; //of current element
+
+        //pushes children of element (source closes stream of children, when it is released)
+        final void expand(Source children) {
+            release();
+
+            this.children = children;
+
+            expand();
+        }
+
+        //pushes remaining children of current element, while downstream takes them: true - expansion is paused
+        private boolean expand() {
+            if (children == null)
+                return false;
+
+            boolean paused = false;
+            try {
+                while (!downstream.isCancelled() && !(paused = downstream.isFull()) && children.advance(downstream))
+                    ;
+            } finally {
+                if (!paused)
+                    release();
+            }
+
+            return paused;
+        }
+
+        //drops remaining children of current element (ex: run is closed)
+        private void release() {
+            if (children != null) {
+                Source source = children;
+                children = null;
+
+                source.close();
+            }
+        }
+
+        @Override
+        boolean resume() {
+            return downstream.resume() || expand();
+        }
+
+        static boolean isInChain(Stage head) {
+            for (Stage stage = head; stage != null; stage = stage.downstream)
+                if (stage instanceof ExpandingOperation)
+                    return true;
+
+            return false;
+        }
+
+        static void releaseChain(Stage head) {
+            for (Stage stage = head; stage != null; stage = stage.downstream)
+                if (stage instanceof ExpandingOperation)
+                    ((ExpandingOperation) stage).release();
+        }
+    }
+
+    //onClose()
+    public S onClose(Runnable closeHandler) {
+        throwIfNotWaiting();
+
+        onCloseSequences.add(closeHandler);
+
+        return self();
+    }
+
+    /*
+            Terminal methods
+    */
+
+    //counts elements (without giving them anywhere)
+    private static class Counter extends Stage {
+        private long count;
+
+        @Override
+        void accept(int element) {
+            count++;
+        }
+
+        @Override
+        void accept(long element) {
+            count++;
+        }
+
+        @Override
+        void accept(double element) {
+            count++;
+        }
+    }
+
+    public long count() {
+        Counter counter = new Counter();
+        push(counter);
+
+        return counter.count;
+    }
+
+    /*
+            Other methods
+    */
+
+    public boolean isParallel() {
+        return false;
+    }
+
+    public S sequential() {
+        return self();
+    }
+
+    public S unordered() {
+        return self();
+    }
+
+    //primitive streamers are always sequential, so parallel() returns this streamer (see comment of class)
+    public S parallel() {
+        return self();
+    }
+}
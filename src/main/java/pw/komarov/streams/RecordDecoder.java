@@ -0,0 +1,14 @@
+package pw.komarov.streams;
+
+import java.nio.ByteBuffer;
+
+//decodes fixed size records of binary file (see Streamer.records())
+@FunctionalInterface
+public interface RecordDecoder<T> {
+    /*
+        record - buffer (big-endian by default), its position is at the start of record, and remaining bytes are
+        bytes of record. reused - element of previous record in flyweight mode, which can be filled and returned
+        (null - for the first record, and when flyweight mode is off)
+    */
+    T decode(ByteBuffer record, T reused);
+}
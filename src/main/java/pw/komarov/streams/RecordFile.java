@@ -0,0 +1,106 @@
+package pw.komarov.streams;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/*
+    Fixed size records of file (source of Streamer.records()), as random access list: skip(), limit(), last()
+    and reversed() are folded to indexes of records, so reading starts at offset of the first required record.
+    Records are read by blocks to direct buffer (in direction of iteration), and decoded from it.
+    Incomplete trailing record is ignored
+*/
+
+final class RecordFile<E> extends AbstractList<E> implements RandomAccess, Streamer.ReusingSource, AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final int recordSize;
+    private final RecordDecoder<E> decoder;
+    private final int size;
+
+    private final ByteBuffer buffer;
+    private final int recordsPerBuffer;
+    private int bufferedFrom; //index of the first record in buffer
+    private int bufferedCount;
+
+    private boolean flyweight;
+    private E reused; //element of previous record (flyweight mode)
+
+    RecordFile(FileChannel channel, int recordSize, RecordDecoder<E> decoder, boolean flyweight) throws IOException {
+        long records = channel.size() / recordSize;
+        if (records > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("too many records: " + records);
+
+        this.channel = channel;
+        this.recordSize = recordSize;
+        this.decoder = decoder;
+        this.size = (int) records;
+        this.flyweight = flyweight;
+
+        this.recordsPerBuffer = (int) Math.max(1, Math.min(BUFFER_SIZE / recordSize, records));
+        this.buffer = ByteBuffer.allocateDirect(recordsPerBuffer * recordSize);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public E get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+
+        if (index < bufferedFrom || index >= bufferedFrom + bufferedCount)
+            load(index);
+
+        int position = (index - bufferedFrom) * recordSize;
+        buffer.limit(position + recordSize).position(position);
+
+        E element = decoder.decode(buffer, reused);
+        if (flyweight)
+            reused = element;
+
+        return element;
+    }
+
+    //reads block of records with record of index (backward, when records are iterated backward)
+    private void load(int index) {
+        boolean backward = bufferedCount > 0 && index == bufferedFrom - 1;
+
+        bufferedFrom = backward ? Math.max(index - recordsPerBuffer + 1, 0) : index;
+        bufferedCount = Math.min(recordsPerBuffer, size - bufferedFrom);
+
+        buffer.clear().limit(bufferedCount * recordSize);
+        long offset = (long) bufferedFrom * recordSize;
+        try {
+            while (buffer.hasRemaining())
+                if (channel.read(buffer, offset + buffer.position()) < 0)
+                    throw new EOFException("file is truncated");
+        } catch (IOException e) {
+            bufferedCount = 0;
+
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void stopReusing() {
+        flyweight = false;
+        reused = null;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package pw.komarov.streams;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+//elements, which are held in memory by runs of memory budget, full runs are spilled to temporary files (sorted, if comparator is given)
+final class SpilledRuns<E> implements Closeable {
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+    private final Spilling<E> spilling;
+    private final Comparator<? super E> comparator; //null - runs are kept in arrival order
+
+    private Object[] buffer = new Object[16]; //current run (grows up to memory budget)
+    private int size;
+
+    private final List<Path> files = new ArrayList<>(); //spilled runs
+    private final List<Integer> sizes = new ArrayList<>(); //elements count of spilled runs
+    private final List<Closeable> inputs = new ArrayList<>(); //opened readers of runs
+
+    SpilledRuns(Spilling<E> spilling, Comparator<? super E> comparator) {
+        this.spilling = spilling;
+        this.comparator = comparator;
+    }
+
+    int memoryBudget() {
+        return spilling.memoryBudget();
+    }
+
+    //elements count, which are held in memory (at most)
+    int bufferedSize() {
+        return files.isEmpty() ? size : spilling.memoryBudget();
+    }
+
+    void add(E element) {
+        if (size == buffer.length) {
+            if (size == spilling.memoryBudget())
+                spill();
+            else
+                buffer = Arrays.copyOf(buffer, (int) Math.min((long) size << 1, spilling.memoryBudget()));
+        }
+
+        buffer[size++] = element;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void sortBuffer() {
+        if (comparator != null)
+            Arrays.sort((E[]) buffer, 0, size, comparator); //stable
+    }
+
+    @SuppressWarnings("unchecked")
+    private void spill() {
+        sortBuffer();
+
+        StreamerEvents events = StreamerEvents.INSTANCE;
+        Object event = events.isSpillEnabled() ? events.beginSpill() : null;
+
+        try {
+            Path directory = spilling.directory();
+            Path file = directory != null ? Files.createTempFile(directory, "streamer-", ".run") : Files.createTempFile("streamer-", ".run");
+            files.add(file);
+            sizes.add(size);
+
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), FILE_BUFFER_SIZE))) {
+                ElementCodec<E> codec = spilling.codec();
+                for (int i = 0; i < size; i++)
+                    codec.write((E) buffer[i], output);
+            }
+
+            if (event != null)
+                events.endSpill(event, file.toString(), size, Files.size(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Arrays.fill(buffer, 0, size, null);
+        size = 0;
+    }
+
+    //reader of spilled run (file is removed, when run is read out)
+    private class RunReader implements Closeable {
+        private final Path file;
+        private final DataInputStream input;
+        private int remaining;
+
+        RunReader(int run) {
+            this.file = files.get(run);
+            this.remaining = sizes.get(run);
+
+            try {
+                this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), FILE_BUFFER_SIZE));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            inputs.add(this);
+        }
+
+        boolean hasNext() {
+            return remaining > 0;
+        }
+
+        E next() {
+            try {
+                E element = spilling.codec().read(input);
+                if (--remaining == 0)
+                    close();
+
+                return element;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    //elements in order of comparator: runs are merged (k-way, equal elements in arrival order)
+    @SuppressWarnings("unchecked")
+    Iterator<E> sorted() {
+        sortBuffer();
+
+        if (files.isEmpty())
+            return Arrays.asList((E[]) buffer).subList(0, size).iterator();
+
+        class Cursor {
+            private final int run; //for equal elements: earlier run contains earlier elements
+            private final RunReader reader; //null - for current run (in memory)
+            private int index;
+            private E current;
+
+            Cursor(int run, RunReader reader) {
+                this.run = run;
+                this.reader = reader;
+            }
+
+            boolean advance() {
+                if (reader != null) {
+                    if (!reader.hasNext())
+                        return false;
+
+                    current = reader.next();
+                } else {
+                    if (index == size)
+                        return false;
+
+                    current = (E) buffer[index];
+                    buffer[index++] = null;
+                }
+
+                return true;
+            }
+        }
+
+        PriorityQueue<Cursor> heap = new PriorityQueue<>(files.size() + 1, (first, second) -> {
+            int result = comparator.compare(first.current, second.current);
+            return result != 0 ? result : Integer.compare(first.run, second.run);
+        });
+
+        for (int run = 0; run <= files.size(); run++) {
+            Cursor cursor = new Cursor(run, run < files.size() ? new RunReader(run) : null);
+            if (cursor.advance())
+                heap.add(cursor);
+        }
+
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return !heap.isEmpty();
+            }
+
+            @Override
+            public E next() {
+                if (heap.isEmpty())
+                    throw new NoSuchElementException();
+
+                Cursor cursor = heap.poll();
+                E element = cursor.current;
+                if (cursor.advance())
+                    heap.add(cursor);
+
+                return element;
+            }
+        };
+    }
+
+    //elements in reversed arrival order: current run, then spilled runs from last (each is read to memory)
+    Iterator<E> reversed() {
+        return new Iterator<E>() {
+            private int run = files.size(); //run of buffer
+            private int index = size; //next element is at index - 1
+
+            @Override
+            public boolean hasNext() {
+                while (index == 0 && run > 0)
+                    load(--run);
+
+                return index > 0;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public E next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                E element = (E) buffer[--index];
+                buffer[index] = null;
+
+                return element;
+            }
+
+            private void load(int run) {
+                RunReader reader = new RunReader(run);
+
+                size = 0;
+                while (reader.hasNext())
+                    buffer[size++] = reader.next();
+
+                index = size;
+            }
+        };
+    }
+
+    //removes all temporary files
+    @Override
+    public void close() {
+        UncheckedIOException exception = null;
+        for (Closeable input : inputs)
+            try {
+                input.close();
+            } catch (IOException e) {
+                if (exception == null)
+                    exception = new UncheckedIOException(e);
+                else
+                    exception.addSuppressed(e);
+            }
+        inputs.clear();
+
+        for (Path file : files)
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                if (exception == null)
+                    exception = new UncheckedIOException(e);
+                else
+                    exception.addSuppressed(e);
+            }
+        files.clear();
+
+        buffer = null;
+
+        if (exception != null)
+            throw exception;
+    }
+}
@@ -0,0 +1,60 @@
+package pw.komarov.streams;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/*
+    Opt-in spilling of collected operations (sorted(), reversed()) to temporary files, for data larger than heap:
+
+        Streamer.from(records)
+                .sorted(comparator, Spilling.of(codec).memoryBudget(500_000).directory(Paths.get("/data/tmp")))
+                .forEach(writer::write);
+
+    Elements are kept in memory by runs of memoryBudget elements, each full run is sorted and written by codec
+    to temporary file, and runs are merged back lazily on iteration.
+    Files are removed, when they are read out, and on close() of stream
+*/
+
+public final class Spilling<T> {
+    private static final int DEFAULT_MEMORY_BUDGET = 1 << 20; //elements
+
+    private final ElementCodec<T> codec;
+    private int memoryBudget = DEFAULT_MEMORY_BUDGET;
+    private Path directory; //null - default temporary directory
+
+    private Spilling(ElementCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    public static <T> Spilling<T> of(ElementCodec<T> codec) {
+        return new Spilling<>(Objects.requireNonNull(codec));
+    }
+
+    //maximum elements count, which are held in memory (by one operation)
+    public Spilling<T> memoryBudget(int elements) {
+        if (elements <= 0)
+            throw new IllegalArgumentException("memory budget must be positive: " + elements);
+
+        this.memoryBudget = elements;
+
+        return this;
+    }
+
+    public Spilling<T> directory(Path directory) {
+        this.directory = Objects.requireNonNull(directory);
+
+        return this;
+    }
+
+    ElementCodec<T> codec() {
+        return codec;
+    }
+
+    int memoryBudget() {
+        return memoryBudget;
+    }
+
+    Path directory() {
+        return directory;
+    }
+}
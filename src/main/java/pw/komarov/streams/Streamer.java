@@ -1,8 +1,22 @@
 package pw.komarov.streams;
 
-import pw.komarov.utils.NullableValue;
-
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.*;
 import java.util.stream.*;
 
@@ -12,14 +26,51 @@ public final class Streamer<T> implements Stream<T>, Iterable<T> {
     */
 
     private InternalStreamerIterator streamerIterator;
-    private Iterable<T> sourceIterable;
+    private Iterable<?> sourceIterable;
+    private Iterator<?> sourceIterator;
 
     private Streamer(Iterable<T> iterable) {
-        this.sourceIterable = iterable;
+        this(iterable, null, new LinkedList<>(), new LinkedList<>());
     }
 
     private Streamer(Iterator<T> sourceIterator) {
-        this.streamerIterator = new InternalStreamerIterator(sourceIterator);
+        this(null, sourceIterator, new LinkedList<>(), new LinkedList<>());
+    }
+
+    private Streamer(Iterable<?> sourceIterable, Iterator<?> sourceIterator,
+                     List<IntermediateOperation<?>> intermediateOperations, List<Runnable> onCloseSequences) {
+        this.sourceIterable = sourceIterable;
+        this.sourceIterator = sourceIterator;
+        this.intermediateOperations = intermediateOperations;
+        this.onCloseSequences = onCloseSequences;
+    }
+
+    //continues the pipeline with other elements type (ex: map()), this streamer becomes operated
+    private <R> Streamer<R> continued() {
+        Streamer<R> streamer = new Streamer<>(sourceIterable, sourceIterator, intermediateOperations, onCloseSequences);
+        configure(streamer);
+
+        state = State.OPERATED;
+
+        return streamer;
+    }
+
+    //continues the pipeline by new one over elements of this pipeline (ex: mapAsync()), with the same onClose sequences
+    private <R> Streamer<R> continuedBy(Iterator<R> iterator) {
+        Streamer<R> streamer = new Streamer<>(null, iterator, new LinkedList<>(), onCloseSequences);
+        configure(streamer);
+
+        state = State.CONTINUED;
+
+        return streamer;
+    }
+
+    private void configure(Streamer<?> streamer) {
+        streamer.parallelPool = parallelPool;
+        streamer.parallelSortingThreshold = parallelSortingThreshold;
+        streamer.sortingPool = sortingPool;
+        streamer.metricsName = metricsName;
+        streamer.metricsListener = metricsListener;
     }
 
     @SuppressWarnings("WeakerAccess")
@@ -53,24 +104,120 @@ public final class Streamer<T> implements Stream<T>, Iterable<T> {
         return new Streamer<>(iterator);
     }
 
+    @SuppressWarnings("WeakerAccess")
+    public static <E> Streamer<E> from(Spliterator<E> spliterator) {
+        return new Streamer<>(new SpliteratorSource<>(spliterator));
+    }
+
     @SuppressWarnings("unused")
     public static <E> Streamer<E> from(Stream<E> stream) {
-        return new Streamer<>(stream.iterator());
+        return from(stream.spliterator()).onClose(stream::close);
     }
 
     @SuppressWarnings("WeakerAccess")
     public static Streamer<Integer> from(IntStream intStream) {
-        return new Streamer<>(intStream.boxed().iterator());
+        return from(intStream.boxed());
     }
 
     @SuppressWarnings("unused")
     public static Streamer<Long> from(LongStream longStream) {
-        return new Streamer<>(longStream.boxed().iterator());
+        return from(longStream.boxed());
     }
 
     @SuppressWarnings("unused")
     public static Streamer<Double> from(DoubleStream doubleStream) {
-        return new Streamer<>(doubleStream.boxed().iterator());
+        return from(doubleStream.boxed());
+    }
+
+    //source, which is pulled by tryAdvance() of spliterator (without iterator adapter), and reports its characteristics
+    private static class SpliteratorSource<E> implements Iterable<E> {
+        private final Spliterator<E> spliterator;
+
+        SpliteratorSource(Spliterator<E> spliterator) {
+            this.spliterator = Objects.requireNonNull(spliterator);
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return Spliterators.iterator(spliterator);
+        }
+
+        @Override
+        public Spliterator<E> spliterator() {
+            return spliterator;
+        }
+    }
+
+    //source, which gives the same (mutable) object as each element (ex: batch() with reusing buffer)
+    interface ReusingSource {
+        void stopReusing(); //elements are kept (ex: by sorted() or distinct()), so each of them must be a new object
+    }
+
+    /*
+        Lines of file, which are split in memory mapped file (without reading to heap buffers). Each line is given
+        as the same reusable view, which is valid until the next line is pulled: use toString() to keep the line
+        in forEach() or iterator(). Lines kept by operations (sorted(), reversed(), last(), distinct(),
+        batch(), mapAsync()) and by terminals (min(), max(), reduce(), collect(), aggregate(), toArray(), groupBy())
+        are strings. File is closed on completion of run and by close(). Charset must encode ASCII chars as single
+        bytes (ex: UTF-8, ISO-8859-1, windows-1251)
+    */
+    @SuppressWarnings("WeakerAccess")
+    public static Streamer<CharSequence> lines(Path path) throws IOException {
+        return lines(path, StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public static Streamer<CharSequence> lines(Path path, Charset charset) throws IOException {
+        return lines(path, charset, MappedLines.WINDOW_SIZE);
+    }
+
+    static Streamer<CharSequence> lines(Path path, Charset charset, int windowSize) throws IOException {
+        Objects.requireNonNull(path);
+        if (!MappedLines.isAsciiCompatible(charset))
+            throw new IllegalArgumentException("charset is not supported: " + charset);
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        MappedLines lines;
+        try {
+            lines = new MappedLines(channel, charset, windowSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        return from(lines).onClose(lines::close);
+    }
+
+    /*
+        Fixed size records of binary file, decoded by decoder. Records are read by large blocks, skip(), limit(),
+        last() and reversed() seek to offsets of required records, and count() does not read the file.
+        Flyweight mode: decoder can fill and return element of previous record (allocation free scanning),
+        element is valid until the next one is pulled (records kept by operations, ex: sorted() or batch(),
+        by terminals, ex: max() or toArray(), and records of parallel run are not reused, as lines of lines()).
+        File is closed on completion of run and by close()
+    */
+    @SuppressWarnings("WeakerAccess")
+    public static <E> Streamer<E> records(Path path, int recordSize, RecordDecoder<E> decoder) throws IOException {
+        return records(path, recordSize, decoder, false);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public static <E> Streamer<E> records(Path path, int recordSize, RecordDecoder<E> decoder, boolean flyweight) throws IOException {
+        Objects.requireNonNull(path);
+        Objects.requireNonNull(decoder);
+        if (recordSize <= 0)
+            throw new IllegalArgumentException("record size must be positive: " + recordSize);
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        RecordFile<E> records;
+        try {
+            records = new RecordFile<>(channel, recordSize, decoder, flyweight);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        return from(records).onClose(records::close);
     }
 
     @SuppressWarnings({"unused", "WeakerAccess"})
@@ -98,11 +245,6 @@ public final class Streamer<T> implements Stream<T>, Iterable<T> {
         public boolean hasNext() {
             return true;
         }
-
-        @Override
-        public void forEachRemaining(Consumer<? super E> consumer) {
-            throw new UnsupportedOperationException();
-        }
     }
 
     private static class InfiniteGenerator<E> extends AbstractInfiniteIterator<E> {
@@ -149,7 +291,7 @@ public final class Streamer<T> implements Stream<T>, Iterable<T> {
             Closure
     */
 
-    private enum State {WAITING, OPERATED, CLOSED}
+    private enum State {WAITING, CONTINUED, OPERATED, CLOSED} //CONTINUED - run is started by continuing pipeline only
 
     private State state = State.WAITING;
 
@@ -157,6 +299,8 @@ public final class Streamer<T> implements Stream<T>, Iterable<T> {
     public void close() {
         if (state == State.WAITING)
             internalClose();
+        else //not completed run (ex: by iterator())
+            completeRun();
 
         //completing onClose sequences
         RuntimeException rte = null;
@@ -179,9 +323,44 @@ public final class Streamer<T> implements Stream<T>, Iterable<T> {
     }
 
     private void internalClose() {
-        streamerIterator.setSourceIterator(null);
+        if (streamerIterator != null)
+            streamerIterator.close();
 
         state = State.CLOSED;
+
+        completeRun();
+    }
+
+    //reports metrics and events of run (once)
+    private void completeRun() {
+        if (streamerIterator != null && streamerIterator.meters != null)
+            reportMetrics();
+
+        if (pipelineEvent != null) {
+            EVENTS.endPipeline(pipelineEvent);
+            pipelineEvent = null;
+        }
+    }
+
+    private String sourceName() {
+        Object source = sourceIterable instanceof SpliteratorSource ? ((SpliteratorSource<?>) sourceIterable).spliterator
+                : sourceIterable != null ? sourceIterable : sourceIterator;
+
+        return source.getClass().getName();
+    }
+
+    private String operationNames() {
+        StringJoiner names = new StringJoiner(", ");
+        for (IntermediateOperation<?> operation : intermediateOperations)
+            names.add(operationName(operation));
+
+        return names.toString();
+    }
+
+    private static String operationName(IntermediateOperation<?> operation) { //ex: FilterOperation -> "filter"
+        String name = operation.getClass().getSimpleName().replace("Operation", "");
+
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
     }
 
     private void throwIfNotWaiting() {
@@ -189,891 +368,2943 @@ public final class Streamer<T> implements Stream<T>, Iterable<T> {
             throw new IllegalStateException("stream has already been operated upon or closed");
     }
 
-    private void prepareRun() {
+    private static final StreamerEvents EVENTS = StreamerEvents.INSTANCE;
+
+    private Object pipelineEvent; //not null, when run is recorded by profiler
+
+    //terminal - name of terminal operation
+    private void prepareRun(String terminal) {
+        prepareRun(terminal, false);
+    }
+
+    //keeping - terminal (or consumer of iterator) keeps elements (ex: min(), toArray(), batch())
+    private void prepareRun(String terminal, boolean keeping) {
+        //parallel run is possible for sized sources only (others are running sequentially)
+        boolean parallel = parallelPool != null && sourceIterable instanceof Collection;
+
+        beginRun(terminal, keeping || parallel); //parallel run copies elements of source to array
+
+        if (parallel)
+            streamerIterator = new InternalStreamerIterator((Collection<?>) sourceIterable, parallelPool);
+        else if (sourceIterable instanceof List && sourceIterable instanceof RandomAccess)
+            streamerIterator = new InternalStreamerIterator(foldToWindow((List<?>) sourceIterable));
+        else if (sourceIterable instanceof SpliteratorSource)
+            streamerIterator = new InternalStreamerIterator(((SpliteratorSource<?>) sourceIterable).spliterator);
+        else //preparing delayed run from Iterable<> source
+            streamerIterator = new InternalStreamerIterator(sourceIterable != null ? sourceIterable.iterator() : sourceIterator);
+
+        if (sourceIterable instanceof AutoCloseable) //ex: file of records()
+            streamerIterator.closeableSource = (AutoCloseable) sourceIterable;
+
+        sourceIterable = null;
+        sourceIterator = null;
+    }
+
+    //starts run of pipeline (before compiling of its stages)
+    private void beginRun(String terminal, boolean keeping) {
         throwIfNotWaiting();
 
         state = State.OPERATED;
 
-        //preparing delayed run from Iterable<> source
-        if (streamerIterator == null && sourceIterable != null) {
-            streamerIterator = new InternalStreamerIterator(sourceIterable.iterator());
-            sourceIterable = null;
+        if (EVENTS.isPipelineEnabled())
+            pipelineEvent = EVENTS.beginPipeline(sourceName(), operationNames(), terminal);
+
+        //elements, kept by operations or terminal, must be distinct objects (not reused by source)
+        for (IntermediateOperation<?> operation : intermediateOperations) {
+            if (operation instanceof SortedOperation)
+                ((SortedOperation<?>) operation).parallelSorting(parallelSortingThreshold, sortingPool);
+
+            keeping |= operation instanceof CollectedOperation || operation instanceof DistinctOperation;
+        }
+
+        if (keeping) {
+            if (sourceIterator instanceof ReusingSource)
+                ((ReusingSource) sourceIterator).stopReusing();
+            if (sourceIterable instanceof ReusingSource)
+                ((ReusingSource) sourceIterable).stopReusing();
         }
     }
 
-    /*
-            Internal streams iterator
-    */
+    //leading skip(), limit(), last() and reversed() (also behind map()) are computed by indexes of random access list
+    private ListWindow foldToWindow(List<?> list) {
+        ListWindow window = new ListWindow(list);
 
-    private class InternalStreamerIterator implements Iterator<T> {
-        private Iterator<T> sourceIterator; //source of data
+        for (Iterator<IntermediateOperation<?>> itr = intermediateOperations.iterator(); itr.hasNext(); ) {
+            IntermediateOperation<?> operation = itr.next();
+            if (operation instanceof MapOperation) //size preserving, folded operation will be applied before it
+                continue;
 
-        InternalStreamerIterator(Iterator<T> sourceIterator) {
-            this.sourceIterator = sourceIterator;
+            if (!operation.foldTo(window))
+                break;
+
+            itr.remove();
         }
 
-        private boolean noNext;
+        return window;
+    }
 
-        private Boolean hasNext;
-        private T next;
+    //iteration by indexes over part of random access list (forward or backward), without traversal and copying
+    private static class ListWindow implements Iterator<Object> {
+        private final List<?> list;
+        private int from;
+        private int to;
+        private boolean reversed;
 
-        @Override
-        public boolean hasNext() {
-            if (hasNext == null) {
-                if (collectedOperationsCount > 0) {
-                    calculateCollectedOperations();
-                    collectedOperationsCount = collectedOperationsCount *(-1);
-                }
+        private int position; //count of returned (or skipped) elements
 
-                calcNextAndHasNext();
+        ListWindow(List<?> list) {
+            this.list = list;
+            this.to = list.size();
+        }
 
-                if (!hasNext && state != State.CLOSED)
-                    internalClose();
-            }
+        private int clamp(long count) { //negative count is 0 (as for skip(), limit() and last() of iterator source)
+            return (int) Math.max(Math.min(count, to - from), 0);
+        }
+
+        void skip(long count) {
+            int n = clamp(count);
+            if (reversed)
+                to -= n;
+            else
+                from += n;
+        }
+
+        void limit(long count) {
+            int n = clamp(count);
+            if (reversed)
+                from = to - n;
+            else
+                to = from + n;
+        }
+
+        void last(long count) {
+            reversed = !reversed;
+            limit(count);
+            reversed = !reversed;
+        }
+
+        void reverse() {
+            reversed = !reversed;
+        }
+
+        int remaining() {
+            return to - from - position;
+        }
 
-            return hasNext;
+        void skipRemaining(int count) {
+            position += Math.min(count, remaining());
         }
 
         @Override
-        public T next() {
+        public boolean hasNext() {
+            return position < to - from;
+        }
+
+        @Override
+        public Object next() {
             if (!hasNext())
                 throw new NoSuchElementException();
 
-            hasNext = null;
+            return list.get(reversed ? to - 1 - position++ : from + position++);
+        }
 
-            return next;
+        @Override
+        public void forEachRemaining(Consumer<? super Object> action) {
+            for (int size = to - from; position < size; ) {
+                int index = position++;
+                action.accept(list.get(reversed ? to - 1 - index : from + index));
+            }
         }
 
+        //copies remaining elements to array (its length must be enough)
         @SuppressWarnings("unchecked")
-        private void calculateCollectedOperations() {
-            for (int i = 1; i <= collectedOperationsCount; i++) {
-                //building local operations list (from general operations list, by extracting sublist)
-                final List<IntermediateOperation> localOperations = new LinkedList<>();
-                CollectedOperation collectedOperation = null;
-                for (Iterator<IntermediateOperation> itr = intermediateOperations.iterator(); itr.hasNext(); ) {
-                    IntermediateOperation operation = itr.next();
-                    try {
-                        if (operation instanceof CollectedOperation) {
-                            collectedOperation = (CollectedOperation) operation;
-                            break;
-                        } else
-                            localOperations.add(operation);
-                    } finally {
-                        itr.remove();
-                    }
-                }
+        <A> A[] toArray(A[] array) {
+            if (!reversed && position == 0 && from == 0 && to == list.size())
+                return list.toArray(array); //copying of whole list (ex: by System.arraycopy)
 
-                //data collecting
-                List<T> data = new ArrayList<>();
-                NullableValue<T> nextValue;
-                do {
-                    nextValue = getNext(localOperations);
-                    if (nextValue != null)
-                        data.add(nextValue.get());
-
-                } while (nextValue != null);
-
-                //sorting...
-                if (collectedOperation != null)
-                    if (collectedOperation instanceof ReversedOperation)
-                        Collections.reverse(data);
-                    else if (collectedOperation instanceof SortedOperation)
-                        data.sort(((SortedOperation<T>)collectedOperation).comparator);
-                    else if (collectedOperation.getClass() == LastOperation.class) { //todo: getClass -> instanceof
-                        int fromIndex = data.size() - ((LastOperation) collectedOperation).count;
-                        if (fromIndex >= 0)
-                            data = data.subList(fromIndex, data.size());
-                    } else
-                        throw new UnsupportedOperationException("calculateCollectedOperations() - unknown CollectedOperation class: " + collectedOperation.getClass());
+            for (int i = 0, size = remaining(); i < size; i++)
+                array[i] = (A) next();
 
-                //now, we can replace the iterator
-                setSourceIterator(data.iterator());
-            }
+            return array;
         }
+    }
+
+    /*
+            Internal streams iterator
+    */
 
-        private void calcNextAndHasNext() { //calculating next and getNext
-            NullableValue<T> nextValue = getNext(intermediateOperations);
+    private class InternalStreamerIterator implements Iterator<T> {
+        private Iterator<?> sourceIterator; //source of data (of current segment)
+        private AutoCloseable closeableSource; //source iterator, which holds resources (ex: tasks of mapAsync()), closed with run
 
-            hasNext = nextValue != null;
-            if (hasNext)
-                next = nextValue.get();
-        }
+        //pipeline, compiled to segments: each segment (except last) ends with collected operation
+        private final Stage<?>[] heads;
+        private final CollectedOperation<?>[] collectedOperations;
+        private final OutputStage output = new OutputStage();
+        private final boolean expanding; //last segment has 1:N operations (which can be paused in pull mode)
 
-        @SuppressWarnings({"unchecked"})
-        private NullableValue<T> getNext(List<IntermediateOperation> operations) {
-            T next = null;
+        private boolean collected;
 
-            boolean hasNext = !noNext && sourceIterator.hasNext();
-            while (hasNext) {
-                next = sourceIterator.next();
+        private ListWindow window; //source, when it is random access list
 
-                boolean filtered = false;
-                for (IntermediateOperation operation : operations)
-                    if (operation instanceof FilteringOperation) {
-                        if (!filtered) {
-                            filtered = ((FilteringOperation) operation).test(next);
-                            if (filtered && operation instanceof LimitOperation) {
-                                filtered = false;
-                                noNext = true;
-                            }
-                        }
-                    } else if (operation instanceof MapOperation)
-                        next = (T) ((MapOperation)operation).function.apply(next);
-                    else
-                        throw new UnsupportedOperationException("getNext(): " + operation.getClass().getSimpleName());
+        //metered run: stage before each operation, and before output (null - not metered)
+        private MeteringStage[] meters;
+        private final long startNanos = System.nanoTime();
 
-                if (!filtered)
-                    break;
-                else
-                    hasNext = sourceIterator.hasNext();
-            }
+        private Spliterator<?> sourceSpliterator; //source of first segment, when it is spliterator (pulled by tryAdvance)
+        private Consumer<Object> spliteratorConsumer; //head of the last segment, as consumer of spliterator
 
-            if (hasNext) {
-                for (Consumer<? super T> peekSequence : peekSequences)
-                    peekSequence.accept(next);
+        //parallel run
+        private Collection<?> parallelSource;
+        private ForkJoinPool parallelPool;
+        private IntermediateOperation<?>[] parallelOperations;
 
-                return NullableValue.of(next);
-            }
+        InternalStreamerIterator(Collection<?> parallelSource, ForkJoinPool parallelPool) {
+            this.sourceIterator = Collections.emptyIterator(); //will be replaced by evaluated elements
+            this.parallelSource = parallelSource;
+            this.parallelPool = parallelPool;
+            this.parallelOperations = intermediateOperations.toArray(new IntermediateOperation<?>[0]);
 
-            return null;
+            intermediateOperations.clear();
+
+            this.heads = new Stage<?>[]{output};
+            this.collectedOperations = new CollectedOperation<?>[0];
+            this.expanding = false;
+            this.meters = metricsName != null ? new MeteringStage[]{new MeteringStage(null)} : null; //without stages
         }
 
-        void setSourceIterator(Iterator<T> sourceIterator) {
-            this.sourceIterator = sourceIterator;
+        InternalStreamerIterator(ListWindow window) {
+            this((Iterator<?>) window);
 
-            noNext = false;
+            this.window = window;
         }
-    }
 
-    /*
-            Intermediate methods (conveyor/pipeline)
-    */
+        InternalStreamerIterator(Spliterator<?> sourceSpliterator) {
+            this(Collections.emptyIterator());
 
-    private interface IntermediateOperation {}
+            this.sourceSpliterator = sourceSpliterator;
+        }
 
-    private final List<IntermediateOperation> intermediateOperations = new LinkedList<>();
+        InternalStreamerIterator(Iterator<?> sourceIterator) {
+            this.sourceIterator = sourceIterator;
+            if (sourceIterator instanceof AutoCloseable)
+                this.closeableSource = (AutoCloseable) sourceIterator;
+
+            //linking operations to the chain of stages (from the end)
+            List<Stage<?>> heads = new ArrayList<>();
+            List<CollectedOperation<?>> collectedOperations = new ArrayList<>();
+
+            List<MeteringStage> meters = metricsName != null ? new ArrayList<>() : null; //metering stage before each operation
+
+            Stage<Object> downstream = output;
+            if (meters != null)
+                downstream = meter(meters, null, downstream);
+
+            long required = Long.MAX_VALUE; //elements count, which can be required by downstream (unknown - all)
+            for (ListIterator<IntermediateOperation<?>> itr = intermediateOperations.listIterator(intermediateOperations.size()); itr.hasPrevious(); ) {
+                IntermediateOperation<?> operation = itr.previous();
+                required = operation.requiredFromUpstream(required);
+                if (operation instanceof CollectedOperation) {
+                    heads.add(0, downstream);
+                    collectedOperations.add(0, (CollectedOperation<?>) operation);
+                } else
+                    operation.downstream = downstream;
+
+                downstream = Stage.of(operation);
+                if (meters != null)
+                    downstream = meter(meters, operation, downstream);
+            }
+            heads.add(0, downstream);
 
-    private interface FilteringOperation<T> extends IntermediateOperation, Predicate<T> {}
+            intermediateOperations.clear();
 
-    //limit()
-    private static class LimitOperation<E> implements FilteringOperation<E> {
-        private long filteredByLimit; //filtered elements count by Limit operation
+            this.heads = heads.toArray(new Stage<?>[0]);
+            this.collectedOperations = collectedOperations.toArray(new CollectedOperation<?>[0]);
+            this.expanding = ExpandingOperation.isInChain(this.heads[this.collectedOperations.length]);
+            this.meters = meters != null ? meters.toArray(new MeteringStage[0]) : null;
+        }
 
-        private final long maxSize; //maximum elements count that stream can return
+        private MeteringStage meter(List<MeteringStage> meters, IntermediateOperation<?> operation, Stage<Object> downstream) {
+            MeteringStage meter = new MeteringStage(operation);
+            meter.downstream = downstream;
+            meters.add(0, meter);
 
-        LimitOperation(long maxSize) {
-            this.maxSize = maxSize;
+            return meter;
         }
 
         @Override
-        public boolean test(E t) {
-            return maxSize < ++filteredByLimit + 1;
-        }
-    }
+        public boolean hasNext() {
+            if (!output.filled) {
+                collectSegments();
 
-    @Override
-    public Streamer<T> limit(long maxSize) {
-        throwIfNotWaiting();
+                calcNext();
 
-        intermediateOperations.add(new LimitOperation(maxSize));
+                if (!output.filled && state != State.CLOSED)
+                    internalClose();
+            }
 
-        return this;
-    }
+            return output.filled;
+        }
 
-    //skip()
-    private static class SkipOperation implements FilteringOperation {
-        private final long totalCount; //Total elements count, that streams must skip
-        private long processedCount; //elements count that streams was skipped
+        @SuppressWarnings("unchecked")
+        @Override
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
 
-        SkipOperation(long totalCount) {
-            this.totalCount = totalCount;
+            return (T) output.take();
         }
 
+        /*
+            Push mode (terminal operations, except iterator()): elements of the last segment are given to action
+            directly from the loop over source (source's own loop, when pipeline can not be cancelled)
+        */
+        @SuppressWarnings("unchecked")
         @Override
-        public boolean test(Object o) {
-            return processedCount++ < totalCount;
+        public void forEachRemaining(Consumer<? super T> action) {
+            forEachRemaining(action, false);
         }
-    }
 
-    @Override
-    public Streamer<T> skip(long n) {
-        throwIfNotWaiting();
+        //shortCircuit - action can stop the run by cancel() (ex: anyMatch())
+        @SuppressWarnings("unchecked")
+        void forEachRemaining(Consumer<? super T> action, boolean shortCircuit) {
+            Objects.requireNonNull(action);
 
-        intermediateOperations.add(new SkipOperation(n));
+            while (output.filled && !output.cancelled) //pulled before
+                action.accept((T) output.take());
 
-        return this;
-    }
+            output.consumer = (Consumer<Object>) action;
+            output.shortCircuit = shortCircuit;
+            try {
+                collectSegments();
 
-    //distinct()
-    private static class DistinctOperation implements FilteringOperation {
-        private Set<Object> objects = new HashSet<>();
+                Stage<?> head = heads[collectedOperations.length];
+                if (expanding) //paused by previous pulls
+                    head.resume();
 
-        @Override
-        public boolean test(Object o) {
-            return !objects.add(o);
+                pushAll(head);
+            } finally {
+                output.consumer = null;
+                output.shortCircuit = false;
+            }
         }
-    }
 
-    @Override
-    public Streamer<T> distinct() {
-        throwIfNotWaiting();
+        //stops pushing of elements (push mode)
+        void cancel() {
+            output.cancelled = true;
+        }
+
+        private void collectSegments() {
+            if (!collected) {
+                if (parallelSource != null)
+                    evaluateParallel();
+                else
+                    calculateCollectedOperations();
 
-        intermediateOperations.add(new DistinctOperation());
+                collected = true;
+            }
+        }
 
-        return this;
-    }
+        private void calculateCollectedOperations() {
+            for (int i = 0; i < collectedOperations.length; i++) {
+                pushAll(heads[i]); //data collecting (whole segment, in one loop)
 
-    //filter()
-    private static class FilterOperation<T> implements FilteringOperation<T> {
-        private final Predicate<? super T> predicate;
+                if (collectedOperations[i] instanceof SortedOperation)
+                    ((SortedOperation) collectedOperations[i]).consumedWhole(isConsumedWhole(i + 1));
 
-        FilterOperation(Predicate<? super T> predicate) {
-            this.predicate = predicate;
+                //now, we can replace the iterator
+                sourceIterator = finish(collectedOperations[i]);
+            }
         }
 
-        @Override
-        public boolean test(T t) {
-            return !predicate.test(t);
+        //true, when all elements are pushed through segment (it is not cancellable, and it is not pulled by iterator)
+        private boolean isConsumedWhole(int segment) {
+            return !heads[segment].isCancellable() && (segment < collectedOperations.length || output.consumer != null);
         }
-    }
 
-    @Override
-    public Streamer<T> filter(Predicate<? super T> predicate) {
-        throwIfNotWaiting();
+        //pushes elements of source to head of segment (until it is cancelled)
+        private void pushAll(Stage<?> segmentHead) {
+            if (output.cancelled)
+                return;
 
-        intermediateOperations.add(new FilterOperation<>(predicate));
+            Stage<Object> head = Stage.of(segmentHead);
 
-        return this;
-    }
+            boolean cancellable = head.isCancellable();
 
-    private int collectedOperationsCount;
+            if (sourceSpliterator != null) {
+                Consumer<Object> consumer = head::accept;
+                if (cancellable)
+                    while (!head.isCancelled() && sourceSpliterator.tryAdvance(consumer))
+                        ;
+                else
+                    sourceSpliterator.forEachRemaining(consumer);
 
-    private interface CollectedOperation extends IntermediateOperation {}
+                sourceSpliterator = null;
+            } else if (cancellable)
+                while (!head.isCancelled() && sourceIterator.hasNext())
+                    head.accept(sourceIterator.next());
+            else
+                sourceIterator.forEachRemaining(head::accept);
+        }
 
-    //sorted()
+        private void evaluateParallel() {
+            Object[] elements = parallelPool.invoke(new ParallelEvaluation(parallelSource.toArray(), parallelOperations, parallelPool.getParallelism()));
 
-    private class SortedOperation<E> implements CollectedOperation {
-        private final Comparator<? super E> comparator;
+            sourceIterator = Arrays.asList(elements).iterator();
 
-        SortedOperation(Comparator<? super E> comparator) {
-            this.comparator = comparator;
-            collectedOperationsCount++;
+            parallelSource = null;
+            parallelOperations = null;
         }
-    }
-
-    @Override
-    public Streamer<T> sorted() {
-        throwIfNotWaiting();
 
-        intermediateOperations.add(new SortedOperation<>(null));
+        private void calcNext() { //pulling the source, until element reaches the output stage
+            Stage<Object> head = Stage.of(heads[collectedOperations.length]);
+            if (expanding && head.resume()) //next child of paused 1:N operation
+                return;
 
-        return this;
-    }
+            if (sourceSpliterator != null) {
+                if (spliteratorConsumer == null)
+                    spliteratorConsumer = head::accept;
 
-    @Override
-    public Streamer<T> sorted(Comparator<? super T> comparator) {
-        Objects.requireNonNull(comparator);
+                while (!output.filled && !head.isCancelled() && sourceSpliterator.tryAdvance(spliteratorConsumer))
+                    ;
+            } else
+                while (!output.filled && !head.isCancelled() && sourceIterator.hasNext())
+                    head.accept(sourceIterator.next());
+        }
 
-        throwIfNotWaiting();
+        //remaining elements count, when it is known without traversal (sized source and map() only), else -1
+        int knownSize() {
+            if (window == null || collectedOperations.length > 0 || sourceIterator != window || output.filled)
+                return -1;
 
-        intermediateOperations.add(new SortedOperation<>(comparator));
+            for (Stage<?> stage = heads[0]; stage != output; stage = stage.downstream)
+                if (!(stage instanceof MapOperation))
+                    return -1;
 
-        return this;
-    }
+            return window.remaining();
+        }
 
-    private class ReversedOperation<E> extends SortedOperation<E> {
-        ReversedOperation() {
-            super(null);
+        //skips elements of source, must be called only when knownSize() >= 0
+        void skipKnown(int count) {
+            window.skipRemaining(count);
         }
-    }
 
-    @SuppressWarnings("WeakerAccess")
-    public Streamer<T> reversed() {
-        throwIfNotWaiting();
+        //copies remaining elements to array (its length must be enough), must be called only when knownSize() >= 0
+        @SuppressWarnings("unchecked")
+        <A> A[] toKnownArray(A[] array) {
+            if (heads[0] == output)
+                return window.toArray(array);
 
-        intermediateOperations.add(new ReversedOperation());
+            for (int i = 0, size = window.remaining(); i < size; i++)
+                array[i] = (A) next();
 
-        return this;
-    }
+            return array;
+        }
 
-    //last()
-    private class LastOperation implements CollectedOperation {
-        private final int count; //Total elements count, that stream must take from end
+        void close() {
+            sourceIterator = Collections.emptyIterator();
+            sourceSpliterator = null;
 
-        LastOperation(int count) {
-            this.count = count;
-            collectedOperationsCount++;
+            if (expanding)
+                ExpandingOperation.releaseChain(heads[collectedOperations.length]);
+
+            if (closeableSource != null) {
+                AutoCloseable source = closeableSource;
+                closeableSource = null;
+
+                try {
+                    source.close();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
         }
-    }
 
-    @SuppressWarnings("WeakerAccess")
-    public Streamer<T> last(int count) {
-        throwIfNotWaiting();
+        private Iterator<?> finish(CollectedOperation<?> operation) {
+            MeteringStage meter = null;
+            if (meters != null)
+                for (MeteringStage stage : meters)
+                    if (stage.operation == operation)
+                        meter = stage;
 
-        intermediateOperations.add(new LastOperation(count));
+            Object event = EVENTS.isMaterializationEnabled() ? EVENTS.beginMaterialization() : null;
+            if (meter == null && event == null)
+                return operation.finish();
 
-        return this;
-    }
+            int bufferedSize = operation.bufferedSize();
 
-    //map()
-    private static class MapOperation<T, R> implements IntermediateOperation {
-        private final Function<? super T, ? extends R> function;
+            long start = System.nanoTime();
+            Iterator<?> iterator = operation.finish();
+            if (meter != null) {
+                meter.peakBufferSize = bufferedSize;
+                meter.finishNanos = System.nanoTime() - start;
+            }
 
-        MapOperation(Function<? super T, ? extends R> function) {
-            this.function = function;
+            if (event != null)
+                EVENTS.endMaterialization(event, operationName(operation), bufferedSize);
+
+            return iterator;
         }
-    }
 
-    @SuppressWarnings("unchecked")
-    @Override
-    public <R> Streamer<R> map(Function<? super T, ? extends R> mapper) {
-        throwIfNotWaiting();
+        PipelineMetrics metrics() {
+            List<PipelineMetrics.Stage> stages = new ArrayList<>();
+            for (int i = 0; i < meters.length - 1; i++) {
+                MeteringStage meter = meters[i];
+                MeteringStage next = meters[i + 1];
 
-        intermediateOperations.add(new MapOperation<>(mapper));
+                boolean collected = meter.operation instanceof CollectedOperation;
+                long nanos = meter.nanos - (collected ? 0 : next.nanos) + meter.finishNanos; //own time of operation
+
+                stages.add(new PipelineMetrics.Stage(operationName(meter.operation), meter.count, next.count,
+                        collected ? meter.peakBufferSize : -1, nanos));
+            }
 
-        return (Streamer<R>)Streamer.from(this.iterator());
+            return new PipelineMetrics(metricsName, System.nanoTime() - startNanos, stages);
+        }
     }
 
-    //flatMap()
-    @Override
-    public <R> Streamer<R> flatMap(Function<? super T, ? extends Stream<? extends R>> mapper) {
-        Objects.requireNonNull(mapper);
+    /*
+            Stages (compiled pipeline)
+    */
 
-        class IteratorOfR implements Iterator<R> {
-            private final Iterator<T> ofT = Streamer.this.iterator(); //parent iterator
+    //stage receives element from upstream and pushes it (or result of it) to downstream stage
+    private static abstract class Stage<E> {
+        Stage<Object> downstream;
 
-            private Iterator<? extends R> ofR; //SubElements
+        //stages are linked by elements as objects (types of elements are checked by methods of Streamer)
+        @SuppressWarnings("unchecked")
+        static Stage<Object> of(Stage<?> stage) {
+            return (Stage<Object>) stage;
+        }
 
-            @Override
-            public R next() {
-                if (!hasNext())
-                    throw new NoSuchElementException();
+        abstract void accept(E element);
 
-                return ofR.next();
-            }
+        //true, when no more elements required (ex: limit reached), source must not be pulled anymore
+        boolean isCancelled() {
+            return downstream.isCancelled();
+        }
 
-            @Override
-            public boolean hasNext() {
-                while ((ofR == null || !ofR.hasNext()) && ofT.hasNext()) //if ofR not set (ex: first req) or ofR empty and ofT it have...
-                    ofR = mapper.apply(ofT.next()).iterator(); //divide ofT...
+        //false, when stage (with its downstream) is never cancelled, so source can be pushed by its own loop
+        boolean isCancellable() {
+            return downstream.isCancellable();
+        }
 
-                return ofR != null && ofR.hasNext();
-            }
+        //true, when downstream can not take element now (pull mode: output holds element), 1:N operation must pause
+        boolean isFull() {
+            return downstream.isFull();
         }
 
-        return Streamer.from(new IteratorOfR());
+        //continues paused 1:N operations of stage and its downstream (downstream first): true, while one is paused
+        boolean resume() {
+            return downstream.resume();
+        }
     }
 
-    @Override
-    public IntStream mapToInt(ToIntFunction<? super T> mapper) {
-        Objects.requireNonNull(mapper);
+    /*
+        Last stage of pipeline: holds element for InternalStreamerIterator (filled flag, so nulls are elements too),
+        1:N operations (ex: flatMap()) are paused, while it is held. In push mode, elements are given to consumer
+        of terminal operation directly
+    */
+    private static class OutputStage extends Stage<Object> {
+        private Object element;
+        private boolean filled;
 
-        class OfInt implements PrimitiveIterator.OfInt {
-            private final Iterator<T> ofT = Streamer.this.iterator();
+        private Consumer<Object> consumer; //not null in push mode
+        private boolean shortCircuit; //terminal operation can cancel the run (ex: anyMatch())
+        private boolean cancelled;
 
-            @Override
-            public int nextInt() {
-                return mapper.applyAsInt(ofT.next());
-            }
+        @Override
+        void accept(Object element) {
+            if (consumer != null) {
+                if (!cancelled)
+                    consumer.accept(element);
 
-            @Override
-            public boolean hasNext() {
-                return ofT.hasNext();
+                return;
             }
+
+            this.element = element;
+            filled = true;
         }
 
-        return StreamSupport
-                .intStream(
-                        Spliterators.spliteratorUnknownSize(
-                                new OfInt(),
-                                0),
-                        false);
-    }
+        //gives held element
+        Object take() {
+            Object taken = element;
 
-    @Override
-    public LongStream mapToLong(ToLongFunction<? super T> mapper) {
-        Objects.requireNonNull(mapper);
+            element = null;
+            filled = false;
 
-        class OfLong implements PrimitiveIterator.OfLong {
-            private final Iterator<T> ofT = Streamer.this.iterator();
+            return taken;
+        }
 
-            @Override
-            public long nextLong() {
-                return mapper.applyAsLong(ofT.next());
-            }
+        @Override
+        boolean isCancelled() {
+            return cancelled;
+        }
 
-            @Override
-            public boolean hasNext() {
-                return ofT.hasNext();
-            }
+        @Override
+        boolean isCancellable() {
+            return shortCircuit;
         }
 
-        return StreamSupport
-                .longStream(
-                        Spliterators.spliteratorUnknownSize(
-                                new OfLong(),
-                                0),
-                        false);
-    }
+        @Override
+        boolean isFull() {
+            return filled && consumer == null;
+        }
 
-    @Override
-    public DoubleStream mapToDouble(ToDoubleFunction<? super T> mapper) {
-        Objects.requireNonNull(mapper);
+        @Override
+        boolean resume() {
+            return false;
+        }
+    }
 
-        class OfDouble implements PrimitiveIterator.OfDouble {
-            private final Iterator<T> ofT = Streamer.this.iterator();
+    //stage before operation of metered pipeline: counts incoming elements and time of operation (with its downstream)
+    private static class MeteringStage extends Stage<Object> {
+        private final IntermediateOperation<?> operation; //null - before output of pipeline
 
-            @Override
-            public double nextDouble() {
-                return mapper.applyAsDouble(ofT.next());
-            }
+        private long count;
+        private long nanos;
+        private long finishNanos; //collected operation: time of finishing (ex: sorting)
+        private int peakBufferSize;
 
-            @Override
-            public boolean hasNext() {
-                return ofT.hasNext();
-            }
+        MeteringStage(IntermediateOperation<?> operation) {
+            this.operation = operation;
         }
 
-        return StreamSupport
-                .doubleStream(
-                        Spliterators.spliteratorUnknownSize(
-                                new OfDouble(),
-                                0),
-                        false);
-    }
+        @SuppressWarnings("unchecked")
+        @Override
+        void accept(Object element) {
+            count++;
 
-    @Override
-    public IntStream flatMapToInt(Function<? super T, ? extends IntStream> mapper) {
-        Objects.requireNonNull(mapper);
+            long start = System.nanoTime();
+            downstream.accept(element);
+            nanos += System.nanoTime() - start;
+        }
 
-        class OfInt implements PrimitiveIterator.OfInt {
-            private final Iterator<T> ofT = Streamer.this.iterator();
+    }
 
-            private PrimitiveIterator.OfInt ofInt;
+    //last stage of pipeline, evaluated at once: holds all elements
+    private static class BufferStage extends Stage<Object> {
+        private final List<Object> elements = new ArrayList<>();
 
-            @Override
-            public int nextInt() {
-                if (!hasNext())
-                    throw new NoSuchElementException();
+        @Override
+        void accept(Object element) {
+            elements.add(element);
+        }
 
-                return ofInt.next();
-            }
+        @Override
+        boolean isCancelled() {
+            return false;
+        }
 
-            @Override
-            public boolean hasNext() {
-                while ((ofInt == null || !ofInt.hasNext()) && ofT.hasNext())
-                    ofInt = mapper.apply(ofT.next()).iterator();
+        @Override
+        boolean isCancellable() {
+            return false;
+        }
 
-                return ofInt != null && ofInt.hasNext();
-            }
+        @Override
+        boolean isFull() {
+            return false;
         }
 
-        return StreamSupport.intStream(
-                Spliterators.spliteratorUnknownSize(new OfInt(), 0),
-                false
-        );
+        @Override
+        boolean resume() {
+            return false;
+        }
     }
 
-    @Override
-    public LongStream flatMapToLong(Function<? super T, ? extends LongStream> mapper) {
-        Objects.requireNonNull(mapper);
+    /*
+            Parallel execution
+    */
 
-        class OfLong implements PrimitiveIterator.OfLong {
-            private final Iterator<T> ofT = Streamer.this.iterator();
+    //evaluates all operations over elements of sized source: stateless ones concurrently by parts, others at once (in order)
+    private static class ParallelEvaluation extends RecursiveTask<Object[]> {
+        private static final long serialVersionUID = 1L;
 
-            private PrimitiveIterator.OfLong ofLong;
+        private final Object[] elements;
+        private final IntermediateOperation<?>[] operations;
+        private final int parallelism;
 
-            @Override
-            public long nextLong() {
-                if (!hasNext())
-                    throw new NoSuchElementException();
+        ParallelEvaluation(Object[] elements, IntermediateOperation<?>[] operations, int parallelism) {
+            this.elements = elements;
+            this.operations = operations;
+            this.parallelism = parallelism;
+        }
 
-                return ofLong.next();
+        @Override
+        protected Object[] compute() {
+            Object[] elements = this.elements;
+
+            for (int i = 0; i < operations.length; ) {
+                if (operations[i] instanceof StatelessOperation) {
+                    int to = i + 1;
+                    while (to < operations.length && operations[to] instanceof StatelessOperation)
+                        to++;
+
+                    StatelessOperation<?>[] stateless = Arrays.copyOfRange(operations, i, to, StatelessOperation[].class);
+                    int threshold = Math.max(elements.length / (parallelism * 4), MIN_PART_SIZE);
+
+                    elements = new StatelessPart(elements, 0, elements.length, threshold, stateless).invoke();
+                    i = to;
+                } else
+                    elements = operations[i++].evaluate(elements);
             }
 
-            @Override
-            public boolean hasNext() {
-                while ((ofLong == null || !ofLong.hasNext()) && ofT.hasNext())
-                    ofLong = mapper.apply(ofT.next()).iterator();
-
-                return ofLong != null && ofLong.hasNext();
-            }
+            return elements;
         }
-
-        return StreamSupport.longStream(
-                Spliterators.spliteratorUnknownSize(new OfLong(), 0),
-                false
-        );
     }
 
-    @Override
-    public DoubleStream flatMapToDouble(Function<? super T, ? extends DoubleStream> mapper) {
-        Objects.requireNonNull(mapper);
-
-        class OfDouble implements PrimitiveIterator.OfDouble {
-            private final Iterator<T> ofT = Streamer.this.iterator();
-
-            private PrimitiveIterator.OfDouble ofDouble;
+    private static final int MIN_PART_SIZE = 1024;
 
-            @Override
-            public double nextDouble() {
-                if (!hasNext())
-                    throw new NoSuchElementException();
-
-                return ofDouble.next();
-            }
+    //part of elements, which processed by the chain of stateless operations (splits itself, while it larger than threshold)
+    private static class StatelessPart extends RecursiveTask<Object[]> {
+        private static final long serialVersionUID = 1L;
 
-            @Override
-            public boolean hasNext() {
-                while ((ofDouble == null || !ofDouble.hasNext()) && ofT.hasNext())
-                    ofDouble = mapper.apply(ofT.next()).iterator();
+        private final Object[] elements;
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final StatelessOperation<?>[] operations;
 
-                return ofDouble != null && ofDouble.hasNext();
-            }
+        StatelessPart(Object[] elements, int from, int to, int threshold, StatelessOperation<?>[] operations) {
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.operations = operations;
         }
 
-        return StreamSupport.doubleStream(
-                Spliterators.spliteratorUnknownSize(new OfDouble(), 0),
-                false
-        );
-    }
-
-    //peek()
-    private final List<Consumer<? super T>> peekSequences = new LinkedList<>();
-
-    @Override
-    public Streamer<T> peek(Consumer<? super T> action) {
-        throwIfNotWaiting();
+        @SuppressWarnings("unchecked")
+        @Override
+        protected Object[] compute() {
+            if (to - from > threshold) {
+                int middle = (from + to) >>> 1;
 
-        peekSequences.add(action);
+                StatelessPart left = new StatelessPart(elements, from, middle, threshold, operations);
+                left.fork();
+                Object[] right = new StatelessPart(elements, middle, to, threshold, operations).compute();
+                Object[] leftResult = left.join();
 
-        return this;
-    }
+                //concatenating in encounter order
+                Object[] result = Arrays.copyOf(leftResult, leftResult.length + right.length);
+                System.arraycopy(right, 0, result, leftResult.length, right.length);
 
-    //onClose()
-    private final List<Runnable> onCloseSequences = new LinkedList<>();
+                return result;
+            }
 
-    @Override
-    public Streamer<T> onClose(Runnable closeHandler) {
-        throwIfNotWaiting();
+            //linking own copies of operations
+            BufferStage buffer = new BufferStage();
+            Stage<Object> head = buffer;
+            for (int i = operations.length - 1; i >= 0; i--) {
+                StatelessOperation<?> operation = operations[i].copy();
+                operation.downstream = head;
+                head = Stage.of(operation);
+            }
 
-        onCloseSequences.add(closeHandler);
+            for (int i = from; i < to; i++)
+                head.accept(elements[i]);
 
-        return this;
+            return buffer.elements.toArray();
+        }
     }
 
     /*
-            Terminal methods
+            Intermediate methods (conveyor/pipeline)
     */
 
-    private List<T> finishToList() {
-        List<T> result = new ArrayList<>();
+    private static abstract class IntermediateOperation<E> extends Stage<E> {
+        //evaluates operation over all elements at once (used by parallel execution for the stateful operations)
+        @SuppressWarnings("unchecked")
+        Object[] evaluate(Object[] elements) {
+            BufferStage buffer = new BufferStage();
+            downstream = buffer;
+
+            for (int i = 0; i < elements.length && !isCancelled(); i++)
+                accept((E) elements[i]);
 
-        while (streamerIterator.hasNext())
-            result.add(streamerIterator.next());
+            return buffer.elements.toArray();
+        }
 
-        return result;
-    }
+        //elements count, which can be required from upstream, when downstream requires count (Long.MAX_VALUE - unknown, all)
+        long requiredFromUpstream(long count) {
+            return Long.MAX_VALUE;
+        }
 
-    @Override
-    public Iterator<T> iterator() {
-        prepareRun();
+        //applies operation to the window of random access source (by indexes), false - if it is impossible
+        boolean foldTo(ListWindow window) {
+            return false;
+        }
 
-        return streamerIterator;
+        //spliterator characteristics of elements after operation (by characteristics of upstream elements)
+        int characteristics(int upstream) {
+            return upstream & Spliterator.ORDERED;
+        }
+
+        //estimated elements count after operation (by upstream estimation, Long.MAX_VALUE - unknown)
+        long estimateSize(long upstream) {
+            return upstream;
+        }
     }
 
-    @Override
-    public boolean anyMatch(Predicate<? super T> predicate) {
-        Objects.requireNonNull(predicate);
+    //operation without state (and without dependency from other elements), so it can be applied to the parts of source concurrently
+    private static abstract class StatelessOperation<E> extends IntermediateOperation<E> {
+        abstract StatelessOperation<E> copy(); //for each concurrently processed part (stage is linked to own downstream)
+    }
 
-        prepareRun();
+    private final List<IntermediateOperation<?>> intermediateOperations;
 
-        try {
-            while (streamerIterator.hasNext())
-                if (predicate.test(streamerIterator.next()))
-                    return true;
+    //limit()
+    private static class LimitOperation<E> extends IntermediateOperation<E> {
+        private final long maxSize; //maximum elements count that stream can return
+        private long passed; //passed elements count
 
-            return false;
-        } finally {
-            internalClose();
+        LimitOperation(long maxSize) {
+            this.maxSize = maxSize;
         }
-    }
-
-    @Override
-    public boolean allMatch(Predicate<? super T> predicate) {
-        Objects.requireNonNull(predicate);
 
-        prepareRun();
+        @SuppressWarnings("unchecked")
+        @Override
+        void accept(E element) {
+            passed++;
+            downstream.accept(element);
+        }
 
-        try {
-            while (streamerIterator.hasNext())
-                if (!predicate.test(streamerIterator.next()))
-                    return false;
+        @Override
+        boolean isCancelled() {
+            return passed >= maxSize || downstream.isCancelled();
+        }
 
+        @Override
+        boolean isCancellable() {
             return true;
-        } finally {
-            internalClose();
         }
-    }
 
-    @Override
-    public boolean noneMatch(Predicate<? super T> predicate) {
-        prepareRun();
+        @Override
+        long requiredFromUpstream(long count) {
+            return Math.min(maxSize, count);
+        }
 
-        try {
-            while (streamerIterator.hasNext())
-                if (predicate.test(streamerIterator.next()))
-                    return false;
+        @Override
+        boolean foldTo(ListWindow window) {
+            window.limit(maxSize);
 
             return true;
-        } finally {
-            internalClose();
+        }
+
+        @Override
+        int characteristics(int upstream) {
+            return upstream;
+        }
+
+        @Override
+        long estimateSize(long upstream) {
+            return Math.max(Math.min(maxSize, upstream), 0); //negative limit is 0
         }
     }
 
     @Override
-    public Optional<T> findFirst() {
-        return findAny();
+    public Streamer<T> limit(long maxSize) {
+        throwIfNotWaiting();
+
+        intermediateOperations.add(new LimitOperation<>(maxSize));
+
+        return this;
     }
 
-    @Override
-    public Optional<T> findAny() {
-        prepareRun();
+    //skip()
+    private static class SkipOperation<E> extends IntermediateOperation<E> {
+        private final long totalCount; //Total elements count, that streams must skip
+        private long processedCount; //elements count that streams was skipped
 
-        try {
-            if (streamerIterator.hasNext())
-                return Optional.of(streamerIterator.next());
+        SkipOperation(long totalCount) {
+            this.totalCount = totalCount;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        void accept(E element) {
+            if (processedCount < totalCount)
+                processedCount++;
             else
-                return Optional.empty();
-        } finally {
-            internalClose();
+                downstream.accept(element);
         }
-    }
 
-    @SuppressWarnings("WeakerAccess")
-    public Optional<T> findLast() {
-        prepareRun();
+        @Override
+        long requiredFromUpstream(long count) {
+            return count < Long.MAX_VALUE - totalCount ? count + totalCount : Long.MAX_VALUE;
+        }
 
-        try {
-            if (!streamerIterator.hasNext())
-                return Optional.empty();
+        @Override
+        boolean foldTo(ListWindow window) {
+            window.skip(totalCount);
 
-            T last;
+            return true;
+        }
 
-            do {
-                last = streamerIterator.next();
-            } while (streamerIterator.hasNext());
+        @Override
+        int characteristics(int upstream) {
+            return upstream;
+        }
 
-            return Optional.of(last);
-        } finally {
-            internalClose();
+        @Override
+        long estimateSize(long upstream) {
+            return upstream == Long.MAX_VALUE ? upstream : Math.max(upstream - Math.max(totalCount, 0), 0);
         }
     }
 
     @Override
-    public void forEach(Consumer<? super T> action) {
-        prepareRun();
+    public Streamer<T> skip(long n) {
+        throwIfNotWaiting();
 
-        try {
-            while (streamerIterator.hasNext())
-                action.accept(streamerIterator.next());
-        } finally {
-            internalClose();
-        }
-    }
+        intermediateOperations.add(new SkipOperation<>(n));
 
-    @Override
-    public void forEachOrdered(Consumer<? super T> action) {
-        forEach(action);
+        return this;
     }
 
-    @Override
-    public Optional<T> min(Comparator<? super T> comparator) {
-        Objects.requireNonNull(comparator);
+    //takeWhile()
+    private static class TakeWhileOperation<E> extends IntermediateOperation<E> {
+        private final Predicate<? super E> predicate;
+        private boolean stopped; //element, which does not match, is reached
 
-        prepareRun();
+        TakeWhileOperation(Predicate<? super E> predicate) {
+            this.predicate = predicate;
+        }
 
-        try {
-            List<T> list = finishToList();
-            list.sort(comparator);
+        @SuppressWarnings("unchecked")
+        @Override
+        void accept(E element) {
+            if (!stopped && predicate.test(element))
+                downstream.accept(element);
+            else
+                stopped = true;
+        }
 
-            return !list.isEmpty() ? Optional.of(list.get(0)) : Optional.empty();
-        } finally {
-            internalClose();
+        @Override
+        boolean isCancelled() {
+            return stopped || downstream.isCancelled();
         }
-    }
 
-    @SuppressWarnings("RedundantComparatorComparing")
-    @Override
-    public Optional<T> max(Comparator<? super T> comparator) {
-        Objects.requireNonNull(comparator);
+        @Override
+        boolean isCancellable() {
+            return true;
+        }
 
-        return min(comparator.reversed());
-    }
+        @Override
+        int characteristics(int upstream) {
+            return upstream & ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+        }
+    }
+
+    //source is not pulled after the first element, which does not match (as takeWhile() of Java 9 Stream)
+    public Streamer<T> takeWhile(Predicate<? super T> predicate) {
+        Objects.requireNonNull(predicate);
+
+        throwIfNotWaiting();
+
+        intermediateOperations.add(new TakeWhileOperation<>(predicate));
+
+        return this;
+    }
+
+    //dropWhile()
+    private static class DropWhileOperation<E> extends IntermediateOperation<E> {
+        private final Predicate<? super E> predicate;
+        private boolean dropping = true;
+
+        DropWhileOperation(Predicate<? super E> predicate) {
+            this.predicate = predicate;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        void accept(E element) {
+            if (dropping && predicate.test(element))
+                return;
+
+            dropping = false;
+            downstream.accept(element);
+        }
+
+        @Override
+        int characteristics(int upstream) {
+            return upstream & ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+        }
+    }
+
+    //as dropWhile() of Java 9 Stream
+    public Streamer<T> dropWhile(Predicate<? super T> predicate) {
+        Objects.requireNonNull(predicate);
+
+        throwIfNotWaiting();
+
+        intermediateOperations.add(new DropWhileOperation<>(predicate));
+
+        return this;
+    }
+
+    //distinct()
+    private static class DistinctOperation<E> extends IntermediateOperation<E> {
+        private final Predicate<? super E> filter; //state of distinction (true - first occurrence)
+        private final boolean distinct; //passed elements are surely distinct (ex: not for bounded window)
+
+        DistinctOperation(Predicate<? super E> filter, boolean distinct) {
+            this.filter = filter;
+            this.distinct = distinct;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        void accept(E element) {
+            if (filter.test(element))
+                downstream.accept(element);
+        }
+
+        @Override
+        int characteristics(int upstream) {
+            upstream &= ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+
+            return distinct ? upstream | Spliterator.DISTINCT : upstream;
+        }
+    }
+
+    @Override
+    public Streamer<T> distinct() {
+        return distinct(Distinction.hashed());
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Streamer<T> distinct(Distinction<? super T> distinction) {
+        throwIfNotWaiting();
+
+        intermediateOperations.add(new DistinctOperation<>(distinction.newFilter(), distinction.isDistinct()));
+
+        return this;
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Streamer<T> distinctBy(Function<? super T, ?> keyExtractor) {
+        return distinctBy(keyExtractor, Distinction.hashed());
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public <K> Streamer<T> distinctBy(Function<? super T, ? extends K> keyExtractor, Distinction<? super K> distinction) {
+        Objects.requireNonNull(keyExtractor);
+        throwIfNotWaiting();
+
+        Predicate<? super K> filter = distinction.newFilter();
+        intermediateOperations.add(new DistinctOperation<T>(element -> filter.test(keyExtractor.apply(element)), distinction.isDistinct()));
+
+        return this;
+    }
+
+    //filter()
+    private static class FilterOperation<E> extends StatelessOperation<E> {
+        private final Predicate<? super E> predicate;
+
+        FilterOperation(Predicate<? super E> predicate) {
+            this.predicate = predicate;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        void accept(E element) {
+            if (predicate.test(element))
+                downstream.accept(element);
+        }
+
+        @Override
+        FilterOperation<E> copy() {
+            return new FilterOperation<>(predicate);
+        }
+
+        @Override
+        int characteristics(int upstream) {
+            return upstream & ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+        }
+    }
+
+    @Override
+    public Streamer<T> filter(Predicate<? super T> predicate) {
+        throwIfNotWaiting();
+
+        intermediateOperations.add(new FilterOperation<>(predicate));
+
+        return this;
+    }
+
+    //collected operation ends the segment of pipeline: collects all elements of segment, and gives them to the next segment
+    private static abstract class CollectedOperation<E> extends IntermediateOperation<E> {
+        List<E> data = new ArrayList<>();
+
+        @Override
+        void accept(E element) {
+            data.add(element);
+        }
+
+        @Override
+        boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        boolean isCancellable() {
+            return false;
+        }
+
+        @Override
+        boolean isFull() {
+            return false;
+        }
+
+        @Override
+        boolean resume() {
+            return false;
+        }
+
+        abstract Iterator<E> finish();
+
+        //count of collected elements, which are held (before finish())
+        int bufferedSize() {
+            return data.size();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        Object[] evaluate(Object[] elements) {
+            data = new ArrayList<>(Arrays.asList((E[]) elements));
+
+            List<Object> result = new ArrayList<>(data.size());
+            finish().forEachRemaining(result::add);
+
+            return result.toArray();
+        }
+    }
+
+    //sorted()
+
+    private static class SortedOperation<E> extends CollectedOperation<E> {
+        private static final int INCREMENTAL_SORTING_MIN_SIZE = 1024; //smaller data is sorted at once
+
+        private final Comparator<? super E> comparator;
+
+        private TopSelection<E> topSelection; //when downstream requires first elements only (ex: sorted().limit(10))
+
+        private final SpilledRuns<E> runs; //not null, when data can be spilled to temporary files
+
+        private int parallelSortingThreshold = Integer.MAX_VALUE; //data of this size (and larger) is sorted in pool
+        private ForkJoinPool sortingPool;
+        private boolean consumedWhole; //else first elements can be required only (ex: findFirst(), pulled iterator())
+
+        SortedOperation(Comparator<? super E> comparator) {
+            this(comparator, null);
+        }
+
+        @SuppressWarnings("unchecked")
+        SortedOperation(Comparator<? super E> comparator, Spilling<E> spilling) {
+            this.comparator = comparator != null ? comparator : (Comparator<? super E>) Comparator.naturalOrder();
+            this.runs = spilling != null ? new SpilledRuns<>(spilling, this.comparator) : null;
+        }
+
+        @Override
+        long requiredFromUpstream(long count) {
+            if (count < Integer.MAX_VALUE && (runs == null || count <= runs.memoryBudget()))
+                topSelection = new TopSelection<>(comparator, (int) count);
+
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        void accept(E element) {
+            if (topSelection != null)
+                topSelection.add(element);
+            else if (runs != null)
+                runs.add(element);
+            else
+                data.add(element);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        Iterator<E> finish() {
+            if (topSelection != null)
+                return topSelection.finish();
+
+            if (runs != null)
+                return runs.sorted();
+
+            if (consumedWhole && data.size() >= parallelSortingThreshold) { //else incremental sorting gives first ones sooner
+                Object[] elements = data.toArray();
+                data = null;
+
+                sortingPool.invoke(ForkJoinTask.adapt(() -> evaluate(elements))); //sorter runs in pool of invoking task
+
+                return (Iterator<E>) Arrays.asList(elements).iterator();
+            }
+
+            if (data.size() < INCREMENTAL_SORTING_MIN_SIZE) {
+                data.sort(comparator);
+
+                return data.iterator();
+            }
+
+            Object[] elements = data.toArray();
+            data = null;
+
+            return new IncrementalSortingIterator<>(elements, comparator);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        Object[] evaluate(Object[] elements) {
+            ParallelMergeSort.sort((E[]) elements, comparator); //stable, in the pool of running evaluation
+
+            return elements;
+        }
+
+        @Override
+        int characteristics(int upstream) {
+            return upstream | Spliterator.SORTED;
+        }
+
+        @Override
+        int bufferedSize() {
+            if (topSelection != null)
+                return topSelection.size();
+
+            return runs != null ? runs.bufferedSize() : data.size();
+        }
+
+        void parallelSorting(int threshold, ForkJoinPool pool) {
+            this.parallelSortingThreshold = threshold;
+            this.sortingPool = pool;
+        }
+
+        void consumedWhole(boolean consumedWhole) {
+            this.consumedWhole = consumedWhole;
+        }
+    }
+
+    @Override
+    public Streamer<T> sorted() {
+        throwIfNotWaiting();
+
+        intermediateOperations.add(new SortedOperation<>(null));
+
+        return this;
+    }
+
+    @Override
+    public Streamer<T> sorted(Comparator<? super T> comparator) {
+        Objects.requireNonNull(comparator);
+
+        throwIfNotWaiting();
+
+        intermediateOperations.add(new SortedOperation<>(comparator));
+
+        return this;
+    }
+
+    //sorting of data, larger than memory budget: sorted runs are spilled to temporary files (removed on close())
+    @SuppressWarnings("WeakerAccess")
+    public Streamer<T> sorted(Spilling<T> spilling) {
+        return sorted(null, spilling);
+    }
+
+    //comparator - null for natural order
+    @SuppressWarnings("WeakerAccess")
+    public Streamer<T> sorted(Comparator<? super T> comparator, Spilling<T> spilling) {
+        Objects.requireNonNull(spilling);
+
+        throwIfNotWaiting();
+
+        SortedOperation<T> operation = new SortedOperation<>(comparator, spilling);
+        intermediateOperations.add(operation);
+        onCloseSequences.add(operation.runs::close);
+
+        return this;
+    }
+
+    private static class ReversedOperation<E> extends CollectedOperation<E> {
+        private final SpilledRuns<E> runs; //not null, when data can be spilled to temporary files
+
+        ReversedOperation(Spilling<E> spilling) {
+            this.runs = spilling != null ? new SpilledRuns<>(spilling, null) : null;
+        }
+
+        @Override
+        void accept(E element) {
+            if (runs != null)
+                runs.add(element);
+            else
+                data.add(element);
+        }
+
+        @Override
+        Iterator<E> finish() {
+            if (runs != null)
+                return runs.reversed();
+
+            Collections.reverse(data);
+
+            return data.iterator();
+        }
+
+        @Override
+        Object[] evaluate(Object[] elements) {
+            Collections.reverse(Arrays.asList(elements));
+
+            return elements;
+        }
+
+        @Override
+        int bufferedSize() {
+            return runs != null ? runs.bufferedSize() : data.size();
+        }
+
+        @Override
+        boolean foldTo(ListWindow window) {
+            window.reverse();
+
+            return true;
+        }
+
+        @Override
+        int characteristics(int upstream) {
+            return upstream & ~Spliterator.SORTED;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Streamer<T> reversed() {
+        throwIfNotWaiting();
+
+        intermediateOperations.add(new ReversedOperation<>(null));
+
+        return this;
+    }
+
+    //reversing of data, larger than memory budget: runs are spilled to temporary files (removed on close())
+    @SuppressWarnings("WeakerAccess")
+    public Streamer<T> reversed(Spilling<T> spilling) {
+        Objects.requireNonNull(spilling);
+
+        throwIfNotWaiting();
+
+        ReversedOperation<T> operation = new ReversedOperation<>(spilling);
+        intermediateOperations.add(operation);
+        onCloseSequences.add(operation.runs::close);
+
+        return this;
+    }
+
+    //last()
+    private static class LastOperation<E> extends CollectedOperation<E> {
+        private final int count; //Total elements count, that stream must take from end
+
+        //ring buffer of last elements (grows up to count): memory is O(count), regardless of elements count
+        private Object[] ring = new Object[0];
+        private int size;
+        private int head; //index of the oldest element (when buffer is full)
+
+        LastOperation(int count) {
+            this.count = count;
+        }
+
+        @Override
+        void accept(E element) {
+            if (size < count) {
+                if (size == ring.length)
+                    ring = Arrays.copyOf(ring, (int) Math.min(Math.max((long) size << 1, 16), count));
+
+                ring[size++] = element;
+            } else if (count > 0) {
+                ring[head] = element;
+                if (++head == count)
+                    head = 0;
+            }
+        }
+
+        @Override
+        Iterator<E> finish() {
+            return new Iterator<E>() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < size;
+                }
+
+                @SuppressWarnings("unchecked")
+                @Override
+                public E next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+
+                    int position = (head + index++) % size;
+
+                    E element = (E) ring[position];
+                    ring[position] = null;
+
+                    return element;
+                }
+            };
+        }
+
+        @Override
+        Object[] evaluate(Object[] elements) {
+            return Arrays.copyOfRange(elements, Math.max(elements.length - Math.max(count, 0), 0), elements.length);
+        }
+
+        @Override
+        int bufferedSize() {
+            return size;
+        }
+
+        @Override
+        boolean foldTo(ListWindow window) {
+            window.last(count);
+
+            return true;
+        }
+
+        @Override
+        int characteristics(int upstream) {
+            return upstream;
+        }
+
+        @Override
+        long estimateSize(long upstream) {
+            return Math.max(Math.min(count, upstream), 0); //negative count is 0
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Streamer<T> last(int count) {
+        throwIfNotWaiting();
+
+        intermediateOperations.add(new LastOperation<>(count));
+
+        return this;
+    }
+
+    //map()
+    private static class MapOperation<E, R> extends StatelessOperation<E> {
+        private final Function<? super E, ? extends R> function;
+
+        MapOperation(Function<? super E, ? extends R> function) {
+            this.function = function;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        void accept(E element) {
+            downstream.accept(function.apply(element));
+        }
+
+        @Override
+        MapOperation<E, R> copy() {
+            return new MapOperation<>(function);
+        }
+
+        @Override
+        long requiredFromUpstream(long count) {
+            return count;
+        }
+
+        @Override
+        int characteristics(int upstream) {
+            return upstream & ~(Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL);
+        }
+    }
+
+    @Override
+    public <R> Streamer<R> map(Function<? super T, ? extends R> mapper) {
+        throwIfNotWaiting();
+
+        intermediateOperations.add(new MapOperation<>(mapper));
+
+        return continued();
+    }
+
+    /*
+        mapAsync(): mapper is applied concurrently (ex: blocking I/O) to at most maxConcurrency elements ahead,
+        results are given in encounter order. Tasks, which are in flight when pipeline is completed (ex: by limit())
+        or closed, are cancelled (with interruption)
+    */
+    private class AsyncMapping<R> implements Iterator<R>, AutoCloseable {
+        private final Function<? super T, ? extends R> mapper;
+        private final int maxConcurrency;
+        private final Executor executor;
+
+        private Iterator<T> upstream; //created by the first pull (upstream run is started by terminal operation)
+        private final ArrayDeque<Future<R>> inFlight; //in encounter order
+
+        AsyncMapping(Function<? super T, ? extends R> mapper, int maxConcurrency, Executor executor) {
+            this.mapper = mapper;
+            this.maxConcurrency = maxConcurrency;
+            this.executor = executor;
+            this.inFlight = new ArrayDeque<>(Math.min(maxConcurrency, 1024));
+        }
+
+        private void submit() {
+            if (upstream == null)
+                upstream = keptIterator();
+
+            while (inFlight.size() < maxConcurrency && upstream.hasNext()) {
+                T element = upstream.next();
+
+                FutureTask<R> task = new FutureTask<>(() -> mapper.apply(element));
+                inFlight.add(task);
+                executor.execute(task);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            submit();
+
+            return !inFlight.isEmpty();
+        }
+
+        @Override
+        public R next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            Future<R> result = inFlight.peek(); //removed, when result is received (else it is cancelled by close())
+
+            try {
+                R mapped = result.get();
+                inFlight.poll(); //its place is taken by the next element
+
+                return mapped;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+
+                throw new CompletionException(e);
+            } catch (ExecutionException e) {
+                close();
+
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                if (cause instanceof Error)
+                    throw (Error) cause;
+
+                throw new CompletionException(cause);
+            }
+        }
+
+        @Override
+        public void close() {
+            for (Future<R> task : inFlight)
+                task.cancel(true);
+            inFlight.clear();
+
+            if (state != State.CLOSED) //upstream pipeline is not completed
+                internalClose();
+        }
+    }
+
+    //tasks are running on virtual threads on Java 21+, else on cached daemon threads (see AsyncExecution)
+    @SuppressWarnings("WeakerAccess")
+    public <R> Streamer<R> mapAsync(Function<? super T, ? extends R> mapper, int maxConcurrency) {
+        return mapAsync(mapper, maxConcurrency, AsyncExecution.INSTANCE.executor());
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public <R> Streamer<R> mapAsync(Function<? super T, ? extends R> mapper, int maxConcurrency, Executor executor) {
+        Objects.requireNonNull(mapper);
+        Objects.requireNonNull(executor);
+        if (maxConcurrency <= 0)
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+
+        throwIfNotWaiting();
+
+        return continuedBy(new AsyncMapping<>(mapper, maxConcurrency, executor));
+    }
+
+    //batch(): elements are grouped to lists by size (and by maxWait), the last batch contains remaining elements
+    private class Batches implements Iterator<List<T>>, ReusingSource, AutoCloseable {
+        private final int size;
+        private final long maxWaitNanos;
+        private final LongSupplier clock;
+        private boolean reusingBuffer;
+
+        private Iterator<T> upstream; //created by the first pull (upstream run is started by terminal operation)
+        private List<T> buffer;
+
+        Batches(Batching batching) {
+            this.size = batching.size();
+            this.maxWaitNanos = batching.maxWaitNanos();
+            this.clock = batching.clock();
+            this.reusingBuffer = batching.isReusingBuffer();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (upstream == null)
+                upstream = keptIterator();
+
+            return upstream.hasNext();
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            List<T> batch;
+            if (reusingBuffer && buffer != null) {
+                batch = buffer;
+                batch.clear();
+            } else {
+                batch = new ArrayList<>(Math.min(size, 1024)); //large batch grows, if elements are there
+                if (reusingBuffer)
+                    buffer = batch;
+            }
+
+            long deadline = maxWaitNanos != Long.MAX_VALUE ? clock.getAsLong() + maxWaitNanos : 0;
+            do {
+                batch.add(upstream.next());
+            } while (batch.size() < size && (maxWaitNanos == Long.MAX_VALUE || clock.getAsLong() - deadline < 0)
+                    && upstream.hasNext());
+
+            return batch;
+        }
+
+        @Override
+        public void stopReusing() {
+            reusingBuffer = false;
+        }
+
+        @Override
+        public void close() {
+            buffer = null;
+
+            if (state != State.CLOSED) //upstream pipeline is not completed (ex: by limit() of batches)
+                internalClose();
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Streamer<List<T>> batch(int size) {
+        return batch(Batching.of(size));
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Streamer<List<T>> batch(Batching batching) {
+        Objects.requireNonNull(batching);
+
+        throwIfNotWaiting();
+
+        return continuedBy(new Batches(batching));
+    }
+
+    /*
+        1:N operations (flatMap(), flatMapIterable(), mapMulti()): children of element are pushed to downstream
+        directly, while downstream requires them (ex: limit() stops expansion of element). In pull mode, expansion
+        is paused, while output holds element, and it is resumed by the next pull (so children can be infinite)
+    */
+    private static abstract class ExpandingOperation<E> extends StatelessOperation<E> {
+        //pushes remaining children of current element, while downstream takes them: true - expansion is paused
+        abstract boolean expand();
+
+        //drops remaining children of current element (ex: run is closed)
+        abstract void release();
+
+        @Override
+        boolean resume() {
+            return downstream.resume() || expand();
+        }
+
+        static boolean isInChain(Stage<?> head) {
+            for (Stage<?> stage = head; stage != null; stage = stage.downstream)
+                if (stage instanceof ExpandingOperation)
+                    return true;
+
+            return false;
+        }
+
+        static void releaseChain(Stage<?> head) {
+            for (Stage<?> stage = head; stage != null; stage = stage.downstream)
+                if (stage instanceof ExpandingOperation)
+                    ((ExpandingOperation) stage).release();
+        }
+    }
+
+    //flatMap()
+    private static class FlatMapOperation<E, R> extends ExpandingOperation<E> {
+        private final Function<? super E, ? extends Stream<? extends R>> mapper;
+        private final Consumer<R> child = this::push;
+
+        private Stream<? extends R> children; //of current element (closed, as by flatMap() of Stream)
+        private Spliterator<? extends R> spliterator;
+
+        FlatMapOperation(Function<? super E, ? extends Stream<? extends R>> mapper) {
+            this.mapper = mapper;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void push(R element) {
+            downstream.accept(element);
+        }
+
+        @Override
+        void accept(E element) {
+            children = mapper.apply(element);
+
+            expand();
+        }
+
+        @Override
+        boolean expand() {
+            if (children == null)
+                return false;
+
+            boolean paused = false;
+            try {
+                if (spliterator == null)
+                    spliterator = children.spliterator();
+
+                while (!downstream.isCancelled() && !(paused = downstream.isFull()) && spliterator.tryAdvance(child))
+                    ;
+            } finally {
+                if (!paused)
+                    release();
+            }
+
+            return paused;
+        }
+
+        @Override
+        void release() {
+            if (children != null) {
+                Stream<? extends R> stream = children;
+                children = null;
+                spliterator = null;
+
+                stream.close();
+            }
+        }
+
+        @Override
+        FlatMapOperation<E, R> copy() {
+            return new FlatMapOperation<>(mapper);
+        }
+
+        @Override
+        int characteristics(int upstream) {
+            return upstream & Spliterator.ORDERED;
+        }
+
+        @Override
+        long estimateSize(long upstream) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public <R> Streamer<R> flatMap(Function<? super T, ? extends Stream<? extends R>> mapper) {
+        Objects.requireNonNull(mapper);
+
+        throwIfNotWaiting();
+
+        intermediateOperations.add(new FlatMapOperation<>(mapper));
+
+        return continued();
+    }
+
+    //flatMapIterable()
+    private static class FlatMapIterableOperation<E, R> extends ExpandingOperation<E> {
+        private final Function<? super E, ? extends Iterable<? extends R>> mapper;
+
+        //children of current element: random access list (by indexes, without iterator) or iterator
+        private List<? extends R> list;
+        private int index;
+        private Iterator<? extends R> iterator;
+
+        FlatMapIterableOperation(Function<? super E, ? extends Iterable<? extends R>> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        void accept(E element) {
+            Iterable<? extends R> children = mapper.apply(element);
+
+            if (children instanceof List && children instanceof RandomAccess) {
+                list = (List<? extends R>) children;
+                index = 0;
+            } else if (children != null)
+                iterator = children.iterator();
+
+            expand();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        boolean expand() {
+            if (list != null) {
+                for (int size = list.size(); index < size && !downstream.isCancelled(); ) {
+                    if (downstream.isFull())
+                        return true;
+
+                    downstream.accept(list.get(index++));
+                }
+            } else if (iterator != null)
+                while (!downstream.isCancelled() && iterator.hasNext()) {
+                    if (downstream.isFull())
+                        return true;
+
+                    downstream.accept(iterator.next());
+                }
+
+            release();
+
+            return false;
+        }
+
+        @Override
+        void release() {
+            list = null;
+            iterator = null;
+        }
+
+        @Override
+        FlatMapIterableOperation<E, R> copy() {
+            return new FlatMapIterableOperation<>(mapper);
+        }
+
+        @Override
+        int characteristics(int upstream) {
+            return upstream & Spliterator.ORDERED;
+        }
+
+        @Override
+        long estimateSize(long upstream) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public <R> Streamer<R> flatMapIterable(Function<? super T, ? extends Iterable<? extends R>> mapper) {
+        Objects.requireNonNull(mapper);
+
+        throwIfNotWaiting();
+
+        intermediateOperations.add(new FlatMapIterableOperation<>(mapper));
+
+        return continued();
+    }
+
+    //mapMulti()
+    private static class MapMultiOperation<E, R> extends ExpandingOperation<E> {
+        private final BiConsumer<? super E, ? super Consumer<R>> mapper;
+        private final Consumer<R> child = this::push;
+
+        //children, which are pushed by mapper, while downstream is full (mapper can not be paused)
+        private final List<R> paused = new ArrayList<>();
+        private int position;
+
+        MapMultiOperation(BiConsumer<? super E, ? super Consumer<R>> mapper) {
+            this.mapper = mapper;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void push(R element) {
+            if (downstream.isCancelled()) //following children are dropped (mapper can not be stopped)
+                return;
+
+            if (position < paused.size() || downstream.isFull())
+                paused.add(element);
+            else
+                downstream.accept(element);
+        }
+
+        @Override
+        void accept(E element) {
+            mapper.accept(element, child);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        boolean expand() {
+            while (position < paused.size() && !downstream.isCancelled()) {
+                if (downstream.isFull())
+                    return true;
+
+                downstream.accept(paused.get(position++));
+            }
+
+            release();
+
+            return false;
+        }
+
+        @Override
+        void release() {
+            if (!paused.isEmpty()) {
+                paused.clear();
+                position = 0;
+            }
+        }
+
+        @Override
+        MapMultiOperation<E, R> copy() {
+            return new MapMultiOperation<>(mapper);
+        }
+
+        @Override
+        int characteristics(int upstream) {
+            return upstream & Spliterator.ORDERED;
+        }
+
+        @Override
+        long estimateSize(long upstream) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    //mapper pushes children of element to consumer (as mapMulti() of Java 16 Stream)
+    @SuppressWarnings("WeakerAccess")
+    public <R> Streamer<R> mapMulti(BiConsumer<? super T, ? super Consumer<R>> mapper) {
+        Objects.requireNonNull(mapper);
+
+        throwIfNotWaiting();
+
+        intermediateOperations.add(new MapMultiOperation<>(mapper));
+
+        return continued();
+    }
+
+    /*
+        Source of primitive streamer, which continues this pipeline (mapToInt(), flatMapToInt()...): the run of this
+        pipeline is started by the run of primitive streamer, its elements are pushed to the stages of primitive
+        streamer (in push mode - from the loop of this run)
+    */
+    private abstract class PrimitiveContinuation extends PrimitiveStreamer.Source {
+        private final String operation;
+
+        private Iterator<T> upstream; //created by the first pull (upstream run is started by terminal operation)
+
+        PrimitiveContinuation(String operation) {
+            this.operation = operation;
+        }
+
+        //pushes result(s) of element to head (all of them, in push mode)
+        abstract void push(T element, PrimitiveStreamer.Stage head);
+
+        Iterator<T> upstream() {
+            if (upstream == null)
+                upstream = continuingIterator(operation, false);
+
+            return upstream;
+        }
+
+        @Override
+        boolean advance(PrimitiveStreamer.Stage head) {
+            if (!upstream().hasNext())
+                return false;
+
+            push(upstream.next(), head);
+
+            return true;
+        }
+
+        @Override
+        void forEach(PrimitiveStreamer.Stage head) {
+            upstream();
+            if (head.isCancelled())
+                return;
+
+            streamerIterator.forEachRemaining(element -> {
+                push(element, head);
+                if (head.isCancelled())
+                    streamerIterator.cancel();
+            }, true);
+        }
+
+        @Override
+        void close() {
+            if (upstream != null && state != State.CLOSED) //upstream run is not completed
+                internalClose();
+        }
+    }
+
+    //mapToInt(), mapToLong(), mapToDouble(): element is mapped by the first stage of primitive streamer
+    private class PrimitiveMapping extends PrimitiveContinuation {
+        private final BiConsumer<? super T, PrimitiveStreamer.Stage> mapping;
+
+        PrimitiveMapping(String operation, BiConsumer<? super T, PrimitiveStreamer.Stage> mapping) {
+            super(operation);
+
+            this.mapping = mapping;
+        }
+
+        @Override
+        void push(T element, PrimitiveStreamer.Stage head) {
+            mapping.accept(element, head);
+        }
+    }
+
+    //flatMapToInt(), flatMapToLong(), flatMapToDouble(): in pull mode, children of element are pushed one by one
+    private class PrimitiveExpansion extends PrimitiveContinuation {
+        private final Function<? super T, PrimitiveStreamer.Source> mapper;
+
+        private PrimitiveStreamer.Source children; //of current element (closes its stream)
+
+        PrimitiveExpansion(String operation, Function<? super T, PrimitiveStreamer.Source> mapper) {
+            super(operation);
+
+            this.mapper = mapper;
+        }
+
+        @Override
+        void push(T element, PrimitiveStreamer.Stage head) {
+            PrimitiveStreamer.Source children = mapper.apply(element);
+            try {
+                children.forEach(head);
+            } finally {
+                children.close();
+            }
+        }
+
+        @Override
+        boolean advance(PrimitiveStreamer.Stage head) {
+            while (children == null || !children.advance(head)) {
+                release();
+
+                if (!upstream().hasNext())
+                    return false;
+
+                children = mapper.apply(upstream().next());
+            }
+
+            return true;
+        }
+
+        private void release() {
+            if (children != null) {
+                PrimitiveStreamer.Source source = children;
+                children = null;
+
+                source.close();
+            }
+        }
+
+        @Override
+        void close() {
+            release();
+
+            super.close();
+        }
+    }
+
+    //continues the pipeline by primitive streamer over source, this streamer becomes continued (with the same onClose sequences)
+    private PrimitiveStreamer.Source continuedByPrimitive(PrimitiveContinuation source) {
+        throwIfNotWaiting();
+
+        state = State.CONTINUED;
+
+        return source;
+    }
+
+    @Override
+    public IntStreamer mapToInt(ToIntFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return new IntStreamer(continuedByPrimitive(new PrimitiveMapping("mapToInt",
+                (element, head) -> head.accept(mapper.applyAsInt(element)))), new LinkedList<>(), onCloseSequences);
+    }
+
+    @Override
+    public LongStreamer mapToLong(ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return new LongStreamer(continuedByPrimitive(new PrimitiveMapping("mapToLong",
+                (element, head) -> head.accept(mapper.applyAsLong(element)))), new LinkedList<>(), onCloseSequences);
+    }
+
+    @Override
+    public DoubleStreamer mapToDouble(ToDoubleFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return new DoubleStreamer(continuedByPrimitive(new PrimitiveMapping("mapToDouble",
+                (element, head) -> head.accept(mapper.applyAsDouble(element)))), new LinkedList<>(), onCloseSequences);
+    }
+
+    @Override
+    public IntStreamer flatMapToInt(Function<? super T, ? extends IntStream> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return new IntStreamer(continuedByPrimitive(new PrimitiveExpansion("flatMapToInt",
+                element -> IntStreamer.source(mapper.apply(element)))), new LinkedList<>(), onCloseSequences);
+    }
+
+    @Override
+    public LongStreamer flatMapToLong(Function<? super T, ? extends LongStream> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return new LongStreamer(continuedByPrimitive(new PrimitiveExpansion("flatMapToLong",
+                element -> LongStreamer.source(mapper.apply(element)))), new LinkedList<>(), onCloseSequences);
+    }
+
+    @Override
+    public DoubleStreamer flatMapToDouble(Function<? super T, ? extends DoubleStream> mapper) {
+        Objects.requireNonNull(mapper);
+
+        return new DoubleStreamer(continuedByPrimitive(new PrimitiveExpansion("flatMapToDouble",
+                element -> DoubleStreamer.source(mapper.apply(element)))), new LinkedList<>(), onCloseSequences);
+    }
+
+    //peek()
+    private static class PeekOperation<E> extends StatelessOperation<E> {
+        private final Consumer<? super E> action;
+
+        PeekOperation(Consumer<? super E> action) {
+            this.action = action;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        void accept(E element) {
+            action.accept(element);
+            downstream.accept(element);
+        }
+
+        @Override
+        PeekOperation<E> copy() {
+            return new PeekOperation<>(action);
+        }
+
+        @Override
+        int characteristics(int upstream) {
+            return upstream;
+        }
+
+        @Override
+        long requiredFromUpstream(long count) {
+            return count;
+        }
+    }
+
+    @Override
+    public Streamer<T> peek(Consumer<? super T> action) {
+        throwIfNotWaiting();
+
+        intermediateOperations.add(new PeekOperation<>(action));
+
+        return this;
+    }
+
+    //onClose()
+    private final List<Runnable> onCloseSequences;
+
+    @Override
+    public Streamer<T> onClose(Runnable closeHandler) {
+        throwIfNotWaiting();
+
+        onCloseSequences.add(closeHandler);
+
+        return this;
+    }
+
+    /*
+            Terminal methods
+    */
+
+    private ChunkedBuffer finishToBuffer() {
+        ChunkedBuffer result = new ChunkedBuffer();
+
+        streamerIterator.forEachRemaining(result::add);
+
+        return result;
+    }
+
+    //growable buffer of elements: filled chunks are not copied while it grows, elements are copied once (to result array)
+    private static class ChunkedBuffer {
+        private static final int FIRST_CHUNK_SIZE = 16;
+        private static final int MAX_CHUNK_SIZE = 1 << 20;
+        private static final int MAX_SIZE = Integer.MAX_VALUE - 8; //maximum array length
+
+        private Object[][] chunks = new Object[8][];
+        private int chunkCount = 1;
+        private Object[] chunk = chunks[0] = new Object[FIRST_CHUNK_SIZE]; //last chunk (being filled)
+        private int chunkSize; //filled elements count of last chunk
+        private int size;
+
+        void add(Object element) {
+            if (size >= MAX_SIZE) //chunk boundaries do not fall on max size
+                throw new IllegalArgumentException("stream size exceeds max array length");
+
+            if (chunkSize == chunk.length) {
+                if (chunkCount == chunks.length)
+                    chunks = Arrays.copyOf(chunks, chunkCount << 1);
+
+                chunk = chunks[chunkCount++] = new Object[Math.min(chunk.length << 1, MAX_CHUNK_SIZE)];
+                chunkSize = 0;
+            }
+
+            chunk[chunkSize++] = element;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        //copies elements to array (its length must be enough)
+        <A> A[] toArray(A[] array) {
+            int position = 0;
+            for (int i = 0; i < chunkCount - 1; i++) {
+                System.arraycopy(chunks[i], 0, array, position, chunks[i].length);
+                position += chunks[i].length;
+            }
+            System.arraycopy(chunk, 0, array, position, chunkSize);
+
+            return array;
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        prepareRun("iterator");
+
+        return streamerIterator;
+    }
+
+    //iterator, which elements are kept by caller (ex: by batch() or mapAsync()), so they are not reused by source
+    private Iterator<T> keptIterator() {
+        return continuingIterator("iterator", true);
+    }
+
+    //iterator of this pipeline for continuing one (its run is started by the run of continuing pipeline)
+    private Iterator<T> continuingIterator(String terminal, boolean keeping) {
+        if (state == State.CONTINUED) //run of continued pipeline
+            state = State.WAITING;
+
+        prepareRun(terminal, keeping);
+
+        return streamerIterator;
+    }
+
+    //true, when some element matches predicate (run is cancelled at first match)
+    private boolean matches(String terminal, Predicate<? super T> predicate) {
+        Objects.requireNonNull(predicate);
+
+        prepareRun(terminal);
+
+        class Matching implements Consumer<T> {
+            private boolean matched;
+
+            @Override
+            public void accept(T element) {
+                if (predicate.test(element)) {
+                    matched = true;
+                    streamerIterator.cancel();
+                }
+            }
+        }
+
+        try {
+            Matching matching = new Matching();
+            streamerIterator.forEachRemaining(matching, true);
+
+            return matching.matched;
+        } finally {
+            internalClose();
+        }
+    }
+
+    @Override
+    public boolean anyMatch(Predicate<? super T> predicate) {
+        return matches("anyMatch", predicate);
+    }
+
+    @Override
+    public boolean allMatch(Predicate<? super T> predicate) {
+        Objects.requireNonNull(predicate);
+
+        return !matches("allMatch", predicate.negate());
+    }
+
+    @Override
+    public boolean noneMatch(Predicate<? super T> predicate) {
+        return !matches("noneMatch", predicate);
+    }
+
+    @Override
+    public Optional<T> findFirst() {
+        return findAny();
+    }
+
+    @Override
+    public Optional<T> findAny() {
+        prepareRun("findAny");
+
+        class First implements Consumer<T> {
+            private boolean found;
+            private T element;
+
+            @Override
+            public void accept(T element) {
+                this.found = true;
+                this.element = element;
+                streamerIterator.cancel();
+            }
+        }
+
+        try {
+            First first = new First();
+            streamerIterator.forEachRemaining(first, true);
+
+            return first.found ? Optional.of(first.element) : Optional.empty();
+        } finally {
+            internalClose();
+        }
+    }
+
+    //iterator over last element of source, when source reports it directly and operations are map() only (else - null)
+    private Iterator<?> tailOfSource() {
+        if (parallelPool != null || sourceIterable instanceof RandomAccess) //random access list is folded to the window
+            return null;
+
+        for (IntermediateOperation<?> operation : intermediateOperations)
+            if (!(operation instanceof MapOperation))
+                return null;
+
+        if (sourceIterable instanceof Collection && ((Collection<?>) sourceIterable).isEmpty())
+            return Collections.emptyIterator();
+
+        if (sourceIterable instanceof Deque)
+            return Collections.singletonList(((Deque<?>) sourceIterable).getLast()).iterator();
+        else if (sourceIterable instanceof NavigableSet)
+            return Collections.singletonList(((NavigableSet<?>) sourceIterable).last()).iterator();
+        else if (sourceIterable instanceof List) {
+            List<?> list = (List<?>) sourceIterable;
+            return Collections.singletonList(list.listIterator(list.size()).previous()).iterator();
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Optional<T> findLast() {
+        throwIfNotWaiting();
+
+        Iterator<?> tail = tailOfSource();
+        if (tail != null) { //only the last element will be pulled (and mapped)
+            sourceIterable = null;
+            sourceIterator = tail;
+        }
+
+        prepareRun("findLast");
+
+        try {
+            int knownSize = streamerIterator.knownSize();
+            if (knownSize > 1)
+                streamerIterator.skipKnown(knownSize - 1); //only last element will be mapped
+
+            class Last implements Consumer<T> {
+                private boolean found;
+                private T element;
+
+                @Override
+                public void accept(T element) {
+                    this.found = true;
+                    this.element = element;
+                }
+            }
+
+            Last last = new Last();
+            streamerIterator.forEachRemaining(last);
+
+            return last.found ? Optional.of(last.element) : Optional.empty();
+        } finally {
+            internalClose();
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        prepareRun("forEach");
+
+        try {
+            streamerIterator.forEachRemaining(action);
+        } finally {
+            internalClose();
+        }
+    }
+
+    @Override
+    public void forEachOrdered(Consumer<? super T> action) {
+        forEach(action);
+    }
+
+    @Override
+    public Optional<T> min(Comparator<? super T> comparator) {
+        Objects.requireNonNull(comparator);
+
+        prepareRun("min", true);
+
+        class Minimum implements Consumer<T> {
+            private boolean found;
+            private T min;
+
+            @Override
+            public void accept(T element) {
+                if (!found) {
+                    found = true;
+                    min = element;
+                } else if (comparator.compare(element, min) < 0) //first of minimal elements is kept
+                    min = element;
+            }
+        }
+
+        try {
+            Minimum minimum = new Minimum();
+            streamerIterator.forEachRemaining(minimum);
+
+            return minimum.found ? Optional.of(minimum.min) : Optional.empty();
+        } finally {
+            internalClose();
+        }
+    }
+
+    @SuppressWarnings("RedundantComparatorComparing")
+    @Override
+    public Optional<T> max(Comparator<? super T> comparator) {
+        Objects.requireNonNull(comparator);
+
+        return min(comparator.reversed());
+    }
 
     @Override
     public T reduce(T identity, BinaryOperator<T> accumulator) {
         Objects.requireNonNull(accumulator);
 
-        prepareRun();
+        prepareRun("reduce", true);
+
+        class Reduction implements Consumer<T> {
+            private T value = identity;
+
+            @Override
+            public void accept(T element) {
+                value = accumulator.apply(value, element);
+            }
+        }
+
+        try {
+            Reduction reduction = new Reduction();
+            streamerIterator.forEachRemaining(reduction);
+
+            return reduction.value;
+        } finally {
+            internalClose();
+        }
+    }
+
+    @Override
+    public Optional<T> reduce(BinaryOperator<T> binaryOperator) {
+        Objects.requireNonNull(binaryOperator);
+
+        prepareRun("reduce", true);
+
+        class Reduction implements Consumer<T> {
+            private boolean found;
+            private T value;
+
+            @Override
+            public void accept(T element) {
+                if (!found) {
+                    found = true;
+                    value = element;
+                } else
+                    value = binaryOperator.apply(value, element);
+            }
+        }
+
+        try {
+            Reduction reduction = new Reduction();
+            streamerIterator.forEachRemaining(reduction);
+
+            return reduction.found ? Optional.of(reduction.value) : Optional.empty();
+        } finally {
+            internalClose();
+        }
+    }
+
+    @Override
+    public <U> U reduce(U identity, BiFunction<U, ? super T, U> accumulator, BinaryOperator<U> combiner) {
+        Objects.requireNonNull(accumulator);
+        Objects.requireNonNull(combiner);
+
+        prepareRun("reduce", true);
+
+        class Reduction implements Consumer<T> {
+            private U value = identity;
+
+            @Override
+            public void accept(T element) {
+                value = accumulator.apply(value, element);
+            }
+        }
+
+        try {
+            Reduction reduction = new Reduction();
+            streamerIterator.forEachRemaining(reduction);
+
+            return reduction.value;
+        } finally {
+            internalClose();
+        }
+    }
+
+    @Override
+    public long count() {
+        prepareRun("count");
+
+        try {
+            int knownSize = streamerIterator.knownSize();
+            if (knownSize >= 0)
+                return knownSize;
+
+            class Counting implements Consumer<T> {
+                private long count;
+
+                @Override
+                public void accept(T element) {
+                    count++;
+                }
+            }
+
+            Counting counting = new Counting();
+            streamerIterator.forEachRemaining(counting);
+
+            return counting.count;
+        } finally {
+            internalClose();
+        }
+    }
+
+    @Override
+    public <R> R collect(Supplier<R> supplier, BiConsumer<R, ? super T> accumulator, BiConsumer<R, R> combiner) {
+        Objects.requireNonNull(supplier);
+
+        prepareRun("collect", true);
+
+        try {
+            R result = supplier.get();
+
+            streamerIterator.forEachRemaining(element -> accumulator.accept(result, element));
+
+            return result;
+        } finally {
+            internalClose();
+        }
+    }
+
+    @Override
+    public <R, A> R collect(Collector<? super T, A, R> collector) {
+        Objects.requireNonNull(collector);
+
+        prepareRun("collect", true);
+
+        try {
+            A container = collector.supplier().get();
+            BiConsumer<A, ? super T> accumulator = collector.accumulator();
+
+            streamerIterator.forEachRemaining(element -> accumulator.accept(container, element));
+
+            return collector.finisher().apply(container);
+        } finally {
+            internalClose();
+        }
+    }
+
+    /*
+        Writes encoded elements to channel: elements are encoded to pooled direct buffers, which are written
+        by gathering writes (channel is not closed)
+    */
+    @SuppressWarnings("WeakerAccess")
+    public WriteResult writeTo(WritableByteChannel channel, ElementEncoder<? super T> encoder) throws IOException {
+        Objects.requireNonNull(channel);
+        Objects.requireNonNull(encoder);
+
+        prepareRun("writeTo");
+
+        ChannelWriter<T> writer = new ChannelWriter<>(channel, encoder);
+
+        class Writing implements Consumer<T> {
+            private IOException failure;
+
+            @Override
+            public void accept(T element) {
+                try {
+                    writer.write(element);
+                } catch (IOException e) { //run is stopped at first failure (source loop is not short-circuited)
+                    failure = e;
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
 
         try {
-            if (!streamerIterator.hasNext())
-                return identity;
+            Writing writing = new Writing();
+            try {
+                streamerIterator.forEachRemaining(writing);
+            } catch (UncheckedIOException e) {
+                if (writing.failure != null)
+                    throw writing.failure;
+
+                throw e;
+            }
+
+            writer.flush();
+
+            return writer.result();
+        } finally {
+            writer.release();
+            internalClose();
+        }
+    }
+
+    //writes encoded elements to file (created or truncated)
+    @SuppressWarnings("WeakerAccess")
+    public WriteResult writeTo(Path path, ElementEncoder<? super T> encoder) throws IOException {
+        Objects.requireNonNull(path);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            return writeTo(channel, encoder);
+        }
+    }
+
+    //computes all aggregates of aggregation in one pass
+    @SuppressWarnings("WeakerAccess")
+    public Aggregation.Result aggregate(Aggregation<? super T> aggregation) {
+        Objects.requireNonNull(aggregation);
 
-            T value = identity;
-            while (streamerIterator.hasNext())
-                value = accumulator.apply(value, streamerIterator.next());
+        prepareRun("aggregate", true);
 
-            return value;
+        try {
+            return aggregation.aggregate(streamerIterator::forEachRemaining);
         } finally {
             internalClose();
         }
     }
 
-    @Override
-    public Optional<T> reduce(BinaryOperator<T> binaryOperator) {
-        Objects.requireNonNull(binaryOperator);
+    //two collectors in one pass, results are merged by merger
+    @SuppressWarnings("WeakerAccess")
+    public <R1, R2, R> R aggregate(Collector<? super T, ?, R1> collector1, Collector<? super T, ?, R2> collector2,
+                                   BiFunction<? super R1, ? super R2, R> merger) {
+        Objects.requireNonNull(merger);
+
+        Aggregation<T> aggregation = new Aggregation<>();
+        Aggregation.Key<R1> key1 = aggregation.collect(collector1);
+        Aggregation.Key<R2> key2 = aggregation.collect(collector2);
+
+        Aggregation.Result result = aggregate(aggregation);
+
+        return merger.apply(result.get(key1), result.get(key2));
+    }
 
-        prepareRun();
+    @Override
+    public Object[] toArray() {
+        prepareRun("toArray", true);
 
         try {
-            if (!streamerIterator.hasNext())
-                return Optional.empty();
+            int knownSize = streamerIterator.knownSize();
+            if (knownSize >= 0)
+                return streamerIterator.toKnownArray(new Object[knownSize]);
 
-            T value = streamerIterator.next();
-            while (streamerIterator.hasNext())
-                value = binaryOperator.apply(value, streamerIterator.next());
+            ChunkedBuffer buffer = finishToBuffer();
 
-            return Optional.of(value);
+            return buffer.toArray(new Object[buffer.size()]);
         } finally {
             internalClose();
         }
     }
 
+    @SuppressWarnings("SuspiciousToArrayCall")
     @Override
-    public <U> U reduce(U identity, BiFunction<U, ? super T, U> accumulator, BinaryOperator<U> combiner) {
-        Objects.requireNonNull(accumulator);
-        Objects.requireNonNull(combiner);
+    public <A> A[] toArray(IntFunction<A[]> generator) {
+        Objects.requireNonNull(generator);
 
-        prepareRun();
+        prepareRun("toArray", true);
 
         try {
-            if (!streamerIterator.hasNext())
-                return identity;
+            int knownSize = streamerIterator.knownSize();
+            if (knownSize >= 0) {
+                A[] result = generator.apply(knownSize);
+
+                if (result.length < knownSize)
+                    throw new IndexOutOfBoundsException("does not fit");
+
+                return streamerIterator.toKnownArray(result);
+            }
 
-            U valueU = identity;
-            while (streamerIterator.hasNext())
-                valueU = accumulator.apply(valueU, streamerIterator.next());
+            ChunkedBuffer buffer = finishToBuffer();
 
-            return valueU;
+            A[] result = generator.apply(buffer.size());
+
+            if (result.length < buffer.size())
+                throw new IndexOutOfBoundsException("does not fit");
+
+            return buffer.toArray(result);
         } finally {
             internalClose();
         }
     }
 
+    /*
+        Spliterator reports characteristics and size of elements, which are derived from the source and operations
+        (ex: sized through map(), sorted after sorted()). Pipeline of stateless operations over splittable source
+        is split with the source (each part has own copies of operations), other pipelines (and metered, parallel
+        ones, and ones over sources, which are closed or reuse elements, ex: records()) are not split.
+        Elements are kept by consumer of spliterator (ex: collect() of java.util.stream), so they are not reused
+    */
     @Override
-    public long count() {
-        prepareRun();
+    public Spliterator<T> spliterator() {
+        throwIfNotWaiting();
 
-        try {
-            int count = 0;
+        boolean splittable = (sourceIterable instanceof Collection || sourceIterable instanceof SpliteratorSource)
+                && !(sourceIterable instanceof ReusingSource) && !(sourceIterable instanceof AutoCloseable)
+                && metricsName == null && parallelPool == null;
+        for (IntermediateOperation<?> operation : intermediateOperations)
+            splittable &= operation instanceof StatelessOperation;
 
-            for (; streamerIterator.hasNext(); streamerIterator.next())
-                count++;
+        if (splittable) {
+            beginRun("spliterator", true);
 
-            return count;
-        } finally {
-            internalClose();
+            Spliterator<?> source = sourceIterable.spliterator();
+            StatelessOperation<?>[] operations = intermediateOperations.toArray(new StatelessOperation<?>[0]);
+            intermediateOperations.clear();
+            sourceIterable = null;
+
+            return new StatelessSpliterator<>(source, operations, this::completeRun);
+        }
+
+        Spliterator<?> source = sourceIterable instanceof Collection || sourceIterable instanceof SpliteratorSource
+                ? sourceIterable.spliterator() : null; //spliterator of other iterable can start iteration
+
+        int characteristics = source != null ? source.characteristics() : 0;
+        long size = source != null ? source.estimateSize() : Long.MAX_VALUE;
+        Comparator<?> comparator = (characteristics & Spliterator.SORTED) != 0 ? source.getComparator() : null;
+        for (IntermediateOperation<?> operation : intermediateOperations) {
+            characteristics = operation.characteristics(characteristics);
+            size = operation.estimateSize(size);
+            if (operation instanceof SortedOperation)
+                comparator = ((SortedOperation<?>) operation).comparator;
         }
+
+        if (comparator == Comparator.naturalOrder())
+            comparator = null;
+
+        prepareRun("spliterator", true);
+
+        return new IteratorSpliterator<>(streamerIterator, characteristics | Spliterator.ORDERED, size, comparator);
     }
 
-    @Override
-    public <R> R collect(Supplier<R> supplier, BiConsumer<R, ? super T> accumulator, BiConsumer<R, R> combiner) {
-        Objects.requireNonNull(supplier);
+    private static int characteristicsOf(StatelessOperation<?>[] operations, Spliterator<?> source) {
+        int characteristics = source.characteristics();
+        for (StatelessOperation<?> operation : operations)
+            characteristics = operation.characteristics(characteristics);
 
-        prepareRun();
+        return characteristics;
+    }
 
-        try {
-            R result = supplier.get();
+    //spliterator over elements of compiled pipeline (not splittable)
+    private static class IteratorSpliterator<E> implements Spliterator<E> {
+        private final Iterator<E> iterator;
+        private final int characteristics;
+        private long size;
+        private final Comparator<?> comparator;
 
-            for (;streamerIterator.hasNext();)
-                accumulator.accept(result, streamerIterator.next());
+        IteratorSpliterator(Iterator<E> iterator, int characteristics, long size, Comparator<?> comparator) {
+            this.iterator = iterator;
+            this.characteristics = characteristics & ~Spliterator.SUBSIZED;
+            this.size = size;
+            this.comparator = comparator;
+        }
 
-            return result;
-        } finally {
-            internalClose();
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+
+            if (!iterator.hasNext())
+                return false;
+
+            if (size != Long.MAX_VALUE)
+                size--;
+
+            action.accept(iterator.next());
+
+            return true;
         }
-    }
 
-    @Override
-    public <R, A> R collect(Collector<? super T, A, R> collector) {
-        Objects.requireNonNull(collector);
+        @Override
+        public Spliterator<E> trySplit() {
+            return null;
+        }
 
-        prepareRun();
+        @Override
+        public long estimateSize() {
+            return size;
+        }
 
-        try {
-            A accumulator = collector.supplier().get();
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
 
-            while (streamerIterator.hasNext())
-                collector.accumulator().accept(accumulator, streamerIterator.next());
+        @SuppressWarnings("unchecked")
+        @Override
+        public Comparator<? super E> getComparator() {
+            if (!hasCharacteristics(Spliterator.SORTED))
+                throw new IllegalStateException();
 
-            return collector.finisher().apply(accumulator);
-        } finally {
-            internalClose();
+            return (Comparator<? super E>) comparator;
         }
     }
 
-    @Override
-    public Object[] toArray() {
-        prepareRun();
+    //spliterator over source with stateless operations (splits together with the source)
+    private static class StatelessSpliterator<E> implements Spliterator<E>, Consumer<Object> {
+        private final Spliterator<?> source;
+        private final StatelessOperation<?>[] operations;
+        private final int characteristics;
 
-        try {
-            return finishToList().toArray();
-        } finally {
-            internalClose();
+        private final Stage<Object> head;
+        private final OutputStage output = new OutputStage();
+        private final boolean expanding;
+
+        private Runnable completion; //completes run, when source is exhausted (not split part only)
+
+        StatelessSpliterator(Spliterator<?> source, StatelessOperation<?>[] operations, Runnable completion) {
+            this.source = source;
+            this.completion = completion;
+            this.operations = operations;
+            this.characteristics = characteristicsOf(operations, source) | Spliterator.ORDERED;
+
+            //linking own copies of operations
+            Stage<Object> head = output;
+            for (int i = operations.length - 1; i >= 0; i--) {
+                StatelessOperation<?> operation = operations[i].copy();
+                operation.downstream = head;
+                head = Stage.of(operation);
+            }
+            this.head = head;
+            this.expanding = ExpandingOperation.isInChain(head);
         }
-    }
 
-    @SuppressWarnings("SuspiciousToArrayCall")
-    @Override
-    public <A> A[] toArray(IntFunction<A[]> generator) {
-        Objects.requireNonNull(generator);
+        @SuppressWarnings("unchecked")
+        @Override
+        public void accept(Object element) {
+            head.accept(element);
+        }
 
-        prepareRun();
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
 
-        try {
-            List<T> list = finishToList();
+            if (expanding)
+                head.resume();
 
-            A[] result = generator.apply(list.size());
+            while (!output.filled)
+                if (!source.tryAdvance(this)) {
+                    complete();
+                    return false;
+                }
 
-            if (result.length < list.size())
-                throw new IndexOutOfBoundsException("does not fit");
+            action.accept((E) output.take());
+
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
 
-            list.toArray(result);
+            if (expanding)
+                head.resume();
+            giveHeld(action);
 
-            return result;
-        } finally {
-            internalClose();
+            source.forEachRemaining(element -> {
+                head.accept(element);
+                giveHeld(action);
+            });
+
+            complete();
         }
-    }
 
-    @Override
-    public Spliterator<T> spliterator() {
-        return Spliterators.spliteratorUnknownSize(this.iterator(), Spliterator.ORDERED);
+        private void complete() {
+            if (completion != null) {
+                Runnable completion = this.completion;
+                this.completion = null;
+
+                completion.run();
+            }
+        }
+
+        //gives held element to action (with following children of paused 1:N operations)
+        @SuppressWarnings("unchecked")
+        private void giveHeld(Consumer<? super E> action) {
+            while (output.filled) {
+                action.accept((E) output.take());
+
+                if (expanding)
+                    head.resume();
+            }
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            Spliterator<?> prefix = source.trySplit();
+
+            return prefix != null ? new StatelessSpliterator<>(prefix, operations, null) : null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return source.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Comparator<? super E> getComparator() {
+            if (!hasCharacteristics(Spliterator.SORTED))
+                throw new IllegalStateException();
+
+            return (Comparator<? super E>) source.getComparator();
+        }
     }
 
     /*
             Other methods
     */
 
+    private ForkJoinPool parallelPool; //not null in parallel mode
+
     @Override
     public boolean isParallel() {
-        return false;
+        return parallelPool != null;
     }
 
     @Override
     public Streamer<T> sequential() {
+        throwIfNotWaiting();
+
+        parallelPool = null;
+
         return this;
     }
 
@@ -1084,23 +3315,259 @@ public final class Streamer<T> implements Stream<T>, Iterable<T> {
 
     @Override
     public Streamer<T> parallel() {
-        throw new UnsupportedOperationException();
+        return parallel(ForkJoinPool.commonPool());
+    }
+
+    /*
+        Parallel sorting (opt-in, by parallelSorting()): sorted() of sequential stream sorts data of threshold size
+        (and larger) by tasks of pool (stable, as sequential sorting), when all sorted elements are consumed
+        (ex: collect(), forEach()). Short-circuiting terminals and pulled iterator() use incremental sorting
+        (first elements are given without sorting of all data)
+    */
+    private int parallelSortingThreshold = Integer.MAX_VALUE; //disabled
+    private ForkJoinPool sortingPool;
+
+    /*
+        Metered pipeline (opt-in): each operation is counted and timed, metrics of run are given to the listener of pipeline
+        and to global listeners (see StreamerMetrics), when pipeline is completed or closed.
+        Pipeline, which is not metered, has no instrumentation at all. Parallel runs are reported without stages
+    */
+    private String metricsName; //not null, when pipeline is metered
+    private StreamerMetricsListener metricsListener;
+
+    @SuppressWarnings("WeakerAccess")
+    public Streamer<T> metered(String name) {
+        return metered(name, null);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Streamer<T> metered(String name, StreamerMetricsListener listener) {
+        Objects.requireNonNull(name);
+
+        throwIfNotWaiting();
+
+        metricsName = name;
+        metricsListener = listener;
+
+        return this;
+    }
+
+    private void reportMetrics() {
+        PipelineMetrics metrics = streamerIterator.metrics();
+        streamerIterator.meters = null; //reported once
+
+        if (metricsListener != null)
+            metricsListener.pipelineCompleted(metrics);
+
+        StreamerMetrics.pipelineCompleted(metrics);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Streamer<T> parallelSorting(int threshold) {
+        return parallelSorting(threshold, ForkJoinPool.commonPool());
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Streamer<T> parallelSorting(int threshold, ForkJoinPool pool) {
+        Objects.requireNonNull(pool);
+        if (threshold < 0)
+            throw new IllegalArgumentException("threshold must not be negative: " + threshold);
+
+        throwIfNotWaiting();
+
+        parallelSortingThreshold = threshold;
+        sortingPool = pool;
+
+        return this;
+    }
+
+    /*
+        Parallel mode (for sized sources: of(), from(Collection), from(Map)...): stateless operations (filter, map, peek)
+        are applied to the parts of source concurrently in pool, others - at once, in order of elements.
+        Stream with another source is running sequentially
+    */
+    @SuppressWarnings("WeakerAccess")
+    public Streamer<T> parallel(ForkJoinPool pool) {
+        Objects.requireNonNull(pool);
+
+        throwIfNotWaiting();
+
+        parallelPool = pool;
+
+        return this;
     }
 
     /*
             Additional
     */
 
+    /*
+        Grouping: elements are accumulated in place (by containers of downstream collector for each key),
+        expectedSize - expected count of keys (map is not rehashed up to it). Keys of groupByInt() and groupByLong()
+        are not boxed per element (open addressing map of primitive keys), result map is built once at the end
+    */
+
     @SuppressWarnings("WeakerAccess")
     public <K> Map<K,Collection<T>> groupBy(Function<? super T,? extends K> groupMapper) {
+        Objects.requireNonNull(groupMapper);
+
+        Function<K, Collection<T>> newGroup = key -> new ArrayList<>();
+
         return collect(HashMap::new,
-                (map, object) -> map.merge(
-                        groupMapper.apply(object),
-                        new ArrayList<>(Collections.singletonList(object)),
-                        ((left, right) -> {
-                            left.addAll(right);
-                            return left;
-                        }) ),
+                (map, object) -> map.computeIfAbsent(groupMapper.apply(object), newGroup).add(object),
+                null);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public <K, D> Map<K, D> groupBy(Function<? super T, ? extends K> keyMapper, Collector<? super T, ?, D> downstream) {
+        return groupBy(keyMapper, downstream, 16);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public <K, A, D> Map<K, D> groupBy(Function<? super T, ? extends K> keyMapper, Collector<? super T, A, D> downstream,
+                                       int expectedSize) {
+        Objects.requireNonNull(keyMapper);
+
+        Supplier<A> supplier = downstream.supplier();
+        BiConsumer<A, ? super T> accumulator = downstream.accumulator();
+        Function<K, A> newContainer = key -> supplier.get();
+
+        int capacity = hashCapacity(expectedSize);
+
+        Map<K, A> groups = collect(() -> new HashMap<>(capacity),
+                (map, element) -> accumulator.accept(map.computeIfAbsent(keyMapper.apply(element), newContainer), element),
                 null);
+
+        return finishGroups(groups, downstream);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, A, D> Map<K, D> finishGroups(Map<K, A> groups, Collector<?, A, D> downstream) {
+        if (!downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            Function<A, D> finisher = downstream.finisher();
+            ((Map<K, Object>) groups).replaceAll((key, container) -> finisher.apply((A) container)); //in place
+        }
+
+        return (Map<K, D>) groups;
+    }
+
+    private static int hashCapacity(int expectedSize) { //HashMap is not rehashed up to expected size
+        return (int) Math.min(requireExpectedSize(expectedSize) / 0.75 + 1, 1 << 30);
+    }
+
+    private static int requireExpectedSize(int expectedSize) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("expected size must not be negative: " + expectedSize);
+
+        return expectedSize;
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public <D> Map<Integer, D> groupByInt(ToIntFunction<? super T> keyMapper, Collector<? super T, ?, D> downstream) {
+        return groupByInt(keyMapper, downstream, 16);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public <A, D> Map<Integer, D> groupByInt(ToIntFunction<? super T> keyMapper, Collector<? super T, A, D> downstream,
+                                          int expectedSize) {
+        Objects.requireNonNull(keyMapper);
+        requireExpectedSize(expectedSize);
+
+        Supplier<A> supplier = downstream.supplier();
+        BiConsumer<A, ? super T> accumulator = downstream.accumulator();
+        LongFunction<A> newContainer = key -> supplier.get();
+
+        LongKeyedMap<A> groups = collect(() -> new LongKeyedMap<>(expectedSize),
+                (map, element) -> accumulator.accept(map.computeIfAbsent(keyMapper.applyAsInt(element), newContainer), element),
+                null);
+
+        return groups.toMap(key -> (int) key, downstream.finisher());
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public <D> Map<Long, D> groupByLong(ToLongFunction<? super T> keyMapper, Collector<? super T, ?, D> downstream) {
+        return groupByLong(keyMapper, downstream, 16);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public <A, D> Map<Long, D> groupByLong(ToLongFunction<? super T> keyMapper, Collector<? super T, A, D> downstream,
+                                          int expectedSize) {
+        Objects.requireNonNull(keyMapper);
+        requireExpectedSize(expectedSize);
+
+        Supplier<A> supplier = downstream.supplier();
+        BiConsumer<A, ? super T> accumulator = downstream.accumulator();
+        LongFunction<A> newContainer = key -> supplier.get();
+
+        LongKeyedMap<A> groups = collect(() -> new LongKeyedMap<>(expectedSize),
+                (map, element) -> accumulator.accept(map.computeIfAbsent(keyMapper.applyAsLong(element), newContainer), element),
+                null);
+
+        return groups.toMap(Long::valueOf, downstream.finisher());
+    }
+
+    //mutable counter of countBy() (count is not boxed per element)
+    private static class Counter {
+        private long count;
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public <K> Map<K, Long> countBy(Function<? super T, ? extends K> keyMapper) {
+        return countBy(keyMapper, 16);
+    }
+
+    @SuppressWarnings({"WeakerAccess", "unchecked"})
+    public <K> Map<K, Long> countBy(Function<? super T, ? extends K> keyMapper, int expectedSize) {
+        Objects.requireNonNull(keyMapper);
+
+        Function<K, Counter> newCounter = key -> new Counter();
+
+        int capacity = hashCapacity(expectedSize);
+
+        Map<K, Counter> counters = collect(() -> new HashMap<>(capacity),
+                (map, element) -> map.computeIfAbsent(keyMapper.apply(element), newCounter).count++,
+                null);
+
+        ((Map<K, Object>) (Map<K, ?>) counters).replaceAll((key, counter) -> ((Counter) counter).count); //in place
+
+        return (Map<K, Long>) (Map<K, ?>) counters;
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Map<Integer, Long> countByInt(ToIntFunction<? super T> keyMapper) {
+        return countByInt(keyMapper, 16);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Map<Integer, Long> countByInt(ToIntFunction<? super T> keyMapper, int expectedSize) {
+        Objects.requireNonNull(keyMapper);
+        requireExpectedSize(expectedSize);
+
+        LongFunction<Counter> newCounter = key -> new Counter();
+
+        LongKeyedMap<Counter> counters = collect(() -> new LongKeyedMap<>(expectedSize),
+                (map, element) -> map.computeIfAbsent(keyMapper.applyAsInt(element), newCounter).count++,
+                null);
+
+        return counters.toMap(key -> (int) key, counter -> counter.count);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Map<Long, Long> countByLong(ToLongFunction<? super T> keyMapper) {
+        return countByLong(keyMapper, 16);
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public Map<Long, Long> countByLong(ToLongFunction<? super T> keyMapper, int expectedSize) {
+        Objects.requireNonNull(keyMapper);
+        requireExpectedSize(expectedSize);
+
+        LongFunction<Counter> newCounter = key -> new Counter();
+
+        LongKeyedMap<Counter> counters = collect(() -> new LongKeyedMap<>(expectedSize),
+                (map, element) -> map.computeIfAbsent(keyMapper.applyAsLong(element), newCounter).count++,
+                null);
+
+        return counters.toMap(Long::valueOf, counter -> counter.count);
     }
 }
\ No newline at end of file
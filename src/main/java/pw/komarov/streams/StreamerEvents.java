@@ -0,0 +1,55 @@
+package pw.komarov.streams;
+
+/*
+    Events of Streamer execution for profiling: no-op here, Java Flight Recorder events are emitted on Java 11+
+    (JfrStreamerEvents of multi-release jar). Data of event is collected only when event is enabled in recording,
+    and event objects are opaque for callers (null - event is not recorded)
+*/
+
+class StreamerEvents {
+    static final StreamerEvents INSTANCE = load();
+
+    private static StreamerEvents load() {
+        try {
+            return (StreamerEvents) Class.forName("pw.komarov.streams.JfrStreamerEvents").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) { //Java 8, or JFR is not available
+            return new StreamerEvents();
+        }
+    }
+
+    //run of pipeline: from the start of terminal operation to its completion (or close)
+    boolean isPipelineEnabled() {
+        return false;
+    }
+
+    Object beginPipeline(String source, String stages, String terminal) {
+        return null;
+    }
+
+    void endPipeline(Object event) {
+    }
+
+    //finishing of collected operation (ex: sorting of collected elements)
+    boolean isMaterializationEnabled() {
+        return false;
+    }
+
+    Object beginMaterialization() {
+        return null;
+    }
+
+    void endMaterialization(Object event, String operation, int elements) {
+    }
+
+    //writing of run of spilled operation to temporary file
+    boolean isSpillEnabled() {
+        return false;
+    }
+
+    Object beginSpill() {
+        return null;
+    }
+
+    void endSpill(Object event, String file, int elements, long bytes) {
+    }
+}
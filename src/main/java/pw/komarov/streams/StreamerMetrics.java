@@ -0,0 +1,202 @@
+package pw.komarov.streams;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/*
+    Global listeners of metered pipelines (see Streamer.metered()), they receive metrics of all metered pipelines.
+    registerJmx() publishes totals of pipelines as MBeans "pw.komarov.streams:type=Pipeline,name=<pipeline name>".
+    Pipelines, which are not metered, are not instrumented at all
+*/
+
+public final class StreamerMetrics {
+    private static final List<StreamerMetricsListener> listeners = new CopyOnWriteArrayList<>();
+
+    private static JmxListener jmxListener;
+
+    private StreamerMetrics() {
+    }
+
+    public static void addListener(StreamerMetricsListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    public static void removeListener(StreamerMetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    static void pipelineCompleted(PipelineMetrics metrics) {
+        for (StreamerMetricsListener listener : listeners)
+            listener.pipelineCompleted(metrics);
+    }
+
+    public static synchronized void registerJmx() {
+        if (jmxListener == null) {
+            jmxListener = new JmxListener();
+            addListener(jmxListener);
+        }
+    }
+
+    //removes listener and registered MBeans
+    public static synchronized void unregisterJmx() {
+        if (jmxListener != null) {
+            removeListener(jmxListener);
+            jmxListener.unregister();
+            jmxListener = null;
+        }
+    }
+
+    static ObjectName objectName(String pipelineName) {
+        try {
+            return new ObjectName("pw.komarov.streams:type=Pipeline,name=" + ObjectName.quote(pipelineName));
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static class JmxListener implements StreamerMetricsListener {
+        private final Map<String, PipelineStatistics> statistics = new ConcurrentHashMap<>();
+
+        @Override
+        public void pipelineCompleted(PipelineMetrics metrics) {
+            statistics.computeIfAbsent(metrics.getName(), this::register).add(metrics);
+        }
+
+        private PipelineStatistics register(String name) {
+            PipelineStatistics pipelineStatistics = new PipelineStatistics();
+
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName objectName = objectName(name);
+                if (server.isRegistered(objectName))
+                    server.unregisterMBean(objectName);
+
+                server.registerMBean(new StandardMBean(pipelineStatistics, PipelineStatisticsMBean.class), objectName);
+            } catch (JMException e) {
+                throw new IllegalStateException(e);
+            }
+
+            return pipelineStatistics;
+        }
+
+        void unregister() {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (String name : statistics.keySet())
+                try {
+                    server.unregisterMBean(objectName(name));
+                } catch (InstanceNotFoundException ignored) {
+                    //already unregistered
+                } catch (JMException e) {
+                    throw new IllegalStateException(e);
+                }
+
+            statistics.clear();
+        }
+    }
+
+    //totals of pipeline runs (stages are summed by their positions)
+    private static class PipelineStatistics implements PipelineStatisticsMBean {
+        private long runs;
+        private long totalNanos;
+        private String[] operations = new String[0];
+        private long[] in = new long[0];
+        private long[] out = new long[0];
+        private int[] peakBufferSizes = new int[0];
+        private long[] nanos = new long[0];
+
+        synchronized void add(PipelineMetrics metrics) {
+            List<PipelineMetrics.Stage> stages = metrics.getStages();
+            if (!isSameShape(stages)) { //pipeline with the same name, but with other operations (totals are restarted)
+                runs = 0;
+                totalNanos = 0;
+                operations = new String[stages.size()];
+                in = new long[stages.size()];
+                out = new long[stages.size()];
+                peakBufferSizes = new int[stages.size()];
+                nanos = new long[stages.size()];
+                Arrays.fill(peakBufferSizes, -1);
+            }
+
+            runs++;
+            totalNanos += metrics.getNanos();
+            for (int i = 0; i < stages.size(); i++) {
+                PipelineMetrics.Stage stage = stages.get(i);
+
+                operations[i] = stage.getOperation();
+                in[i] += stage.getIn();
+                out[i] += stage.getOut();
+                peakBufferSizes[i] = Math.max(peakBufferSizes[i], stage.getPeakBufferSize());
+                nanos[i] += stage.getNanos();
+            }
+        }
+
+        private boolean isSameShape(List<PipelineMetrics.Stage> stages) {
+            if (stages.size() != operations.length)
+                return false;
+
+            for (int i = 0; i < operations.length; i++)
+                if (!stages.get(i).getOperation().equals(operations[i]))
+                    return false;
+
+            return true;
+        }
+
+        @Override
+        public synchronized long getRuns() {
+            return runs;
+        }
+
+        @Override
+        public synchronized long getTotalNanos() {
+            return totalNanos;
+        }
+
+        @Override
+        public synchronized String[] getStageOperations() {
+            return operations.clone();
+        }
+
+        @Override
+        public synchronized long[] getStageIn() {
+            return in.clone();
+        }
+
+        @Override
+        public synchronized long[] getStageOut() {
+            return out.clone();
+        }
+
+        @Override
+        public synchronized double[] getStageSelectivity() {
+            double[] selectivity = new double[in.length];
+            for (int i = 0; i < in.length; i++)
+                selectivity[i] = in[i] > 0 ? (double) out[i] / in[i] : 1;
+
+            return selectivity;
+        }
+
+        @Override
+        public synchronized int[] getStagePeakBufferSizes() {
+            return peakBufferSizes.clone();
+        }
+
+        @Override
+        public synchronized long[] getStageNanos() {
+            return nanos.clone();
+        }
+
+        @Override
+        public synchronized void reset() {
+            runs = 0;
+            totalNanos = 0;
+            operations = new String[0];
+            in = new long[0];
+            out = new long[0];
+            peakBufferSizes = new int[0];
+            nanos = new long[0];
+        }
+    }
+}
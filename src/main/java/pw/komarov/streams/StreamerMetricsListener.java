@@ -0,0 +1,7 @@
+package pw.komarov.streams;
+
+//receives metrics of metered pipeline (see Streamer.metered()), when pipeline is completed (or closed)
+@FunctionalInterface
+public interface StreamerMetricsListener {
+    void pipelineCompleted(PipelineMetrics metrics);
+}
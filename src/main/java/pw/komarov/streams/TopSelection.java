@@ -0,0 +1,121 @@
+package pw.komarov.streams;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+    Keeps first (in sort order) elements, not more than capacity: O(n log k) time, O(k) memory.
+    Elements are in max-heap (root is the greatest kept element, which replaced by smaller ones),
+    equal elements are ordered by arrival, so result is the same as by stable sorting
+*/
+
+final class TopSelection<E> {
+    private final Comparator<? super E> comparator;
+    private final int capacity;
+
+    private Object[] elements = new Object[16];
+    private long[] orders = new long[16]; //arrival order of elements
+    private int size;
+    private long order;
+
+    TopSelection(Comparator<? super E> comparator, int capacity) {
+        this.comparator = comparator;
+        this.capacity = capacity;
+    }
+
+    @SuppressWarnings("unchecked")
+    void add(E element) {
+        long order = this.order++;
+
+        if (size < capacity) {
+            if (size == elements.length) {
+                int length = (int) Math.min((long) size << 1, capacity);
+                elements = Arrays.copyOf(elements, length);
+                orders = Arrays.copyOf(orders, length);
+            }
+
+            elements[size] = element;
+            orders[size] = order;
+            siftUp(size++);
+        } else if (capacity > 0 && comparator.compare(element, (E) elements[0]) < 0) { //later equal element is greater
+            elements[0] = element;
+            orders[0] = order;
+            siftDown(0, size);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    //sorted kept elements (heap sort in place)
+    Iterator<E> finish() {
+        for (int last = size - 1; last > 0; last--) {
+            swap(0, last);
+            siftDown(0, last);
+        }
+
+        return new Iterator<E>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public E next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                E element = (E) elements[index];
+                elements[index++] = null;
+
+                return element;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(int i, int j) {
+        int result = comparator.compare((E) elements[i], (E) elements[j]);
+
+        return result != 0 ? result : Long.compare(orders[i], orders[j]);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (compare(index, parent) <= 0)
+                break;
+
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int size) {
+        for (int child; (child = (index << 1) + 1) < size; index = child) {
+            if (child + 1 < size && compare(child + 1, child) > 0)
+                child++;
+
+            if (compare(index, child) >= 0)
+                break;
+
+            swap(index, child);
+        }
+    }
+
+    private void swap(int i, int j) {
+        Object element = elements[i];
+        elements[i] = elements[j];
+        elements[j] = element;
+
+        long order = orders[i];
+        orders[i] = orders[j];
+        orders[j] = order;
+    }
+}
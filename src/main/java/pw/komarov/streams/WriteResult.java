@@ -0,0 +1,25 @@
+package pw.komarov.streams;
+
+//result of Streamer.writeTo(): counts of written elements and bytes
+public final class WriteResult {
+    private final long elements;
+    private final long bytes;
+
+    WriteResult(long elements, long bytes) {
+        this.elements = elements;
+        this.bytes = bytes;
+    }
+
+    public long getElements() {
+        return elements;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return elements + " elements, " + bytes + " bytes";
+    }
+}
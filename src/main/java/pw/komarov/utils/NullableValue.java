@@ -1,5 +1,10 @@
 package pw.komarov.utils;
 
+/*
+    Deprecated: Streamer hands elements over without boxing them to NullableValue (null is an element too),
+    class is kept for compatibility of its users
+*/
+@Deprecated
 public class NullableValue<E> {
     private static final NullableValue<?> NULLABLE = new NullableValue<>(null);
 
@@ -0,0 +1,117 @@
+package pw.komarov.streams;
+
+import jdk.jfr.*;
+
+//Java Flight Recorder events of Streamer execution (loaded by StreamerEvents on Java 11+)
+class JfrStreamerEvents extends StreamerEvents {
+    @Name("pw.komarov.streams.Pipeline")
+    @Label("Pipeline")
+    @Category("Streamer")
+    @Description("Run of Streamer pipeline by terminal operation")
+    static class PipelineEvent extends Event {
+        @Label("Source")
+        String source;
+
+        @Label("Stages")
+        String stages;
+
+        @Label("Terminal Operation")
+        String terminal;
+    }
+
+    @Name("pw.komarov.streams.Materialization")
+    @Label("Materialization")
+    @Category("Streamer")
+    @Description("Finishing of collected operation (ex: sorting of collected elements)")
+    static class MaterializationEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Elements")
+        int elements;
+    }
+
+    @Name("pw.komarov.streams.Spill")
+    @Label("Spill")
+    @Category("Streamer")
+    @Description("Writing of run of spilled operation to temporary file")
+    static class SpillEvent extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Elements")
+        int elements;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+    }
+
+    private static final EventType PIPELINE = EventType.getEventType(PipelineEvent.class);
+    private static final EventType MATERIALIZATION = EventType.getEventType(MaterializationEvent.class);
+    private static final EventType SPILL = EventType.getEventType(SpillEvent.class);
+
+    @Override
+    boolean isPipelineEnabled() {
+        return PIPELINE.isEnabled();
+    }
+
+    @Override
+    Object beginPipeline(String source, String stages, String terminal) {
+        PipelineEvent event = new PipelineEvent();
+        event.source = source;
+        event.stages = stages;
+        event.terminal = terminal;
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    void endPipeline(Object event) {
+        ((PipelineEvent) event).commit();
+    }
+
+    @Override
+    boolean isMaterializationEnabled() {
+        return MATERIALIZATION.isEnabled();
+    }
+
+    @Override
+    Object beginMaterialization() {
+        MaterializationEvent event = new MaterializationEvent();
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    void endMaterialization(Object event, String operation, int elements) {
+        MaterializationEvent materialization = (MaterializationEvent) event;
+        materialization.operation = operation;
+        materialization.elements = elements;
+        materialization.commit();
+    }
+
+    @Override
+    boolean isSpillEnabled() {
+        return SPILL.isEnabled();
+    }
+
+    @Override
+    Object beginSpill() {
+        SpillEvent event = new SpillEvent();
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    void endSpill(Object event, String file, int elements, long bytes) {
+        SpillEvent spill = (SpillEvent) event;
+        spill.file = file;
+        spill.elements = elements;
+        spill.bytes = bytes;
+        spill.commit();
+    }
+}
@@ -0,0 +1,329 @@
+package pw.komarov.streams;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Bridge between Streamer and java.util.concurrent.Flow (Java 11+, multi-release jar):
+
+        Streamer<Event> events = StreamerFlow.from(publisher, 256);  //requests by batches, buffers at most 256 elements
+        Flow.Publisher<Result> results = StreamerFlow.toPublisher(Streamer.from(source).filter(...).map(...));
+
+    Publisher of streamer pulls the fused pipeline only when subscriber requests elements, so backpressure
+    propagates through all operations up to the source
+*/
+
+public final class StreamerFlow {
+    private StreamerFlow() {
+    }
+
+    //stream of published elements: subscribes at start of terminal operation, and cancels subscription on close()
+    public static <T> Streamer<T> from(Flow.Publisher<? extends T> publisher, int prefetch) {
+        Objects.requireNonNull(publisher);
+        if (prefetch <= 0)
+            throw new IllegalArgumentException("prefetch must be positive: " + prefetch);
+
+        PublisherIterator<T> iterator = new PublisherIterator<>(publisher, prefetch);
+
+        return Streamer.from(iterator).onClose(iterator::close);
+    }
+
+    //publisher of stream elements (for one subscriber, as stream can be operated once), elements are emitted on requesting thread
+    public static <T> Flow.Publisher<T> toPublisher(Streamer<T> streamer) {
+        Objects.requireNonNull(streamer);
+
+        AtomicBoolean subscribed = new AtomicBoolean();
+
+        return subscriber -> {
+            Objects.requireNonNull(subscriber);
+
+            if (subscribed.compareAndSet(false, true))
+                subscriber.onSubscribe(new StreamerSubscription<>(streamer, subscriber));
+            else {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+                });
+                subscriber.onError(new IllegalStateException("stream has already been subscribed"));
+            }
+        };
+    }
+
+    //subscriber, which buffers elements in bounded ring (requested elements always fit), and gives them to stream
+    private static class PublisherIterator<T> implements Iterator<T>, Flow.Subscriber<T>, AutoCloseable {
+        private final Flow.Publisher<? extends T> publisher;
+        private final int prefetch;
+        private final int batch; //consumed elements are requested again by batches
+
+        private final Object[] ring;
+        private int head;
+        private int count;
+
+        private boolean subscribed;
+        private Flow.Subscription subscription;
+        private boolean done; //completed, failed or closed
+        private Throwable error;
+        private int consumed; //consumed elements count, which are not requested yet
+
+        PublisherIterator(Flow.Publisher<? extends T> publisher, int prefetch) {
+            this.publisher = publisher;
+            this.prefetch = prefetch;
+            this.batch = Math.max(prefetch >> 1, 1);
+            this.ring = new Object[prefetch];
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            synchronized (this) {
+                if (this.subscription != null || done) {
+                    subscription.cancel();
+                    return;
+                }
+
+                this.subscription = subscription;
+            }
+
+            subscription.request(prefetch);
+        }
+
+        @Override
+        public synchronized void onNext(T item) {
+            if (done)
+                return;
+
+            if (count == ring.length) { //more elements, than requested
+                fail(new IllegalStateException("publisher does not respect requested elements count"));
+                subscription.cancel();
+                return;
+            }
+
+            ring[(head + count++) % ring.length] = item;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void onError(Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            done = true;
+            notifyAll();
+        }
+
+        private void fail(Throwable throwable) {
+            if (!done) {
+                done = true;
+                error = throwable;
+                notifyAll();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            subscribeOnce();
+
+            synchronized (this) {
+                while (count == 0 && !done)
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        close();
+
+                        throw new CompletionException(e);
+                    }
+
+                if (count == 0 && error != null) {
+                    Throwable throwable = error;
+                    error = null; //thrown once
+
+                    if (throwable instanceof RuntimeException)
+                        throw (RuntimeException) throwable;
+                    if (throwable instanceof Error)
+                        throw (Error) throwable;
+
+                    throw new CompletionException(throwable);
+                }
+
+                return count > 0;
+            }
+        }
+
+        private void subscribeOnce() {
+            synchronized (this) {
+                if (subscribed)
+                    return;
+
+                subscribed = true;
+            }
+
+            publisher.subscribe(this);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            T element;
+            long request = 0;
+            Flow.Subscription subscription;
+            synchronized (this) {
+                element = (T) ring[head];
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                count--;
+
+                if (++consumed >= batch && !done) {
+                    request = consumed;
+                    consumed = 0;
+                }
+                subscription = this.subscription;
+            }
+
+            if (request > 0)
+                subscription.request(request); //outside of lock: publisher can emit synchronously
+
+            return element;
+        }
+
+        @Override
+        public void close() {
+            Flow.Subscription subscription;
+            synchronized (this) {
+                subscription = done ? null : this.subscription;
+                done = true;
+                count = 0;
+                notifyAll();
+            }
+
+            if (subscription != null)
+                subscription.cancel();
+        }
+    }
+
+    /*
+        Subscription, which pulls elements of stream on demand (drain loop: requests from onNext() are not recursive).
+        Stream is pulled and closed by the thread, which owns drain loop: cancel() and invalid request are signalled
+        to it (stream is not thread-safe)
+    */
+    private static class StreamerSubscription<T> implements Flow.Subscription {
+        private final Streamer<T> streamer;
+        private final Flow.Subscriber<? super T> subscriber;
+
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger(); //draining is in progress (with pending requests count)
+        private volatile boolean cancelled;
+        private volatile Throwable requestError; //invalid request, signalled by drain loop
+
+        private Iterator<T> iterator;
+
+        StreamerSubscription(Streamer<T> streamer, Flow.Subscriber<? super T> subscriber) {
+            this.streamer = streamer;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0)
+                requestError = new IllegalArgumentException("requested elements count must be positive: " + n);
+            else
+                requested.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0)
+                return;
+
+            do {
+                long demand = requested.get();
+                long emitted = 0;
+
+                while (emitted != demand) {
+                    if (terminated())
+                        return;
+
+                    T element;
+                    try {
+                        if (!hasNext()) {
+                            complete();
+                            return;
+                        }
+
+                        element = iterator.next();
+                    } catch (Throwable throwable) {
+                        fail(throwable);
+                        return;
+                    }
+
+                    subscriber.onNext(element);
+                    emitted++;
+                }
+
+                if (terminated())
+                    return;
+
+                //stream is not pulled beyond demand (exhausted stream is completed by the next request)
+                if (demand != Long.MAX_VALUE)
+                    requested.addAndGet(-emitted);
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        //true, when subscription is cancelled or invalid request is received (drain loop is not continued)
+        private boolean terminated() {
+            if (cancelled) {
+                streamer.close();
+                return true;
+            }
+
+            Throwable throwable = requestError;
+            if (throwable != null) {
+                fail(throwable);
+                return true;
+            }
+
+            return false;
+        }
+
+        private boolean hasNext() {
+            if (iterator == null)
+                iterator = streamer.iterator();
+
+            return iterator.hasNext();
+        }
+
+        private void complete() {
+            cancelled = true;
+            streamer.close();
+            subscriber.onComplete();
+        }
+
+        private void fail(Throwable throwable) {
+            cancelled = true;
+            streamer.close();
+            subscriber.onError(throwable);
+        }
+    }
+}
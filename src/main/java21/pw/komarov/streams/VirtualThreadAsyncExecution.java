@@ -0,0 +1,14 @@
+package pw.komarov.streams;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+//mapAsync() tasks are running on virtual threads (loaded by AsyncExecution on Java 21+)
+class VirtualThreadAsyncExecution extends AsyncExecution {
+    private final Executor executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Override
+    Executor executor() {
+        return executor;
+    }
+}
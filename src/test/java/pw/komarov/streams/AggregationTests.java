@@ -0,0 +1,59 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregationTests {
+    @Test
+    void onePassTest() {
+        AtomicInteger generated = new AtomicInteger();
+
+        Aggregation<Integer> aggregation = new Aggregation<>();
+        Aggregation.Key<Long> count = aggregation.count();
+        Aggregation.Key<Long> sum = aggregation.longSum(i -> i);
+        Aggregation.Key<Optional<Integer>> min = aggregation.min(Integer::compareTo);
+        Aggregation.Key<Optional<Integer>> max = aggregation.max(Integer::compareTo);
+        Aggregation.Key<DoubleSummaryStatistics> statistics = aggregation.doubleStatistics(i -> i / 2.0);
+        Aggregation.Key<Map<Boolean, List<Integer>>> groups = aggregation.collect(Collectors.partitioningBy(i -> i % 2 == 0));
+
+        Aggregation.Result result = Streamer.generate(generated::incrementAndGet).limit(10).aggregate(aggregation);
+
+        assertEquals(10, generated.get());
+        assertEquals(10L, result.get(count));
+        assertEquals(55L, result.get(sum));
+        assertEquals(1, result.get(min).get());
+        assertEquals(10, result.get(max).get());
+        assertEquals(2.75, result.get(statistics).getAverage());
+        assertEquals(Arrays.asList(2, 4, 6, 8, 10), result.get(groups).get(true));
+    }
+
+    @Test
+    void emptyAndReuseTest() {
+        Aggregation<String> aggregation = new Aggregation<>();
+        Aggregation.Key<Long> count = aggregation.count();
+        Aggregation.Key<Optional<String>> min = aggregation.min(String::compareTo);
+
+        Aggregation.Result empty = Streamer.<String>empty().aggregate(aggregation);
+        assertEquals(0L, empty.get(count));
+        assertFalse(empty.get(min).isPresent());
+
+        Aggregation.Result result = Streamer.of("b", "a", "c").aggregate(aggregation);
+        assertEquals(3L, result.get(count));
+        assertEquals("a", result.get(min).get());
+
+        assertThrows(IllegalArgumentException.class, () -> result.get(new Aggregation<String>().count()));
+    }
+
+    @Test
+    void twoCollectorsTest() {
+        double average = Streamer.of(1, 2, 3, 4)
+                .aggregate(Collectors.summingInt(i -> i), Collectors.counting(), (total, count) -> (double) total / count);
+
+        assertEquals(2.5, average);
+    }
+}
@@ -0,0 +1,70 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class AllocationTests {
+    private static final Integer VALUE = 42; //cached, so source allocates nothing too
+
+    private static long allocatedBytes(long elements, Consumer<Streamer<Integer>> terminal) {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+
+        terminal.accept(Streamer.generate(() -> VALUE)
+                .skip(10)
+                .filter(i -> i > 0)
+                .map(i -> i)
+                .limit(elements));
+
+        return threadMXBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private static void assertZeroBytesPerElement(Consumer<Streamer<Integer>> terminal) {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        assumeTrue(((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported());
+
+        for (int i = 0; i < 5; i++) //warming up
+            allocatedBytes(100_000, terminal);
+
+        long small = allocatedBytes(100_000, terminal);
+        long large = allocatedBytes(1_100_000, terminal);
+
+        //pipeline construction costs are the same, so difference is allocated by the elements (must be zero)
+        double bytesPerElement = (large - small) / 1_000_000.0;
+        assertTrue(bytesPerElement < 0.01, "allocated bytes per element: " + bytesPerElement);
+    }
+
+    @Test
+    void zeroBytesPerElementTest() {
+        assertZeroBytesPerElement(streamer -> streamer.forEach(i -> {}));
+    }
+
+    @Test
+    void pullingIteratorTest() {
+        assertZeroBytesPerElement(streamer -> {
+            Iterator<Integer> iterator = streamer.iterator();
+            while (iterator.hasNext())
+                iterator.next();
+        });
+    }
+
+    @Test
+    void terminalsWithoutMaterializationTest() {
+        assertZeroBytesPerElement(streamer -> streamer.min(Integer::compare));
+        assertZeroBytesPerElement(streamer -> streamer.max(Integer::compare));
+        assertZeroBytesPerElement(Streamer::count);
+        assertZeroBytesPerElement(streamer -> streamer.reduce(0, (a, b) -> b));
+        assertZeroBytesPerElement(streamer -> streamer.collect(Collectors.counting()));
+    }
+}
@@ -0,0 +1,100 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchTests {
+    private final List<Integer> integers = IntStream.range(0, 10).boxed().collect(Collectors.toList());
+
+    @Test
+    void batchTest() {
+        assertEquals(Arrays.asList(Arrays.asList(0, 1, 2, 3), Arrays.asList(4, 5, 6, 7), Arrays.asList(8, 9)),
+                Streamer.from(integers).batch(4).collect(Collectors.toList()));
+
+        assertEquals(Collections.emptyList(), Streamer.empty().batch(4).collect(Collectors.toList()));
+        assertThrows(IllegalArgumentException.class, () -> Streamer.from(integers).batch(0));
+    }
+
+    @Test
+    void operatedUpstreamTest() {
+        Streamer<Integer> upstream = Streamer.from(integers);
+        Streamer<List<Integer>> batches = upstream.batch(5);
+
+        assertThrows(IllegalStateException.class, () -> upstream.limit(2));
+        assertThrows(IllegalStateException.class, upstream::iterator);
+
+        assertEquals(2, batches.count());
+    }
+
+    @Test
+    void limitSkipLastTest() {
+        assertEquals(Arrays.asList(Arrays.asList(2, 3, 4), Arrays.asList(5, 6)),
+                Streamer.from(integers).skip(2).limit(5).batch(3).collect(Collectors.toList()));
+
+        assertEquals(Arrays.asList(Arrays.asList(3, 4, 5)),
+                Streamer.from(integers).batch(3).skip(1).limit(1).collect(Collectors.toList()));
+
+        assertEquals(Arrays.asList(Arrays.asList(6, 7, 8), Arrays.asList(9)),
+                Streamer.from(integers).batch(3).last(2).collect(Collectors.toList()));
+
+        AtomicInteger pulled = new AtomicInteger();
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), Streamer.generate(pulled::getAndIncrement)
+                .batch(3).limit(2).flatMap(List::stream).collect(Collectors.toList()));
+        assertEquals(6, pulled.get()); //source is not pulled after the last batch
+    }
+
+    @Test
+    void reusingBufferTest() {
+        List<List<Integer>> batches = new ArrayList<>();
+        List<Integer> sums = new ArrayList<>();
+
+        Streamer.from(integers).batch(Batching.of(4).reusingBuffer()).forEach(batch -> {
+            batches.add(batch);
+            sums.add(batch.stream().mapToInt(Integer::intValue).sum());
+        });
+
+        assertEquals(Arrays.asList(6, 22, 17), sums);
+        assertSame(batches.get(0), batches.get(2)); //one list for all batches
+
+        //collected batches are not reused
+        assertEquals(Arrays.asList(Arrays.asList(8, 9), Arrays.asList(4, 5, 6, 7)),
+                Streamer.from(integers).batch(Batching.of(4).reusingBuffer()).last(2).reversed().collect(Collectors.toList()));
+
+        //distinct batches are not reused
+        assertEquals(Arrays.asList(Arrays.asList(1, 1), Arrays.asList(2, 2)), Streamer.of(1, 1, 2, 2, 1, 1)
+                .batch(Batching.of(2).reusingBuffer()).distinct().collect(Collectors.toList()));
+    }
+
+    @Test
+    void maxWaitTest() {
+        AtomicLong now = new AtomicLong();
+
+        //each element is generated in 400 ms
+        List<List<Long>> batches = Streamer.generate(() -> now.addAndGet(TimeUnit.MILLISECONDS.toNanos(400)) / 1_000_000)
+                .batch(Batching.of(100).maxWait(1, TimeUnit.SECONDS).clock(now::get))
+                .limit(2)
+                .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(Arrays.asList(400L, 800L, 1200L, 1600L), Arrays.asList(2000L, 2400L, 2800L, 3200L)), batches);
+    }
+
+    @Test
+    void closeTest() {
+        AtomicBoolean closed = new AtomicBoolean();
+
+        Streamer<List<Integer>> streamer = Streamer.from(integers).onClose(() -> closed.set(true)).batch(5);
+        assertEquals(Optional.of(Arrays.asList(0, 1, 2, 3, 4)), streamer.findFirst());
+
+        streamer.close();
+        assertTrue(closed.get());
+    }
+}
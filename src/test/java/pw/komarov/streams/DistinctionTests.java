@@ -0,0 +1,84 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistinctionTests {
+    private final List<Integer> integers = Arrays.asList(1, 2, 1, 3, 3, 2, 4, 1);
+
+    @Test
+    void hashedTest() {
+        assertEquals(Arrays.asList(1, 2, 3, 4), Streamer.from(integers).distinct().collect(Collectors.toList()));
+        assertEquals(Arrays.asList(1, 2, 3, 4), Streamer.from(integers).distinct(Distinction.hashed()).collect(Collectors.toList()));
+    }
+
+    @Test
+    void sortedTest() {
+        assertEquals(Arrays.asList(1, 2, 3, 4), Streamer.from(integers).sorted().distinct(Distinction.sorted()).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(null, 1, 2), Streamer.of(null, null, 1, 1, 2).distinct(Distinction.sorted()).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(1, 2, 1), Streamer.of(1, 1, 2, 1).distinct(Distinction.sorted()).collect(Collectors.toList())); //not sorted
+    }
+
+    @Test
+    void lastSeenTest() {
+        //1 is evicted by 2 and 3, so it passes again; seen duplicate 3 becomes recent
+        assertEquals(Arrays.asList(1, 2, 3, 1, 2, 4),
+                Streamer.of(1, 2, 3, 3, 1, 3, 2, 4, 4).distinct(Distinction.lastSeen(2)).collect(Collectors.toList()));
+
+        assertEquals(1000, Streamer.iterate(0, i -> (i + 1) % 1000).limit(100_000).distinct(Distinction.lastSeen(1000)).count());
+
+        assertThrows(IllegalArgumentException.class, () -> Distinction.lastSeen(0));
+    }
+
+    @Test
+    void windowTest() {
+        AtomicLong clock = new AtomicLong();
+
+        Distinction<Integer> distinction = Distinction.window(10, clock::getAndIncrement); //each element - 1 tick later
+        assertEquals(Arrays.asList(1, 2, 1), Streamer.of(1, 2, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1).distinct(distinction)
+                .collect(Collectors.toList()));
+
+        assertEquals(Arrays.asList(1, 2), Streamer.from(integers).limit(3).distinct(Distinction.window(1, TimeUnit.HOURS))
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void primitiveKeysTest() {
+        List<Person> persons = Arrays.asList(
+                new Person("Ann", Person.Gender.FEMALE, 10),
+                new Person("Bob", Person.Gender.MALE, 20),
+                new Person("Kate", Person.Gender.FEMALE, 10));
+
+        assertEquals(Arrays.asList("Ann", "Bob"), Streamer.from(persons).distinct(Distinction.byInt(Person::getAge))
+                .map(Person::getName).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("Ann", "Bob", "Kate"), Streamer.from(persons).distinct(Distinction.byLong(Person::getId))
+                .map(Person::getName).collect(Collectors.toList()));
+    }
+
+    @Test
+    void distinctByTest() {
+        assertEquals(Arrays.asList("a", "bb", "ccc"), Streamer.of("a", "bb", "c", "dd", "ccc").distinctBy(String::length)
+                .collect(Collectors.toList()));
+        assertEquals(Arrays.asList("a", "bb", "c"), Streamer.of("a", "b", "bb", "dd", "c").distinctBy(String::length, Distinction.sorted())
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void approximateTest() {
+        assertEquals(Arrays.asList(1, 2, 3, 4), Streamer.from(integers).distinct(Distinction.approximate(100, 0.01))
+                .collect(Collectors.toList()));
+
+        //duplicates are never passed, new elements are lost with false positive rate
+        long count = Streamer.iterate(0, i -> i + 1).limit(10_000).flatMap(i -> Streamer.of(i, i))
+                .distinct(Distinction.approximate(10_000, 0.01)).count();
+        assertTrue(count <= 10_000 && count > 9_800, String.valueOf(count));
+
+        assertThrows(IllegalArgumentException.class, () -> Distinction.approximate(10, 1));
+    }
+}
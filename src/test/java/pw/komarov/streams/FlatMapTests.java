@@ -0,0 +1,143 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatMapTests {
+    private final List<List<Integer>> lists = Arrays.asList(Arrays.asList(1, 2), Collections.emptyList(), Arrays.asList(3, 4, 5));
+
+    @Test
+    void flatMapIterableTest() {
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), Streamer.from(lists).flatMapIterable(list -> list).collect(Collectors.toList()));
+
+        assertEquals(Arrays.asList("b", "a"), Streamer.of("a", "b").flatMapIterable(Collections::singleton).reversed()
+                .collect(Collectors.toList()));
+
+        assertEquals(Arrays.asList(1, 3), Streamer.from(lists).flatMapIterable(list -> list.isEmpty() ? null : list.subList(0, 1))
+                .collect(Collectors.toList())); //null - no children
+    }
+
+    @Test
+    void mapMultiTest() {
+        List<Object> result = Streamer.of(1, 2, 3)
+                .<Object>mapMulti((element, consumer) -> {
+                    for (int i = 0; i < element; i++)
+                        consumer.accept(element);
+                })
+                .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(1, 2, 2, 3, 3, 3), result);
+
+        assertEquals(Arrays.asList(null, null), Streamer.of(1, 2).mapMulti((Integer element, Consumer<Object> consumer) -> consumer.accept(null))
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void limitStopsExpansionTest() {
+        AtomicInteger iterated = new AtomicInteger();
+        List<Integer> large = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(0, 1, 2), Streamer.of(1, 2)
+                .flatMapIterable(element -> () -> large.stream().peek(i -> iterated.incrementAndGet()).iterator())
+                .limit(3).collect(Collectors.toList()));
+        assertTrue(iterated.get() <= 4);
+
+        AtomicInteger pushed = new AtomicInteger();
+        AtomicInteger passed = new AtomicInteger();
+        assertEquals(2, Streamer.of(1, 2)
+                .<Integer>mapMulti((element, consumer) -> large.forEach(i -> {
+                    pushed.incrementAndGet();
+                    consumer.accept(i);
+                }))
+                .peek(i -> passed.incrementAndGet())
+                .limit(2)
+                .count());
+        assertEquals(2, passed.get());
+        assertEquals(1000, pushed.get()); //the second element is not expanded
+
+        AtomicInteger generated = new AtomicInteger();
+        assertEquals(Arrays.asList(0, 0, 1), Streamer.generate(generated::getAndIncrement)
+                .flatMap(i -> Stream.of(i, i)).limit(3).collect(Collectors.toList()));
+        assertEquals(2, generated.get());
+    }
+
+    @Test
+    void flatMapTest() {
+        AtomicInteger closed = new AtomicInteger();
+        AtomicBoolean parentClosed = new AtomicBoolean();
+
+        Streamer<Integer> streamer = Streamer.from(lists).onClose(() -> parentClosed.set(true))
+                .flatMap(list -> list.stream().onClose(closed::incrementAndGet));
+        assertEquals(Arrays.asList(5, 4, 3, 2, 1), streamer.sorted(Comparator.reverseOrder()).collect(Collectors.toList()));
+        assertEquals(3, closed.get()); //children streams are closed
+
+        streamer.close();
+        assertTrue(parentClosed.get());
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), Streamer.from(lists).parallel().flatMap(List::stream).collect(Collectors.toList()));
+    }
+
+    @Test
+    void iteratorAndSpliteratorTest() {
+        Iterator<Integer> iterator = Streamer.from(lists).flatMapIterable(list -> list).iterator();
+        List<Integer> iterated = new ArrayList<>();
+        iterator.forEachRemaining(iterated::add);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), iterated);
+
+        Spliterator<Integer> spliterator = Streamer.from(lists).<Integer>mapMulti((list, consumer) -> list.forEach(consumer))
+                .spliterator();
+        List<Integer> advanced = new ArrayList<>();
+        assertTrue(spliterator.tryAdvance(advanced::add));
+        spliterator.forEachRemaining(advanced::add);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), advanced);
+        assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+    }
+
+    @Test
+    void pullModeTest() {
+        assertEquals(0, Streamer.of(1).flatMap(i -> Stream.iterate(0, x -> x + 1)).iterator().next()); //infinite child
+
+        AtomicInteger advanced = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        Iterator<Integer> iterator = Streamer.of(1, 2)
+                .flatMap(i -> Stream.iterate(i * 10, x -> x + 1).peek(x -> advanced.incrementAndGet()).onClose(closed::incrementAndGet))
+                .flatMapIterable(i -> Arrays.asList(i, -i))
+                .iterator();
+        assertEquals(Arrays.asList(10, -10, 11), Arrays.asList(iterator.next(), iterator.next(), iterator.next()));
+        assertEquals(2, advanced.get()); //children are pulled one by one
+
+        List<Integer> rest = new ArrayList<>();
+        Streamer.from(iterator).limit(3).forEach(rest::add); //resumed in push mode
+        assertEquals(Arrays.asList(-11, 12, -12), rest);
+
+        Iterator<Integer> limited = Streamer.of(1).flatMap(i -> Stream.iterate(0, x -> x + 1).onClose(closed::incrementAndGet))
+                .limit(2).iterator();
+        assertEquals(Arrays.asList(0, 1), Arrays.asList(limited.next(), limited.next()));
+        assertFalse(limited.hasNext());
+        assertEquals(1, closed.get()); //paused child is closed with run
+
+        Spliterator<Integer> spliterator = Streamer.of(1).flatMap(i -> Stream.iterate(0, x -> x + 1)).filter(i -> i % 2 == 0)
+                .spliterator();
+        List<Integer> split = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            assertTrue(spliterator.tryAdvance(split::add));
+        assertEquals(Arrays.asList(0, 2, 4), split);
+
+        Iterator<Object> multi = Streamer.of(2, 1).mapMulti((Integer element, Consumer<Object> consumer) -> {
+            for (int i = 0; i < element; i++)
+                consumer.accept(element);
+        }).iterator();
+        List<Object> multiplied = new ArrayList<>();
+        multi.forEachRemaining(multiplied::add);
+        assertEquals(Arrays.asList(2, 2, 1), multiplied);
+    }
+}
@@ -0,0 +1,60 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FusedPipelineTests {
+    @Test
+    void peekIsPositionalTest() {
+        List<Integer> peeked = new ArrayList<>();
+
+        Object[] result = Streamer.of(1, 2, 3, 4, 5, 6)
+                .peek(peeked::add)
+                .filter(i -> i % 2 == 0)
+                .limit(2)
+                .toArray();
+
+        assertArrayEquals(new Integer[]{2, 4}, result);
+        assertArrayEquals(new Integer[]{1, 2, 3, 4}, peeked.toArray());
+    }
+
+    @Test
+    void mapChainTest() {
+        Object[] result = Streamer.iterate(1, i -> i + 1)
+                .map(i -> i * 10)
+                .filter(i -> i % 20 == 0)
+                .map(String::valueOf)
+                .map(String::length)
+                .skip(1)
+                .limit(3)
+                .toArray();
+
+        assertArrayEquals(new Integer[]{2, 2, 2}, result);
+    }
+
+    @Test
+    void limitDoesNotPullSourceTest() {
+        AtomicInteger ai = new AtomicInteger();
+
+        assertEquals(0, Streamer.generate(ai::getAndIncrement).limit(0).count());
+        assertEquals(0, ai.get());
+
+        assertEquals(5, Streamer.generate(ai::getAndIncrement).map(i -> i * 2).limit(5).count());
+        assertEquals(5, ai.get());
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @Test
+    void mappedUpstreamIsOperatedTest() {
+        Streamer<Integer> streamer = Streamer.of(1, 2, 3);
+        Streamer<String> mapped = streamer.map(String::valueOf);
+
+        assertThrows(IllegalStateException.class, () -> streamer.filter(i -> true));
+        assertArrayEquals(new String[]{"1", "2", "3"}, mapped.toArray());
+    }
+}
@@ -0,0 +1,121 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupingTests {
+    private static final List<String> WORDS = Arrays.asList("one", "two", "three", "four", "five", "six", "seven");
+
+    @Test
+    void downstreamCollectorTest() {
+        Map<Integer, String> joined = Streamer.from(WORDS).groupBy(String::length, Collectors.joining(","));
+        assertEquals(WORDS.stream().collect(Collectors.groupingBy(String::length, Collectors.joining(","))), joined);
+
+        Map<Character, List<String>> listed = Streamer.from(WORDS).groupBy(s -> s.charAt(0), Collectors.toList(), 4);
+        assertEquals(WORDS.stream().collect(Collectors.groupingBy(s -> s.charAt(0))), listed);
+    }
+
+    @Test
+    void countByTest() {
+        Map<Integer, Long> expected = WORDS.stream().collect(Collectors.groupingBy(String::length, Collectors.counting()));
+
+        assertEquals(expected, Streamer.from(WORDS).countBy(String::length));
+        assertEquals(expected, Streamer.from(WORDS).countBy(String::length, 3));
+        assertEquals(Collections.emptyMap(), Streamer.from(Collections.<String>emptyList()).countBy(String::length));
+
+        assertThrows(IllegalArgumentException.class, () -> Streamer.from(WORDS).countBy(String::length, -1));
+    }
+
+    @Test
+    void primitiveKeysTest() {
+        List<Integer> numbers = Arrays.asList(0, 1, -1, 2, 0, 3, Integer.MIN_VALUE, 0);
+
+        assertEquals(numbers.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting())),
+                Streamer.from(numbers).countByInt(Integer::intValue));
+        assertEquals(numbers.stream().collect(Collectors.groupingBy(Integer::longValue, Collectors.counting())),
+                Streamer.from(numbers).countByLong(Integer::longValue));
+
+        assertEquals(numbers.stream().collect(Collectors.groupingBy(i -> i % 2, Collectors.summingInt(i -> 1))),
+                Streamer.from(numbers).groupByInt(i -> i % 2, Collectors.summingInt(i -> 1)));
+        assertEquals(numbers.stream().collect(Collectors.groupingBy(i -> (long) i * i, Collectors.toList())),
+                Streamer.from(numbers).groupByLong(i -> (long) i * i, Collectors.toList()));
+    }
+
+    @Test
+    void rehashTest() {
+        int count = 10_000;
+
+        Map<Integer, Long> ints = Streamer.from(IntStream.range(-count, count).boxed().iterator())
+                .countByInt(i -> i / 2);
+        assertEquals(count, ints.size());
+        assertEquals(3L, ints.get(0)); //-1, 0, 1
+        assertEquals(2L, ints.get(count / 2 - 1));
+
+        Map<Long, List<Integer>> longs = Streamer.from(IntStream.range(0, count).boxed().iterator())
+                .groupByLong(i -> (long) i << 32, Collectors.toList());
+        assertEquals(count, longs.size());
+        assertEquals(Collections.singletonList(count - 1), longs.get((long) (count - 1) << 32));
+
+        Map<Integer, Set<Integer>> big = Streamer.from(IntStream.range(0, count).boxed().iterator())
+                .groupBy(i -> i % 1000, Collectors.toSet(), 1000);
+        assertEquals(1000, big.size());
+        assertEquals(count / 1000, big.get(999).size());
+    }
+
+    @Test
+    void expectedSizeTest() {
+        int count = 1000;
+
+        LongKeyedMap<Long> sized = new LongKeyedMap<>(count);
+        int capacity = sized.capacity();
+        for (int i = 0; i < count; i++)
+            sized.computeIfAbsent(i * 7, key -> key);
+        assertEquals(capacity, sized.capacity()); //not rehashed up to expected size
+        sized.computeIfAbsent(-1, key -> key);
+        assertEquals(count + 1, sized.size());
+
+        LongKeyedMap<Long> growing = new LongKeyedMap<>();
+        int initial = growing.capacity();
+        for (long i = 0; i < count; i++)
+            assertEquals(i << 40, (long) growing.computeIfAbsent(i << 40, key -> key));
+        assertTrue(growing.capacity() > initial); //rehashed (keys are kept)
+        assertTrue(growing.capacity() >= count * 2);
+        for (long i = 0; i < count; i++)
+            assertEquals(i << 40, (long) growing.computeIfAbsent(i << 40, key -> -1L));
+        assertEquals(count, growing.size());
+
+        List<Integer> numbers = IntStream.range(0, 5000).boxed().collect(Collectors.toList());
+        Map<Integer, Long> expected = numbers.stream().collect(Collectors.groupingBy(i -> i % count, Collectors.counting()));
+        assertEquals(expected, Streamer.from(numbers).countByInt(i -> i % count, count));
+
+        //too large expected size fails (instead of overflow of the next rehash)
+        assertThrows(IllegalArgumentException.class, () -> new LongKeyedMap<>(Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> new LongHashSet((1 << 29) + 1));
+        assertThrows(IllegalStateException.class, () -> LongHashSet.grownCapacity(LongHashSet.MAX_CAPACITY));
+        assertEquals(LongHashSet.MAX_CAPACITY, LongHashSet.capacityFor(1 << 29));
+        assertEquals(expected, Streamer.from(numbers).countByInt(i -> i % count, 1));
+        assertEquals(expected.size(), Streamer.from(numbers).countByLong(i -> i % count, count).size());
+        assertEquals(numbers.stream().collect(Collectors.groupingBy(i -> i % count, Collectors.toList())),
+                Streamer.from(numbers).groupByInt(i -> i % count, Collectors.toList(), count));
+        assertEquals(numbers.stream().collect(Collectors.groupingBy(i -> (long) (i % count), Collectors.toList())),
+                Streamer.from(numbers).groupByLong(i -> i % count, Collectors.toList(), 0));
+
+        assertThrows(IllegalArgumentException.class, () -> Streamer.from(numbers).countByInt(i -> i, -1));
+        assertThrows(IllegalArgumentException.class, () -> Streamer.from(numbers).groupByLong(i -> i, Collectors.toList(), -1));
+    }
+
+    @Test
+    void groupByTest() {
+        Map<Integer, Collection<String>> groups = Streamer.from(WORDS).groupBy(String::length);
+
+        assertEquals(Arrays.asList("one", "two", "six"), groups.get(3));
+        assertEquals(Arrays.asList("three", "seven"), groups.get(5));
+        assertEquals(3, groups.size());
+    }
+}
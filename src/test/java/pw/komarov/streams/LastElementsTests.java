@@ -0,0 +1,87 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LastElementsTests {
+    private final AtomicInteger mapped = new AtomicInteger();
+
+    @BeforeEach
+    void beforeEach() {
+        mapped.set(0);
+    }
+
+    private Integer mapping(Integer integer) {
+        mapped.incrementAndGet();
+        return integer * 10;
+    }
+
+    //unsized source, which is not folded to window
+    private static Iterator<Integer> counter(int count) {
+        return IntStream.range(0, count).iterator();
+    }
+
+    @Test
+    void lastTest() {
+        assertEquals(Arrays.asList(997, 998, 999), Streamer.from(counter(1000)).last(3).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(0, 1), Streamer.from(counter(2)).last(3).collect(Collectors.toList()));
+        assertEquals(Collections.emptyList(), Streamer.from(counter(10)).last(0).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(980, 960), Streamer.from(counter(100)).filter(i -> i % 2 == 0).last(50).map(i -> i * 10)
+                .reversed().limit(2).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(3, 4), Streamer.from(counter(5)).last(4).last(2).collect(Collectors.toList()));
+    }
+
+    @Test
+    void lastOfLongSourceTest() { //buffer must not grow over count
+        Supplier<Integer> supplier = new Supplier<Integer>() {
+            private int next;
+
+            @Override
+            public Integer get() {
+                return next++;
+            }
+        };
+
+        assertEquals(Arrays.asList(4_999_998, 4_999_999), Streamer.generate(supplier).limit(5_000_000).last(2)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void primitiveLastTest() {
+        assertArrayEquals(new int[]{97, 98, 99}, IntStreamer.from(IntStream.range(0, 100).iterator()).last(3).toArray());
+        assertArrayEquals(new int[]{0, 1}, IntStreamer.from(IntStream.range(0, 2).iterator()).last(3).toArray());
+        assertArrayEquals(new long[]{8, 9}, Streamer.from(counter(10)).mapToLong(i -> i).last(2).toArray());
+        assertArrayEquals(new double[]{7, 8, 9}, Streamer.from(counter(10)).mapToDouble(i -> i).last(3).toArray());
+    }
+
+    @Test
+    void findLastFromTailTest() {
+        Deque<Integer> deque = new ArrayDeque<>(Arrays.asList(1, 2, 3));
+        assertEquals(30, Streamer.from(deque).map(this::mapping).findLast().orElse(-1));
+
+        NavigableSet<Integer> set = new TreeSet<>(Arrays.asList(5, 1, 3));
+        assertEquals(50, Streamer.from(set).map(this::mapping).findLast().orElse(-1));
+
+        List<Integer> list = new LinkedList<>(Arrays.asList(1, 2, 3, 4));
+        assertEquals(40, Streamer.from(list).map(this::mapping).findLast().orElse(-1));
+
+        assertEquals(3, mapped.get()); //only tails was mapped
+
+        assertFalse(Streamer.from(new ArrayDeque<Integer>()).findLast().isPresent());
+        assertEquals(3, Streamer.from(list).filter(i -> i < 4).findLast().orElse(-1)); //not a tail
+    }
+
+    @Test
+    void findLastTest() {
+        assertEquals(999, Streamer.from(counter(1000)).findLast().orElse(-1));
+        assertFalse(Streamer.from(counter(0)).findLast().isPresent());
+    }
+}
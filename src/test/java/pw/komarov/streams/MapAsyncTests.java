@@ -0,0 +1,172 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapAsyncTests {
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void orderedTest() {
+        List<Integer> expected = IntStream.range(0, 100).map(i -> i * 2).boxed().collect(Collectors.toList());
+
+        List<Integer> result = Streamer.from(IntStream.range(0, 100))
+                .mapAsync(i -> {
+                    sleep(ThreadLocalRandom.current().nextInt(3)); //completion order is random
+                    return i * 2;
+                }, 8)
+                .collect(Collectors.toList());
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    void boundedConcurrencyTest() {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+
+            long count = Streamer.from(IntStream.range(0, 200))
+                    .mapAsync(i -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        sleep(1);
+                        running.decrementAndGet();
+                        return i;
+                    }, 4, executor)
+                    .filter(i -> i % 2 == 0)
+                    .count();
+
+            assertEquals(100, count);
+            assertTrue(maxRunning.get() <= 4);
+            assertTrue(maxRunning.get() > 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void limitCancelsInFlightTest() throws InterruptedException {
+        AtomicInteger interrupted = new AtomicInteger();
+        AtomicInteger started = new AtomicInteger();
+        AtomicBoolean closed = new AtomicBoolean();
+        CountDownLatch inFlight = new CountDownLatch(3);
+
+        List<Integer> result = Streamer.iterate(0, i -> i + 1)
+                .onClose(() -> closed.set(true))
+                .mapAsync(i -> {
+                    started.incrementAndGet();
+                    try {
+                        if (i == 1) //limit is reached, when elements 2, 3, 4 are running
+                            inFlight.await(10, TimeUnit.SECONDS);
+                        if (i < 2)
+                            return i;
+
+                        inFlight.countDown();
+                        Thread.sleep(60_000); //never completed
+                    } catch (InterruptedException e) {
+                        interrupted.incrementAndGet();
+                    }
+                    return i;
+                }, 4)
+                .limit(2)
+                .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(0, 1), result);
+        assertEquals(0, inFlight.getCount());
+        assertEquals(5, started.get());
+
+        //elements 2, 3, 4 were in flight: they are interrupted
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (interrupted.get() < 3 && System.nanoTime() < deadline)
+            Thread.sleep(10);
+        assertEquals(3, interrupted.get());
+        assertFalse(closed.get()); //onClose sequences are run by close()
+    }
+
+    @Test
+    void interruptedConsumerTest() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Thread.currentThread().interrupt(); //consumer is interrupted, while it waits for result
+            assertThrows(CompletionException.class, () -> Streamer.of(1).mapAsync(i -> {
+                sleep(60_000);
+                return i;
+            }, 1, executor).findFirst());
+            assertTrue(Thread.interrupted());
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS)); //awaited task is cancelled
+    }
+
+    @Test
+    void delayedStartTest() {
+        AtomicInteger iterators = new AtomicInteger();
+        Iterable<Integer> source = () -> {
+            iterators.incrementAndGet();
+            return Arrays.asList(1, 2, 3).iterator();
+        };
+
+        Streamer<Integer> mapped = Streamer.from(source).mapAsync(i -> i * 2, 2);
+        Streamer<List<Integer>> batches = Streamer.from(source).batch(2);
+        assertEquals(0, iterators.get()); //upstream runs are started by terminal operations
+
+        assertEquals(Arrays.asList(2, 4, 6), mapped.collect(Collectors.toList()));
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Collections.singletonList(3)), batches.collect(Collectors.toList()));
+        assertEquals(2, iterators.get());
+    }
+
+    @Test
+    void exceptionTest() {
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+                Streamer.of(1, 2, 3).mapAsync(i -> {
+                    if (i == 2)
+                        throw new IllegalStateException("failed " + i);
+                    return i;
+                }, 2).forEach(i -> {}));
+
+        assertEquals("failed 2", exception.getMessage());
+
+        assertThrows(IllegalArgumentException.class, () -> Streamer.of(1).mapAsync(i -> i, 0));
+    }
+
+    @Test
+    void operatedUpstreamTest() {
+        Streamer<Integer> upstream = Streamer.of(1, 2, 3);
+        Streamer<Integer> mapped = upstream.mapAsync(i -> i * 10, 2);
+
+        assertThrows(IllegalStateException.class, () -> upstream.filter(i -> i > 1));
+        assertThrows(IllegalStateException.class, upstream::count);
+
+        assertEquals(Arrays.asList(10, 20, 30), mapped.collect(Collectors.toList()));
+    }
+
+    @Test
+    void closeTest() {
+        AtomicBoolean closed = new AtomicBoolean();
+
+        Streamer<String> streamer = Streamer.of(1, 2, 3).onClose(() -> closed.set(true)).mapAsync(String::valueOf, 2);
+        assertEquals("1", streamer.findFirst().orElse(null));
+
+        streamer.close();
+        assertTrue(closed.get());
+    }
+}
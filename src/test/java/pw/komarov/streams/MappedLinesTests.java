@@ -0,0 +1,128 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedLinesTests {
+    @TempDir
+    Path directory;
+
+    private Path write(String content, Charset charset) throws IOException {
+        return Files.write(directory.resolve("lines.txt"), content.getBytes(charset));
+    }
+
+    private static List<String> strings(Streamer<CharSequence> lines) {
+        return lines.map(CharSequence::toString).collect(Collectors.toList());
+    }
+
+    @Test
+    void separatorsTest() throws IOException {
+        Path file = write("first\nsecond\r\nthird\rfourth\n\nlast", StandardCharsets.UTF_8);
+
+        assertEquals(Arrays.asList("first", "second", "third", "fourth", "", "last"), strings(Streamer.lines(file)));
+        assertEquals(Files.readAllLines(file), strings(Streamer.lines(file)));
+
+        assertEquals(Arrays.asList("a", "b"), strings(Streamer.lines(write("a\nb\n", StandardCharsets.UTF_8))));
+        assertEquals(0, Streamer.lines(write("", StandardCharsets.UTF_8)).count());
+    }
+
+    @Test
+    void charsetsTest() throws IOException {
+        String content = "ascii line\nстрока\nmixed ü line\n";
+
+        assertEquals(Arrays.asList("ascii line", "строка", "mixed ü line"),
+                strings(Streamer.lines(write(content, StandardCharsets.UTF_8))));
+
+        Charset cp1251 = Charset.forName("windows-1251");
+        assertEquals(Arrays.asList("ascii", "строка"), strings(Streamer.lines(write("ascii\nстрока", cp1251), cp1251)));
+
+        assertEquals(Arrays.asList("é", "ü"), strings(Streamer.lines(write("é\nü", StandardCharsets.ISO_8859_1),
+                StandardCharsets.ISO_8859_1)));
+
+        assertThrows(IllegalArgumentException.class, () -> Streamer.lines(write("a", StandardCharsets.UTF_16), StandardCharsets.UTF_16));
+
+        Files.write(directory.resolve("malformed.txt"), new byte[]{'a', '\n', (byte) 0xC3, '\n'});
+        assertThrows(UncheckedIOException.class, () -> Streamer.lines(directory.resolve("malformed.txt")).count());
+    }
+
+    @Test
+    void windowsTest() throws IOException {
+        Random random = new Random(1);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j++)
+                content.append(random.nextInt(10) == 0 ? 'ж' : (char) ('a' + random.nextInt(26)));
+            content.append(random.nextBoolean() ? "\n" : "\r\n");
+        }
+        Path file = write(content.toString(), StandardCharsets.UTF_8);
+
+        //windows of 128 bytes: lines and "\r\n" are split by windows
+        assertEquals(Files.readAllLines(file), strings(Streamer.lines(file, StandardCharsets.UTF_8, 128)));
+
+        assertThrows(IllegalStateException.class, () -> Streamer.lines(file, StandardCharsets.UTF_8, 8).count());
+    }
+
+    @Test
+    void reusableViewTest() throws IOException {
+        Path file = write("c\nb\na\n", StandardCharsets.UTF_8);
+
+        List<CharSequence> views = new ArrayList<>();
+        Streamer.lines(file).forEach(views::add);
+        assertSame(views.get(0), views.get(2)); //one view for all lines
+
+        List<CharSequence> sorted = Streamer.lines(file).sorted(Comparator.comparing(CharSequence::toString))
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList("a", "b", "c"), sorted); //lines are strings
+
+        assertEquals(Arrays.asList("b", "a"), Streamer.lines(file).last(2).collect(Collectors.toList()));
+
+        Path duplicates = write("a\nb\nc\nb\n", StandardCharsets.UTF_8);
+        assertEquals(3, Streamer.lines(duplicates).distinct().count()); //distinct lines are strings
+        assertEquals(Arrays.asList("a", "b", "c"), Streamer.lines(duplicates).distinct().collect(Collectors.toList()));
+    }
+
+    @Test
+    void keptLinesTest() throws IOException {
+        Path file = write("a\nb\nc\nd\ne\n", StandardCharsets.UTF_8);
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d"), Collections.singletonList("e")),
+                Streamer.lines(file).batch(2).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"),
+                Streamer.lines(file).mapAsync(CharSequence::toString, 4).collect(Collectors.toList()));
+
+        Path lengths = write("a\nbbbbb\ncc\nd\n", StandardCharsets.UTF_8);
+        assertEquals(Optional.of("bbbbb"), Streamer.lines(lengths).max(Comparator.comparingInt(CharSequence::length)));
+        assertEquals(Optional.of("a"), Streamer.lines(lengths).min(Comparator.comparing(CharSequence::toString)));
+        assertArrayEquals(new Object[]{"a", "bbbbb", "cc", "d"}, Streamer.lines(lengths).toArray());
+        assertEquals(Arrays.asList("a", "bbbbb", "cc", "d"), Streamer.lines(lengths).collect(Collectors.toList()));
+        assertEquals(Optional.of("bbbbb"), Streamer.lines(lengths)
+                .reduce((first, second) -> second.length() > first.length() ? second : first));
+        assertEquals(Arrays.asList("a", "bbbbb", "cc", "d"),
+                StreamSupport.stream(Streamer.lines(lengths).spliterator(), false).collect(Collectors.toList()));
+    }
+
+    @Test
+    void closeTest() throws IOException {
+        Path file = write("1\n2\n3\n", StandardCharsets.UTF_8);
+
+        try (Streamer<CharSequence> lines = Streamer.lines(file)) {
+            Iterator<CharSequence> iterator = lines.iterator();
+            assertEquals("1", iterator.next().toString());
+        }
+
+        assertEquals(Optional.of("1"), Streamer.lines(file).findFirst().map(CharSequence::toString));
+    }
+}
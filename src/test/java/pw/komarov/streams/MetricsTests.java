@@ -0,0 +1,136 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTests {
+    private final List<PipelineMetrics> reported = new ArrayList<>();
+
+    @Test
+    void stagesTest() {
+        List<Integer> result = Streamer.iterate(0, i -> i + 1)
+                .metered("stages", reported::add)
+                .limit(100)
+                .filter(i -> i % 2 == 0)
+                .map(i -> i % 10)
+                .distinct()
+                .sorted(Comparator.reverseOrder())
+                .collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(8, 6, 4, 2, 0), result);
+        assertEquals(1, reported.size());
+
+        PipelineMetrics metrics = reported.get(0);
+        assertEquals("stages", metrics.getName());
+        assertEquals(Arrays.asList("limit", "filter", "map", "distinct", "sorted"),
+                metrics.getStages().stream().map(PipelineMetrics.Stage::getOperation).collect(Collectors.toList()));
+
+        PipelineMetrics.Stage filter = metrics.getStages().get(1);
+        assertEquals(100, filter.getIn());
+        assertEquals(50, filter.getOut());
+        assertEquals(0.5, filter.getSelectivity());
+        assertEquals(-1, filter.getPeakBufferSize());
+
+        PipelineMetrics.Stage distinct = metrics.getStages().get(3);
+        assertEquals(50, distinct.getIn());
+        assertEquals(5, distinct.getOut());
+
+        PipelineMetrics.Stage sorted = metrics.getStages().get(4);
+        assertEquals(5, sorted.getIn());
+        assertEquals(5, sorted.getOut());
+        assertEquals(5, sorted.getPeakBufferSize());
+
+        assertTrue(metrics.getNanos() >= 0);
+        for (PipelineMetrics.Stage stage : metrics.getStages())
+            assertTrue(stage.getNanos() >= 0, stage.toString());
+    }
+
+    @Test
+    void closedIteratorTest() {
+        Streamer<Integer> streamer = Streamer.of(1, 2, 3).metered("iterator", reported::add).filter(i -> i > 1);
+        assertEquals(2, streamer.iterator().next());
+        assertTrue(reported.isEmpty());
+
+        streamer.close();
+        streamer.close();
+        assertEquals(1, reported.size());
+        assertEquals(2, reported.get(0).getStages().get(0).getIn());
+    }
+
+    @Test
+    void spliteratorTest() {
+        Spliterator<Integer> spliterator = Streamer.of(1, 2, 3, 4).metered("spliterator", reported::add)
+                .filter(i -> i % 2 == 0).spliterator();
+        assertEquals(Arrays.asList(2, 4), StreamSupport.stream(spliterator, false).collect(Collectors.toList()));
+
+        assertEquals(1, reported.size());
+        assertEquals(4, reported.get(0).getStages().get(0).getIn());
+    }
+
+    @Test
+    void notMeteredTest() {
+        StreamerMetricsListener listener = reported::add;
+        StreamerMetrics.addListener(listener);
+        try {
+            Streamer.of(1, 2, 3).filter(i -> i > 1).count();
+            assertTrue(reported.isEmpty());
+
+            Streamer.of(1, 2, 3).metered("global").filter(i -> i > 1).count();
+            assertEquals(1, reported.size());
+        } finally {
+            StreamerMetrics.removeListener(listener);
+        }
+    }
+
+    @Test
+    void jmxTest() throws Exception {
+        StreamerMetrics.registerJmx();
+        try {
+            for (int i = 0; i < 3; i++)
+                Streamer.of(1, 2, 3, 4).metered("jmx pipeline").filter(e -> e % 2 == 0).sorted().forEach(e -> {});
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = StreamerMetrics.objectName("jmx pipeline");
+
+            assertEquals(3L, server.getAttribute(name, "Runs"));
+            assertArrayEquals(new String[]{"filter", "sorted"}, (String[]) server.getAttribute(name, "StageOperations"));
+            assertArrayEquals(new long[]{12, 6}, (long[]) server.getAttribute(name, "StageIn"));
+            assertArrayEquals(new int[]{-1, 2}, (int[]) server.getAttribute(name, "StagePeakBufferSizes"));
+        } finally {
+            StreamerMetrics.unregisterJmx();
+        }
+
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(StreamerMetrics.objectName("jmx pipeline")));
+    }
+
+    @Test
+    void jmxOtherShapeTest() throws Exception {
+        StreamerMetrics.registerJmx();
+        try {
+            for (int i = 0; i < 2; i++)
+                Streamer.of(1, 2, 3, 4).metered("shaped pipeline").filter(e -> e % 2 == 0).sorted().forEach(e -> {});
+            Streamer.of(1, 2, 3).metered("shaped pipeline").map(e -> e * 2).forEach(e -> {}); //other operations
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = StreamerMetrics.objectName("shaped pipeline");
+
+            assertEquals(1L, server.getAttribute(name, "Runs")); //totals of previous shape are not mixed
+            assertArrayEquals(new String[]{"map"}, (String[]) server.getAttribute(name, "StageOperations"));
+            assertArrayEquals(new long[]{3}, (long[]) server.getAttribute(name, "StageIn"));
+
+            Streamer.of(1, 2).metered("shaped pipeline").filter(e -> e > 1).forEach(e -> {}); //same count of stages
+            assertEquals(1L, server.getAttribute(name, "Runs"));
+            assertArrayEquals(new String[]{"filter"}, (String[]) server.getAttribute(name, "StageOperations"));
+        } finally {
+            StreamerMetrics.unregisterJmx();
+        }
+    }
+}
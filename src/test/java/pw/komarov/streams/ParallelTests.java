@@ -0,0 +1,79 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelTests {
+    private static final List<Integer> integers =
+            IntStream.range(0, 100_000).map(i -> ThreadLocalRandom.current().nextInt(50_000)).boxed().collect(Collectors.toList());
+
+    private static Object[] run(Streamer<Integer> streamer) {
+        return streamer
+                .filter(i -> i % 3 != 0)
+                .map(i -> i * 2)
+                .distinct()
+                .skip(10)
+                .limit(20_000)
+                .sorted(Comparator.reverseOrder())
+                .map(i -> i / 2)
+                .last(15_000)
+                .reversed()
+                .toArray();
+    }
+
+    @Test
+    void sameAsSequentialTest() {
+        assertArrayEquals(run(Streamer.from(integers)), run(Streamer.from(integers).parallel()));
+    }
+
+    @Test
+    void orderPreservedTest() {
+        assertArrayEquals(
+                integers.stream().map(i -> i + 1).toArray(),
+                Streamer.from(integers).parallel().map(i -> i + 1).toArray());
+    }
+
+    @Test
+    void ownPoolTest() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+            Streamer<Integer> streamer = Streamer.from(integers).parallel(pool);
+            assertTrue(streamer.isParallel());
+
+            long count = streamer
+                    .peek(i -> threads.add(Thread.currentThread()))
+                    .count();
+
+            assertEquals(integers.size(), count);
+            assertFalse(threads.isEmpty());
+            for (Thread thread : threads)
+                assertTrue(thread.getName().startsWith("ForkJoinPool-"), thread.getName());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void unsizedSourceTest() {
+        assertArrayEquals(new Integer[]{2, 4, 6},
+                Streamer.iterate(1, i -> i + 1).parallel().map(i -> i * 2).limit(3).toArray());
+    }
+
+    @Test
+    void sequentialTest() {
+        Streamer<Integer> streamer = Streamer.of(1, 2, 3).parallel().sequential();
+
+        assertFalse(streamer.isParallel());
+        assertEquals(6, streamer.reduce(0, Integer::sum));
+    }
+}
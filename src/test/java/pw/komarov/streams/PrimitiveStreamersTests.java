@@ -0,0 +1,127 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrimitiveStreamersTests {
+    @Test
+    void intPipelineTest() {
+        int[] actual = IntStreamer.iterate(1, i -> i + 1)
+                .filter(i -> i % 3 != 0)
+                .map(i -> i % 10)
+                .skip(2)
+                .limit(12)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        assertArrayEquals(
+                IntStream.iterate(1, i -> i + 1).filter(i -> i % 3 != 0).map(i -> i % 10).skip(2).limit(12).distinct().sorted().toArray(),
+                actual);
+    }
+
+    @Test
+    void additionalFeaturesTest() {
+        assertArrayEquals(new int[]{2, 5, 1}, IntStreamer.of(1, 5, 2).reversed().toArray());
+        assertArrayEquals(new long[]{4, 12}, LongStreamer.of(1, 5, 2, 4, 12).last(2).toArray());
+        assertArrayEquals(new double[]{1, 5}, DoubleStreamer.of(1, 5).last(3).toArray());
+        assertEquals(2, IntStreamer.of(1, 5, 2).findLast().getAsInt());
+        assertFalse(LongStreamer.empty().findLast().isPresent());
+
+        Map<Boolean, int[]> grouped = IntStreamer.rangeClosed(1, 4).groupBy(i -> i % 2 == 0);
+        assertArrayEquals(new int[]{1, 3}, grouped.get(false));
+        assertArrayEquals(new int[]{2, 4}, grouped.get(true));
+    }
+
+    @Test
+    void terminalsTest() {
+        assertEquals(55, IntStreamer.rangeClosed(1, 10).sum());
+        assertEquals(45L, LongStreamer.range(0, 10).sum());
+        assertEquals(5.5, IntStreamer.rangeClosed(1, 10).average().getAsDouble());
+        assertEquals(1, IntStreamer.of(5, 1, 7).min().getAsInt());
+        assertEquals(7, IntStreamer.of(5, 1, 7).max().getAsInt());
+        assertEquals(2, DoubleStreamer.of(0.5, 1.5, 0.5).distinct().count());
+        assertEquals(0.6, DoubleStreamer.of(0.1, 0.2, 0.3).sum(), 1e-15);
+        assertFalse(IntStreamer.empty().average().isPresent());
+    }
+
+    @Test
+    void conversionsTest() {
+        assertArrayEquals(new Integer[]{1, 2, 3}, IntStreamer.of(1, 2, 3).boxed().toArray());
+        assertArrayEquals(new long[]{2, 4}, IntStreamer.of(1, 2).mapToLong(i -> i * 2L).toArray());
+        assertArrayEquals(new double[]{1, 2}, LongStreamer.of(1, 2).asDoubleStream().toArray());
+        assertArrayEquals(new int[]{'a', 'b'}, IntStreamer.from("ab").toArray());
+        assertArrayEquals(new int[]{1, -1, 2, -2}, IntStreamer.of(1, 2).flatMap(i -> IntStream.of(i, -i)).toArray());
+
+        IntStreamer lengths = Streamer.of("a", "bb", "ccc").mapToInt(String::length);
+        assertArrayEquals(new int[]{3, 2, 1}, lengths.reversed().toArray());
+    }
+
+    @Test
+    void continuedPipelineTest() {
+        //upstream is not pulled by mapToInt(), its run is started by terminal of continuing streamer
+        AtomicInteger pulled = new AtomicInteger();
+        Streamer<String> words = Streamer.generate(() -> "w" + pulled.incrementAndGet());
+        IntStreamer lengths = words.mapToInt(String::length);
+        assertEquals(0, pulled.get());
+        assertThrows(IllegalStateException.class, () -> words.filter(word -> true));
+
+        assertArrayEquals(new int[]{2, 2, 2}, lengths.limit(3).toArray()); //infinite upstream is cancelled
+        assertEquals(3, pulled.get());
+
+        //pull mode: children of flatMapToInt() and flatMap() are pushed one by one (so they can be infinite)
+        PrimitiveIterator.OfInt iterator = Streamer.of(1, 2)
+                .flatMapToInt(i -> IntStream.iterate(i, j -> j + 2))
+                .flatMap(i -> IntStream.of(i, -i))
+                .limit(5)
+                .iterator();
+        int[] pulledValues = new int[5];
+        for (int i = 0; iterator.hasNext(); i++)
+            pulledValues[i] = iterator.nextInt();
+        assertArrayEquals(new int[]{1, -1, 3, -3, 5}, pulledValues);
+
+        //conversions are stages of the same pipeline
+        IntStreamer ints = IntStreamer.rangeClosed(1, 5);
+        LongStreamer longs = ints.map(i -> 6 - i).mapToLong(i -> i * 10L);
+        assertThrows(IllegalStateException.class, ints::count);
+        assertArrayEquals(new double[]{20, 30, 40}, longs.filter(i -> i > 10).mapToDouble(i -> i).sorted().limit(3).toArray());
+
+        //mapToObj() is lazy too, closing of continuing streamer closes the pipeline
+        AtomicInteger closed = new AtomicInteger();
+        Streamer<String> strings = LongStreamer.iterate(1, i -> i * 2).onClose(closed::incrementAndGet).mapToObj(Long::toString);
+        assertEquals(Arrays.asList("1", "2", "4"), strings.limit(3).collect(Collectors.toList()));
+        strings.close();
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    void sharedOperationsTest() {
+        assertArrayEquals(new long[]{997, 998, 999}, LongStreamer.range(0, 1000).last(3).toArray());
+        assertArrayEquals(new int[0], IntStreamer.range(0, 100).last(0).toArray());
+        assertArrayEquals(new int[0], IntStreamer.range(0, 100).last(-1).toArray());
+        assertArrayEquals(new int[]{0, -1, Integer.MIN_VALUE, 1}, IntStreamer.of(0, -1, 0, Integer.MIN_VALUE, -1, 1).distinct().toArray());
+        assertArrayEquals(new double[]{0.0, -0.0, Double.NaN}, DoubleStreamer.of(0.0, -0.0, Double.NaN, 0.0, Double.NaN).distinct().toArray());
+        assertArrayEquals(new double[]{3, 2, 1}, DoubleStreamer.of(1, 2, 3).reversed().toArray());
+        assertEquals(3, IntStreamer.of(4, 5, 6, 7).skip(1).count());
+
+        //primitive streamers are sequential
+        assertFalse(IntStreamer.of(1, 2).parallel().isParallel());
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @Test
+    void operatedTest() {
+        IntStreamer streamer = IntStreamer.of(1, 2, 3);
+        streamer.sum();
+
+        assertThrows(IllegalStateException.class, streamer::count);
+    }
+}
@@ -0,0 +1,147 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PushModeTests {
+    //source, which must be pushed by its own loop (hasNext() and next() are not allowed)
+    private static class PushOnlyIterator implements Iterator<Integer> {
+        private final int count;
+
+        PushOnlyIterator(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            throw new AssertionError("pulled");
+        }
+
+        @Override
+        public Integer next() {
+            throw new AssertionError("pulled");
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Integer> action) {
+            for (int i = 0; i < count; i++)
+                action.accept(i);
+        }
+    }
+
+    @Test
+    void sourceLoopTest() {
+        assertEquals(50, Streamer.from(new PushOnlyIterator(100)).filter(i -> i % 2 == 0).count());
+        assertEquals(4950, (int) Streamer.from(new PushOnlyIterator(100)).reduce(0, Integer::sum));
+        assertEquals(Arrays.asList(9, 8), Streamer.from(new PushOnlyIterator(10)).sorted(Comparator.reverseOrder()).limit(2)
+                .collect(Collectors.toList()));
+
+        List<Integer> each = new ArrayList<>();
+        Streamer.from(new PushOnlyIterator(3)).map(i -> i * 10).forEach(each::add);
+        assertEquals(Arrays.asList(0, 10, 20), each);
+    }
+
+    private static final ElementEncoder<Integer> INTS = (element, buffer) -> buffer.putInt(element);
+
+    @Test
+    void aggregateAndWriteToTest() throws IOException {
+        assertEquals(4950, (int) Streamer.from(new PushOnlyIterator(100))
+                .aggregate(Collectors.summingInt(i -> i), Collectors.counting(), (sum, count) -> sum));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertEquals(100, Streamer.from(new PushOnlyIterator(100)).writeTo(Channels.newChannel(bytes), INTS).getElements());
+        assertEquals(400, bytes.size());
+
+        //run is cancelled by failed write
+        WritableByteChannel failing = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) throws IOException {
+                throw new IOException("failed");
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertThrows(IOException.class, () -> Streamer.generate(() -> 1).writeTo(failing, INTS));
+    }
+
+    @Test
+    void shortCircuitTest() {
+        AtomicInteger pulled = new AtomicInteger();
+
+        assertTrue(Streamer.generate(pulled::incrementAndGet).anyMatch(i -> i == 7));
+        assertEquals(7, pulled.get());
+
+        pulled.set(0);
+        assertFalse(Streamer.iterate(1, i -> i + 1).peek(i -> pulled.incrementAndGet()).allMatch(i -> i < 5));
+        assertEquals(5, pulled.get());
+
+        pulled.set(0);
+        assertEquals(Optional.of(3), Streamer.generate(pulled::incrementAndGet).filter(i -> i > 2).findFirst());
+        assertEquals(3, pulled.get());
+
+        pulled.set(0);
+        List<Integer> each = new ArrayList<>();
+        Streamer.generate(pulled::incrementAndGet).limit(5).forEach(each::add);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), each);
+        assertEquals(5, pulled.get());
+
+        //mapMulti expansion is stopped at match
+        AtomicInteger passed = new AtomicInteger();
+        assertTrue(Streamer.of(1).<Integer>mapMulti((element, consumer) -> {
+            for (int i = 0; i < 100; i++)
+                consumer.accept(i);
+        }).peek(i -> passed.incrementAndGet()).anyMatch(i -> i == 10));
+        assertEquals(11, passed.get());
+    }
+
+    @Test
+    void takeWhileAndDropWhileTest() {
+        AtomicInteger pulled = new AtomicInteger();
+
+        assertEquals(Arrays.asList(1, 2, 3), Streamer.generate(pulled::incrementAndGet).takeWhile(i -> i < 4)
+                .collect(Collectors.toList()));
+        assertEquals(4, pulled.get());
+
+        assertEquals(Arrays.asList(4, 1, 5), Streamer.of(1, 2, 4, 1, 5).dropWhile(i -> i < 3).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(2, 1), Streamer.of(1, 2, 3, 1).takeWhile(i -> i < 3).reversed().collect(Collectors.toList()));
+    }
+
+    @Test
+    void iteratorTest() {
+        Iterator<Integer> iterator = Streamer.of(1, 2, 3, 4).filter(i -> i != 2).iterator();
+        assertEquals(1, (int) iterator.next());
+        assertTrue(iterator.hasNext()); //element is pulled before push
+
+        List<Integer> remaining = new ArrayList<>();
+        iterator.forEachRemaining(remaining::add);
+        assertEquals(Arrays.asList(3, 4), remaining);
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    void emptyAndNullTest() {
+        assertEquals(Optional.empty(), Streamer.empty().findFirst());
+        assertEquals(Optional.empty(), Streamer.<Integer>empty().reduce(Integer::sum));
+        assertEquals(Optional.empty(), Streamer.<Integer>empty().min(Comparator.naturalOrder()));
+        assertThrows(NullPointerException.class, () -> Streamer.of(null, 1).findFirst());
+        assertEquals(Arrays.asList(null, 1), Streamer.of(null, 1).collect(Collectors.toList()));
+    }
+}
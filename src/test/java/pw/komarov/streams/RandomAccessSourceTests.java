@@ -0,0 +1,94 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomAccessSourceTests {
+    private final List<Integer> integers = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+    private final AtomicInteger mapped = new AtomicInteger();
+
+    @BeforeEach
+    void beforeEach() {
+        mapped.set(0);
+    }
+
+    private Integer mapping(Integer integer) {
+        mapped.incrementAndGet();
+        return integer * 10;
+    }
+
+    @Test
+    void foldedOperationsTest() {
+        assertArrayEquals(new Integer[]{970, 960, 950},
+                Streamer.from(integers).map(this::mapping).skip(5).last(10).reversed().skip(2).limit(3).toArray());
+        assertEquals(3, mapped.get());
+
+        assertArrayEquals(new Integer[]{3, 2, 1}, Streamer.of(1, 2, 3, 4).limit(3).reversed().toArray());
+        assertArrayEquals(new Integer[]{}, Streamer.of(1, 2, 3, 4).skip(10).last(2).toArray());
+        assertArrayEquals(new Integer[]{2, 1}, Streamer.of(1, 2, 3, 4).reversed().last(2).toArray());
+    }
+
+    @Test
+    void negativeCountsTest() { //as for iterator source
+        assertArrayEquals(new Integer[]{1, 2, 3}, Streamer.of(1, 2, 3).skip(-1).toArray());
+        assertArrayEquals(Streamer.from(Arrays.asList(1, 2, 3).iterator()).skip(-1).toArray(),
+                Streamer.of(1, 2, 3).skip(-1).toArray());
+
+        assertEquals(0, Streamer.of(1, 2, 3).limit(-1).count());
+        assertArrayEquals(new Integer[]{}, Streamer.of(1, 2, 3).reversed().limit(-1).toArray());
+        assertArrayEquals(new Integer[]{}, Streamer.of(1, 2, 3).last(-1).toArray());
+        assertArrayEquals(new Integer[]{3, 2, 1}, Streamer.of(1, 2, 3).reversed().skip(-5).toArray());
+
+        //parallel run evaluates operations over array of elements
+        assertArrayEquals(new Integer[]{1, 2, 3}, Streamer.of(1, 2, 3).parallel().skip(-1).toArray());
+        assertEquals(0, Streamer.of(1, 2, 3).parallel().limit(-1).count());
+        assertArrayEquals(new Integer[]{}, Streamer.of(1, 2, 3).parallel().last(-1).toArray());
+        assertArrayEquals(new Integer[]{}, Streamer.of(1, 2, 3).parallel().reversed().last(-1).toArray());
+
+        //sizes, reported by spliterator
+        assertEquals(3, Streamer.of(1, 2, 3).skip(-1).spliterator().getExactSizeIfKnown());
+        assertEquals(0, Streamer.of(1, 2, 3).limit(-1).spliterator().getExactSizeIfKnown());
+        assertEquals(0, Streamer.of(1, 2, 3).last(-1).spliterator().getExactSizeIfKnown());
+    }
+
+    @Test
+    void countTest() {
+        assertEquals(90, Streamer.from(integers).map(this::mapping).skip(10).count());
+        assertEquals(0, mapped.get());
+
+        assertEquals(50, Streamer.from(integers).filter(i -> i % 2 == 0).count()); //not folded
+    }
+
+    @Test
+    void findLastTest() {
+        assertEquals(990, Streamer.from(integers).map(this::mapping).findLast().orElse(-1));
+        assertEquals(1, mapped.get());
+
+        assertEquals(0, Streamer.from(integers).reversed().findLast().orElse(-1));
+        assertFalse(Streamer.from(integers).skip(100).findLast().isPresent());
+    }
+
+    @Test
+    void toArrayTest() {
+        assertArrayEquals(integers.toArray(), Streamer.from(integers).toArray());
+        assertArrayEquals(new Integer[]{99, 98}, Streamer.from(integers).reversed().limit(2).toArray(Integer[]::new));
+        assertArrayEquals(new String[]{"0", "1", null}, Streamer.from(integers).limit(2).map(String::valueOf).toArray(size -> new String[size + 1]));
+    }
+
+    @Test
+    void delayedSourceTest() {
+        List<Integer> list = new ArrayList<>(Arrays.asList(1, 2));
+        Streamer<Integer> streamer = Streamer.from(list).last(2);
+
+        list.add(3);
+
+        assertArrayEquals(new Integer[]{2, 3}, streamer.toArray());
+    }
+}
@@ -0,0 +1,157 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordsTests {
+    private static final int RECORD_SIZE = 12; //long id, int value
+    private static final int COUNT = 200_000; //larger than one read buffer
+
+    private static class Sample {
+        long id;
+        int value;
+
+        Sample(long id, int value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private final AtomicInteger decoded = new AtomicInteger();
+
+    private final RecordDecoder<Sample> decoder = (record, reused) -> {
+        decoded.incrementAndGet();
+
+        if (reused == null)
+            return new Sample(record.getLong(), record.getInt());
+
+        reused.id = record.getLong();
+        reused.value = record.getInt();
+
+        return reused;
+    };
+
+    @BeforeEach
+    void writeFile() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(COUNT * RECORD_SIZE + 5); //with incomplete trailing record
+        for (int i = 0; i < COUNT; i++)
+            buffer.putLong(i).putInt(i * 3);
+
+        file = Files.write(directory.resolve("samples.bin"), buffer.array());
+    }
+
+    private List<Long> ids(Streamer<Sample> samples) {
+        return samples.map(sample -> sample.id).collect(Collectors.toList());
+    }
+
+    @Test
+    void readTest() throws IOException {
+        assertEquals(COUNT, Streamer.records(file, RECORD_SIZE, decoder).filter(sample -> sample.value == sample.id * 3).count());
+        assertEquals(COUNT, decoded.get());
+
+        assertEquals(Optional.of(COUNT - 1L), Streamer.records(file, RECORD_SIZE, decoder).map(sample -> sample.id)
+                .reduce((first, second) -> second));
+    }
+
+    @Test
+    void seekingTest() throws IOException {
+        assertEquals(COUNT, Streamer.records(file, RECORD_SIZE, decoder).count());
+        assertEquals(0, decoded.get()); //count of records is known by file size
+
+        assertEquals(Arrays.asList(150_000L, 150_001L, 150_002L),
+                ids(Streamer.records(file, RECORD_SIZE, decoder).skip(150_000).limit(3)));
+        assertEquals(3, decoded.get());
+
+        decoded.set(0);
+        assertEquals(Arrays.asList(COUNT - 2L, COUNT - 1L), ids(Streamer.records(file, RECORD_SIZE, decoder).last(2)));
+        assertEquals(2, decoded.get());
+
+        decoded.set(0);
+        List<Long> reversed = ids(Streamer.records(file, RECORD_SIZE, decoder).reversed());
+        assertEquals(COUNT, reversed.size());
+        assertEquals(COUNT - 1L, (long) reversed.get(0));
+        assertEquals(0L, (long) reversed.get(COUNT - 1));
+        assertEquals(COUNT, decoded.get());
+    }
+
+    @Test
+    void flyweightTest() throws IOException {
+        Set<Sample> distinctObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+        long sum = Streamer.records(file, RECORD_SIZE, decoder, true)
+                .peek(distinctObjects::add)
+                .mapToLong(sample -> sample.value)
+                .sum();
+
+        assertEquals(3L * COUNT * (COUNT - 1) / 2, sum);
+        assertEquals(1, distinctObjects.size());
+
+        //sorted records are not reused
+        assertEquals(Arrays.asList(COUNT - 1L, COUNT - 2L), ids(Streamer.records(file, RECORD_SIZE, decoder, true)
+                .sorted(Comparator.comparingLong((Sample sample) -> sample.id).reversed()).limit(2)));
+
+        //distinct records are not reused (samples are compared by identity)
+        assertEquals(COUNT, Streamer.records(file, RECORD_SIZE, decoder, true).distinct().count());
+    }
+
+    @Test
+    void keptFlyweightTest() throws IOException {
+        //batched records are not reused
+        List<List<Long>> batches = Streamer.records(file, RECORD_SIZE, decoder, true).limit(10).batch(3)
+                .map(batch -> batch.stream().map(sample -> sample.id).collect(Collectors.toList()))
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList(Arrays.asList(0L, 1L, 2L), Arrays.asList(3L, 4L, 5L), Arrays.asList(6L, 7L, 8L),
+                Collections.singletonList(9L)), batches);
+
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L), Streamer.records(file, RECORD_SIZE, decoder, true).limit(5)
+                .mapAsync(sample -> sample.id, 4).collect(Collectors.toList()));
+
+        //records, kept by terminals, are not reused
+        assertEquals(3L, Streamer.records(file, RECORD_SIZE, decoder, true).limit(10)
+                .max(Comparator.comparingLong(sample -> sample.id % 4)).map(sample -> sample.id).orElse(-1L).longValue());
+        assertEquals(10, Arrays.stream(Streamer.records(file, RECORD_SIZE, decoder, true).limit(10).toArray())
+                .distinct().count()); //samples are compared by identity
+
+        //records, kept by consumer of spliterator
+        assertEquals(Arrays.asList(0L, 1L, 2L), StreamSupport.stream(Streamer.records(file, RECORD_SIZE, decoder, true)
+                .filter(sample -> sample.id < 3).spliterator(), false).collect(Collectors.toList())
+                .stream().map(sample -> sample.id).collect(Collectors.toList()));
+    }
+
+    @Test
+    void parallelFlyweightTest() throws IOException {
+        assertEquals(COUNT / 2, Streamer.records(file, RECORD_SIZE, decoder, true).parallel()
+                .filter(sample -> sample.id % 2 == 0).count());
+
+        assertEquals(ids(Streamer.records(file, RECORD_SIZE, decoder)),
+                ids(Streamer.records(file, RECORD_SIZE, decoder, true).parallel()));
+    }
+
+    @Test
+    void closeTest() throws IOException {
+        List<Integer> closed = new ArrayList<>();
+
+        try (Streamer<Sample> samples = Streamer.records(file, RECORD_SIZE, decoder).onClose(() -> closed.add(1))) {
+            Iterator<Sample> iterator = samples.iterator();
+            assertEquals(0, iterator.next().id);
+        }
+
+        assertEquals(Collections.singletonList(1), closed);
+        assertThrows(IllegalArgumentException.class, () -> Streamer.records(file, 0, decoder));
+    }
+}
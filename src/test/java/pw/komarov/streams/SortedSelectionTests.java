@@ -0,0 +1,136 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedSelectionTests {
+    //pairs {key, index}: sorting by key only, so stability is visible by index
+    private static final List<int[]> pairs = IntStream.range(0, 10_000)
+            .mapToObj(i -> new int[]{new Random(i).nextInt(100), i})
+            .collect(Collectors.toList());
+
+    private static final Comparator<int[]> byKey = Comparator.comparingInt(pair -> pair[0]);
+
+    private static List<Integer> indexes(Iterator<int[]> iterator) {
+        List<Integer> indexes = new ArrayList<>();
+        iterator.forEachRemaining(pair -> indexes.add(pair[1]));
+
+        return indexes;
+    }
+
+    @Test
+    void sortedLimitTest() {
+        for (int limit : new int[]{0, 1, 10, 5000, 20_000})
+            assertEquals(
+                    indexes(pairs.stream().sorted(byKey).limit(limit).iterator()),
+                    indexes(Streamer.from(pairs).sorted(byKey).limit(limit).iterator()));
+    }
+
+    @Test
+    void sortedSkipMapLimitTest() {
+        assertEquals(
+                pairs.stream().sorted(byKey).skip(20).map(pair -> pair[1]).limit(30).collect(Collectors.toList()),
+                Streamer.from(pairs).sorted(byKey).skip(20).map(pair -> pair[1]).limit(30).collect(Collectors.toList()));
+    }
+
+    @Test
+    void sortedFilterLimitTest() {
+        assertEquals(
+                pairs.stream().sorted(byKey).filter(pair -> pair[1] % 7 == 0).limit(30).map(pair -> pair[1]).collect(Collectors.toList()),
+                Streamer.from(pairs).sorted(byKey).filter(pair -> pair[1] % 7 == 0).limit(30).map(pair -> pair[1]).collect(Collectors.toList()));
+    }
+
+    @Test
+    void incrementalSortingTest() {
+        assertEquals(
+                indexes(pairs.stream().sorted(byKey).iterator()),
+                indexes(Streamer.from(pairs).sorted(byKey).iterator()));
+
+        assertEquals(
+                pairs.stream().sorted(byKey).findFirst().get()[1],
+                Streamer.from(pairs).sorted(byKey).findFirst().get()[1]);
+    }
+
+    @Test
+    void naturalOrderTest() {
+        assertArrayEquals(new Integer[]{1, 2, 3}, Streamer.of(5, 3, 1, 4, 2).sorted().limit(3).toArray());
+        assertArrayEquals(new Integer[]{4, 5}, Streamer.of(5, 3, 1, 4, 2).sorted().skip(3).toArray());
+    }
+
+    @Test
+    void parallelSortingTest() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Set<Thread> sortingThreads = Collections.synchronizedSet(new HashSet<>());
+        Comparator<int[]> byKeyInPool = (left, right) -> {
+            sortingThreads.add(Thread.currentThread());
+
+            return byKey.compare(left, right);
+        };
+
+        try {
+            assertEquals(
+                    indexes(pairs.stream().sorted(byKey).iterator()),
+                    indexes(Streamer.from(pairs.iterator()).sorted(byKeyInPool).parallelSorting(1000, pool).iterator())); //stable
+            assertFalse(sortingThreads.isEmpty());
+            for (Thread thread : sortingThreads) //sorted in pool
+                assertTrue(thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == pool);
+
+            assertEquals(
+                    indexes(pairs.stream().sorted(byKey).map(pair -> pair).iterator()),
+                    indexes(Streamer.from(pairs.iterator()).parallelSorting(0).sorted(byKey).map(pair -> pair).iterator()));
+
+            //first elements are required only: incremental sorting (in the calling thread)
+            sortingThreads.clear();
+            assertEquals(pairs.stream().min(byKey).map(pair -> pair[1]),
+                    Streamer.from(pairs.iterator()).sorted(byKeyInPool).parallelSorting(1000, pool).findFirst().map(pair -> pair[1]));
+            assertEquals(Collections.singleton(Thread.currentThread()), sortingThreads);
+
+            sortingThreads.clear();
+            Iterator<int[]> iterator = Streamer.from(pairs.iterator()).sorted(byKeyInPool).parallelSorting(1000, pool).iterator();
+            assertEquals(pairs.stream().sorted(byKey).findFirst().get()[1], iterator.next()[1]);
+            assertEquals(Collections.singleton(Thread.currentThread()), sortingThreads);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void parallelSortingOptInTest() {
+        List<int[]> large = IntStream.range(0, 100_000)
+                .mapToObj(i -> new int[]{new Random(i).nextInt(1000), i})
+                .collect(Collectors.toList());
+
+        Set<Thread> sortingThreads = Collections.synchronizedSet(new HashSet<>());
+        Comparator<int[]> byKeyRecording = (left, right) -> {
+            sortingThreads.add(Thread.currentThread());
+
+            return byKey.compare(left, right);
+        };
+
+        //not enabled: sorted in the calling thread
+        assertEquals(
+                indexes(large.stream().sorted(byKey).iterator()),
+                indexes(Streamer.from(large.iterator()).sorted(byKeyRecording).iterator()));
+        assertEquals(Collections.singleton(Thread.currentThread()), sortingThreads);
+
+        //parts are sorted and merged by tasks of pool (stable)
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            sortingThreads.clear();
+            assertEquals(
+                    indexes(large.stream().sorted(byKey).iterator()),
+                    indexes(Streamer.from(large.iterator()).sorted(byKeyRecording).parallelSorting(0, pool).iterator()));
+            for (Thread thread : sortingThreads)
+                assertTrue(thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
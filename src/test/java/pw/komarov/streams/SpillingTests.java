@@ -0,0 +1,98 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillingTests {
+    @TempDir
+    Path directory;
+
+    private final List<Long> longs = LongStream.range(0, 10_000).map(i -> (i * 7919) % 10_000).boxed().collect(Collectors.toList());
+
+    private Spilling<Long> spilling() {
+        return Spilling.of(ElementCodec.longs()).memoryBudget(1000).directory(directory);
+    }
+
+    private long filesCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void sortedTest() throws IOException {
+        List<Long> expected = new ArrayList<>(longs);
+        Collections.sort(expected);
+
+        Streamer<Long> streamer = Streamer.from(longs.iterator()).sorted(spilling());
+        Iterator<Long> iterator = streamer.iterator();
+
+        assertEquals(0L, iterator.next());
+        assertEquals(9, filesCount()); //last run is in memory
+
+        List<Long> result = new ArrayList<>(Collections.singletonList(0L));
+        iterator.forEachRemaining(result::add);
+        assertEquals(expected, result);
+
+        assertEquals(0, filesCount()); //read out runs are removed
+    }
+
+    @Test
+    void stableSortedTest() {
+        List<String> strings = Streamer.iterate(0, i -> i + 1).limit(5_000).map(i -> (char) ('a' + i % 26) + String.valueOf(i))
+                .collect(Collectors.toList());
+
+        Comparator<String> byFirstChar = Comparator.comparing(string -> string.charAt(0));
+        assertEquals(strings.stream().sorted(byFirstChar).collect(Collectors.toList()),
+                Streamer.from(strings.iterator()).sorted(byFirstChar, Spilling.of(ElementCodec.strings()).memoryBudget(300).directory(directory))
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    void reversedTest() throws IOException {
+        List<Long> expected = new ArrayList<>(longs);
+        Collections.reverse(expected);
+
+        assertEquals(expected, Streamer.from(longs.iterator()).reversed(spilling()).collect(Collectors.toList()));
+        assertEquals(0, filesCount());
+
+        assertEquals(Arrays.asList(9L, 8L), Streamer.iterate(0L, i -> i + 1).limit(10).reversed(spilling()).limit(2)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void cleanupOnCloseTest() throws IOException {
+        Streamer<Long> streamer = Streamer.from(longs.iterator()).sorted(Comparator.reverseOrder(), spilling());
+
+        assertEquals(9999L, streamer.iterator().next());
+        assertTrue(filesCount() > 0);
+
+        streamer.close();
+        assertEquals(0, filesCount());
+    }
+
+    @Test
+    void limitedInMemoryTest() throws IOException { //first elements are selected in memory
+        assertEquals(Arrays.asList(0L, 1L, 2L), Streamer.from(longs.iterator()).sorted(spilling()).limit(3).collect(Collectors.toList()));
+        assertEquals(0, filesCount());
+    }
+
+    @Test
+    void parallelTest() {
+        List<Long> expected = new ArrayList<>(longs);
+        Collections.sort(expected);
+        Collections.reverse(expected);
+
+        assertEquals(expected, Streamer.from(longs).parallel().sorted(spilling()).reversed(spilling()).collect(Collectors.toList()));
+    }
+}
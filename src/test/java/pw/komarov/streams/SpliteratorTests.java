@@ -0,0 +1,106 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static java.util.Spliterator.*;
+
+class SpliteratorTests {
+    private final List<Integer> integers = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+
+    @Test
+    void sizedThroughMapTest() {
+        Spliterator<String> spliterator = Streamer.from(integers).map(String::valueOf).spliterator();
+
+        assertTrue(spliterator.hasCharacteristics(SIZED | ORDERED));
+        assertEquals(10_000, spliterator.getExactSizeIfKnown());
+    }
+
+    @Test
+    void sizedThroughSkipAndLimitTest() {
+        Spliterator<Integer> spliterator = Streamer.from(new LinkedList<>(integers)).skip(100).limit(50).spliterator();
+
+        assertEquals(50, spliterator.getExactSizeIfKnown());
+        assertFalse(spliterator.hasCharacteristics(SORTED));
+
+        assertEquals(Streamer.from(integers).skip(100).limit(50).collect(Collectors.toList()),
+                StreamSupport.stream(spliterator, false).collect(Collectors.toList()));
+    }
+
+    @Test
+    void notSizedAfterFilterTest() {
+        Spliterator<Integer> spliterator = Streamer.from(integers).filter(i -> i % 2 == 0).spliterator();
+
+        assertFalse(spliterator.hasCharacteristics(SIZED));
+        assertEquals(-1, spliterator.getExactSizeIfKnown());
+        assertEquals(10_000, spliterator.estimateSize()); //upper bound
+
+        assertEquals(5_000, StreamSupport.stream(spliterator, false).count());
+    }
+
+    @Test
+    void sortedAndDistinctTest() {
+        Spliterator<Integer> sorted = Streamer.of(3, 1, 2).sorted().spliterator();
+        assertTrue(sorted.hasCharacteristics(SORTED));
+        assertNull(sorted.getComparator());
+
+        Comparator<Integer> reverseOrder = Comparator.reverseOrder();
+        Spliterator<Integer> sortedBy = Streamer.of(3, 1, 2).sorted(reverseOrder).spliterator();
+        assertSame(reverseOrder, sortedBy.getComparator());
+
+        assertFalse(Streamer.of(3, 1, 2).sorted().reversed().spliterator().hasCharacteristics(SORTED));
+        assertFalse(Streamer.of(3, 1, 2).sorted().map(i -> -i).spliterator().hasCharacteristics(SORTED));
+
+        assertTrue(Streamer.of(1, 1, 2).distinct().spliterator().hasCharacteristics(DISTINCT));
+        assertFalse(Streamer.of(1, 1, 2).distinct(Distinction.lastSeen(1)).spliterator().hasCharacteristics(DISTINCT));
+
+        Spliterator<Integer> treeSet = Streamer.from(new TreeSet<>(integers)).filter(i -> i > 0).spliterator();
+        assertTrue(treeSet.hasCharacteristics(SORTED | DISTINCT));
+
+        assertTrue(Streamer.from(new ArrayDeque<>(integers)).skip(1).spliterator().hasCharacteristics(NONNULL));
+        assertFalse(Streamer.from(new ArrayDeque<>(integers)).map(i -> i).spliterator().hasCharacteristics(NONNULL));
+    }
+
+    @Test
+    void splitTest() {
+        Spliterator<Integer> spliterator = Streamer.from(integers).filter(i -> i % 3 == 0).map(i -> i * 2).spliterator();
+
+        assertNotNull(spliterator.trySplit());
+
+        List<Integer> expected = integers.stream().filter(i -> i % 3 == 0).map(i -> i * 2).collect(Collectors.toList());
+        assertEquals(expected, StreamSupport.stream(Streamer.from(integers).filter(i -> i % 3 == 0).map(i -> i * 2)
+                .spliterator(), true).collect(Collectors.toList()));
+
+        assertNull(Streamer.from(integers).sorted().spliterator().trySplit()); //stateful pipeline
+    }
+
+    @Test
+    void fromSpliteratorTest() {
+        assertEquals(Arrays.asList(4, 3), Streamer.from(integers.spliterator()).filter(i -> i < 5).last(2).reversed()
+                .collect(Collectors.toList()));
+        assertEquals(Arrays.asList(0, 1, 2), Streamer.from(integers.spliterator()).limit(3).collect(Collectors.toList()));
+
+        Spliterator<Integer> sized = Streamer.from(integers.spliterator()).map(i -> i + 1).spliterator();
+        assertEquals(10_000, sized.getExactSizeIfKnown());
+    }
+
+    @Test
+    void fromStreamTest() {
+        AtomicBoolean closed = new AtomicBoolean();
+
+        Streamer<Integer> streamer = Streamer.from(Stream.of(1, 2, 3).onClose(() -> closed.set(true)));
+        assertEquals(Arrays.asList(2, 3), streamer.skip(1).collect(Collectors.toList()));
+
+        streamer.close();
+        assertTrue(closed.get());
+
+        assertEquals(Arrays.asList(0, 1), Streamer.from(IntStream.range(0, 10)).limit(2).collect(Collectors.toList()));
+    }
+}
@@ -76,6 +76,9 @@ class TerminalMethodsTests {
     void minTest() {
         assertEquals(1, streamer.min(Integer::compareTo).get());
         assertThrows(IllegalStateException.class, () -> streamer.min(Integer::compareTo));
+
+        assertFalse(Streamer.<Integer>empty().min(Integer::compareTo).isPresent());
+        assertEquals("b", Streamer.of("cc", "b", "a", "dd").min(Comparator.comparing(String::length)).get()); //first of minimal
     }
 
     @Test
@@ -83,6 +86,8 @@ class TerminalMethodsTests {
     void maxTest() {
         assertEquals(10, streamer.max(Integer::compareTo).get());
         assertThrows(IllegalStateException.class, () -> streamer.max(Integer::compareTo));
+
+        assertEquals("cc", Streamer.of("cc", "b", "a", "dd").max(Comparator.comparing(String::length)).get()); //first of maximal
     }
 
     @SuppressWarnings("ResultOfMethodCallIgnored")
@@ -120,6 +125,12 @@ class TerminalMethodsTests {
 
         beforeEach();
         assertThrows(IndexOutOfBoundsException.class, () -> streamer.toArray((size) -> new Integer[size - 1]));
+
+        //unsized source: buffer of several chunks
+        Object[] array = Streamer.iterate(0, i -> i + 1).limit(100_000).toArray();
+        assertEquals(100_000, array.length);
+        for (int i = 0; i < array.length; i++)
+            assertEquals(i, array[i]);
     }
 
     @SuppressWarnings("ResultOfMethodCallIgnored")
@@ -0,0 +1,107 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteToTests {
+    @TempDir
+    Path directory;
+
+    private static final ElementEncoder<Long> LONGS = (element, buffer) -> buffer.putLong(element);
+
+    @Test
+    void binaryTest() throws IOException {
+        Path file = directory.resolve("longs.bin");
+        int count = 300_000; //several gathering writes
+
+        WriteResult result = Streamer.from(LongStream.range(0, count)).writeTo(file, LONGS);
+
+        assertEquals(count, result.getElements());
+        assertEquals(count * 8L, result.getBytes());
+        assertEquals(count * 8L, Files.size(file));
+
+        assertEquals(LongStream.range(0, count).sum(),
+                Streamer.<Long>records(file, 8, (record, reused) -> record.getLong()).mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void variableSizeTest() throws IOException {
+        //elements of different sizes are not split by buffers
+        List<String> strings = IntStream.range(0, 50_000).mapToObj(i -> "element-" + i).collect(Collectors.toList());
+        ElementEncoder<String> encoder = (element, buffer) -> {
+            byte[] bytes = element.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length).put(bytes);
+        };
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WriteResult result = Streamer.from(strings).writeTo(Channels.newChannel(output), encoder); //not gathering channel
+
+        assertEquals(strings.size(), result.getElements());
+        assertEquals(output.size(), result.getBytes());
+
+        ByteBuffer written = ByteBuffer.wrap(output.toByteArray());
+        for (String string : strings) {
+            byte[] bytes = new byte[written.getInt()];
+            written.get(bytes);
+            assertEquals(string, new String(bytes, StandardCharsets.UTF_8));
+        }
+        assertFalse(written.hasRemaining());
+    }
+
+    @Test
+    void linesTest() throws IOException {
+        Path file = directory.resolve("lines.txt");
+
+        WriteResult result = Streamer.of("first", "строка", "last").map(String::toUpperCase)
+                .writeTo(file, ElementEncoder.lines(StandardCharsets.UTF_8));
+
+        assertEquals(3, result.getElements());
+        assertEquals(Arrays.asList("FIRST", "СТРОКА", "LAST"), Files.readAllLines(file));
+
+        Streamer.of(1, 2).writeTo(file, ElementEncoder.lines(StandardCharsets.US_ASCII)); //file is truncated
+        assertEquals(Arrays.asList("1", "2"), Files.readAllLines(file));
+
+        assertThrows(IllegalArgumentException.class, () -> Streamer.of("ascii", "строка")
+                .writeTo(file, ElementEncoder.lines(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void byteOrderTest() throws IOException {
+        ByteArrayOutputStream littleEndian = new ByteArrayOutputStream();
+        Streamer.of(1).writeTo(Channels.newChannel(littleEndian),
+                (Integer element, ByteBuffer buffer) -> buffer.order(ByteOrder.LITTLE_ENDIAN).putInt(element));
+        assertArrayEquals(new byte[]{1, 0, 0, 0}, littleEndian.toByteArray());
+
+        //next writer takes pooled buffers in default (big endian) order
+        ByteArrayOutputStream bigEndian = new ByteArrayOutputStream();
+        Streamer.of(1).writeTo(Channels.newChannel(bigEndian), (Integer element, ByteBuffer buffer) -> buffer.putInt(element));
+        assertArrayEquals(new byte[]{0, 0, 0, 1}, bigEndian.toByteArray());
+    }
+
+    @Test
+    void tooLargeElementTest() throws IOException {
+        ElementEncoder<Integer> encoder = (element, buffer) -> buffer.put(new byte[element]);
+
+        assertThrows(IllegalArgumentException.class, () ->
+                Streamer.of(1, ChannelWriter.BUFFER_SIZE + 1).writeTo(Channels.newChannel(new ByteArrayOutputStream()), encoder));
+
+        assertEquals(ChannelWriter.BUFFER_SIZE, Streamer.of(ChannelWriter.BUFFER_SIZE)
+                .writeTo(Channels.newChannel(new ByteArrayOutputStream()), encoder).getBytes());
+    }
+}
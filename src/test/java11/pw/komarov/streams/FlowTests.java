@@ -0,0 +1,260 @@
+package pw.komarov.streams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlowTests {
+    //publisher of range, which counts requested elements
+    private static class RangePublisher implements Flow.Publisher<Integer> {
+        private final int count;
+        final AtomicLong requested = new AtomicLong();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        RangePublisher(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super Integer> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private int next;
+                private boolean done;
+
+                @Override
+                public void request(long n) {
+                    requested.addAndGet(n);
+                    for (long i = 0; i < n && next < count && !cancelled.get(); i++)
+                        subscriber.onNext(next++);
+
+                    if (next == count && !done) {
+                        done = true;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.set(true);
+                }
+            });
+        }
+    }
+
+    @Test
+    void fromPublisherTest() {
+        RangePublisher publisher = new RangePublisher(1000);
+
+        assertEquals(500, StreamerFlow.from(publisher, 16).filter(i -> i % 2 == 0).count());
+        assertTrue(publisher.requested.get() >= 1000);
+    }
+
+    @Test
+    void fromPublisherRequestsByBatchesTest() {
+        RangePublisher publisher = new RangePublisher(1_000_000);
+
+        try (Streamer<Integer> streamer = StreamerFlow.from(publisher, 64)) {
+            assertEquals(Arrays.asList(0, 1, 2), streamer.limit(3).collect(Collectors.toList()));
+        }
+
+        assertEquals(64, publisher.requested.get()); //first batch only
+        assertTrue(publisher.cancelled.get());
+    }
+
+    @Test
+    void fromAsyncPublisherTest() {
+        try (SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+            Streamer<Integer> streamer = StreamerFlow.from(publisher, 8);
+
+            Thread producer = new Thread(() -> {
+                while (!publisher.hasSubscribers())
+                    Thread.onSpinWait();
+
+                for (int i = 0; i < 10_000; i++)
+                    publisher.submit(i);
+                publisher.close();
+            });
+            producer.start();
+
+            assertEquals(49_995_000L, streamer.mapToLong(Integer::longValue).sum());
+        }
+    }
+
+    @Test
+    void fromPublisherErrorTest() {
+        Flow.Publisher<Integer> failing = subscriber -> {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    subscriber.onNext(1);
+                    subscriber.onError(new Exception("failed"));
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+        };
+
+        List<Integer> received = new ArrayList<>();
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> StreamerFlow.from(failing, 4).forEach(received::add));
+
+        assertEquals("failed", exception.getCause().getMessage());
+        assertEquals(Arrays.asList(1), received);
+    }
+
+    //subscriber, which requests elements manually
+    private static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+        final List<T> received = new ArrayList<>();
+        Flow.Subscription subscription;
+        boolean completed;
+        Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    void toPublisherBackpressureTest() {
+        AtomicInteger generated = new AtomicInteger();
+
+        Flow.Publisher<Integer> publisher = StreamerFlow.toPublisher(
+                Streamer.generate(generated::incrementAndGet).map(i -> i * 10).limit(5));
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        publisher.subscribe(subscriber);
+
+        assertEquals(0, generated.get()); //nothing is pulled before request
+
+        subscriber.subscription.request(2);
+        assertEquals(Arrays.asList(10, 20), subscriber.received);
+        assertEquals(2, generated.get()); //not pulled beyond demand
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(10);
+        assertEquals(Arrays.asList(10, 20, 30, 40, 50), subscriber.received);
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    void toPublisherDemandTest() {
+        AtomicInteger pulled = new AtomicInteger();
+
+        Flow.Publisher<Integer> publisher = StreamerFlow.toPublisher(Streamer.generate(pulled::incrementAndGet).limit(3));
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        publisher.subscribe(subscriber);
+
+        for (int i = 1; i <= 3; i++) {
+            subscriber.subscription.request(1);
+            assertEquals(i, pulled.get()); //each request pulls one element
+            assertEquals(i, subscriber.received.size());
+        }
+        assertFalse(subscriber.completed); //exhaustion is not known without pulling
+
+        subscriber.subscription.request(1);
+        assertEquals(3, pulled.get());
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    void toPublisherCancelTest() {
+        AtomicBoolean closed = new AtomicBoolean();
+
+        Flow.Publisher<Integer> publisher = StreamerFlow.toPublisher(Streamer.generate(() -> 1).onClose(() -> closed.set(true)));
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<Integer>() {
+            @Override
+            public void onNext(Integer item) {
+                super.onNext(item);
+                if (received.size() == 3)
+                    subscription.cancel();
+            }
+        };
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(3, subscriber.received.size());
+        assertTrue(closed.get());
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    void toPublisherConcurrentCancelTest() {
+        AtomicReference<Thread> closedBy = new AtomicReference<>();
+
+        Flow.Publisher<Integer> publisher = StreamerFlow.toPublisher(Streamer.generate(() -> 1)
+                .onClose(() -> closedBy.set(Thread.currentThread())));
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<Integer>() {
+            @Override
+            public void onNext(Integer item) {
+                super.onNext(item);
+
+                Thread canceller = new Thread(subscription::cancel);
+                canceller.start();
+                try {
+                    canceller.join();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+
+                assertNull(closedBy.get()); //stream is not closed by other thread, while it is drained
+            }
+        };
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(1, subscriber.received.size());
+        assertSame(Thread.currentThread(), closedBy.get()); //closed by draining thread
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    void toPublisherProtocolTest() {
+        Flow.Publisher<Integer> publisher = StreamerFlow.toPublisher(Streamer.of(1, 2, 3));
+
+        RecordingSubscriber<Integer> first = new RecordingSubscriber<>();
+        publisher.subscribe(first);
+        first.subscription.request(0);
+        assertTrue(first.error instanceof IllegalArgumentException);
+
+        RecordingSubscriber<Integer> second = new RecordingSubscriber<>();
+        publisher.subscribe(second);
+        assertTrue(second.error instanceof IllegalStateException);
+    }
+
+    @Test
+    void roundTripTest() {
+        Flow.Publisher<String> publisher = StreamerFlow.toPublisher(Streamer.of("a", "b", "c").map(String::toUpperCase));
+
+        assertEquals(Arrays.asList("A", "B", "C"), StreamerFlow.from(publisher, 2).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,87 @@
+package pw.komarov.streams;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class JfrEventsTests {
+    @TempDir
+    Path directory;
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> found = events.stream().filter(event -> event.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+        assertEquals(1, found.size(), name);
+
+        return found.get(0);
+    }
+
+    @Test
+    void eventsTest() throws Exception {
+        assumeTrue(StreamerEvents.INSTANCE.getClass() != StreamerEvents.class, "JFR events are available on Java 11+");
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("pw.komarov.streams.Pipeline");
+            recording.enable("pw.komarov.streams.Materialization");
+            recording.enable("pw.komarov.streams.Spill");
+            recording.start();
+
+            Streamer.iterate(0L, i -> i + 1).limit(100).filter(i -> i % 2 == 0)
+                    .sorted(Comparator.reverseOrder(), Spilling.of(ElementCodec.longs()).memoryBudget(20).directory(directory))
+                    .count();
+
+            recording.stop();
+
+            Path file = directory.resolve("recording.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        RecordedEvent pipeline = single(events, "pw.komarov.streams.Pipeline");
+        assertEquals("limit, filter, sorted", pipeline.getString("stages"));
+        assertEquals("count", pipeline.getString("terminal"));
+        assertTrue(pipeline.getString("source").contains("InfiniteIterator"));
+
+        RecordedEvent materialization = single(events, "pw.komarov.streams.Materialization");
+        assertEquals("sorted", materialization.getString("operation"));
+        assertEquals(20, materialization.getInt("elements"));
+
+        assertEquals(2, events.stream().filter(event -> event.getEventType().getName().equals("pw.komarov.streams.Spill")).count());
+    }
+
+    @Test
+    void spliteratorEventTest() throws Exception {
+        assumeTrue(StreamerEvents.INSTANCE.getClass() != StreamerEvents.class, "JFR events are available on Java 11+");
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("pw.komarov.streams.Pipeline");
+            recording.start();
+
+            //splittable pipeline (of stateless operations) is completed, when its source is exhausted
+            assertEquals(2, StreamSupport.stream(Streamer.of(1, 2, 3, 4).filter(i -> i % 2 == 0).spliterator(), false).count());
+
+            recording.stop();
+
+            Path file = directory.resolve("recording.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        RecordedEvent pipeline = single(events, "pw.komarov.streams.Pipeline");
+        assertEquals("filter", pipeline.getString("stages"));
+        assertEquals("spliterator", pipeline.getString("terminal"));
+    }
+}
@@ -0,0 +1,25 @@
+package pw.komarov.streams.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+    Runs all (or selected by regexp argument) benchmarks with GC profiler,
+    so allocation rate per operation (gc.alloc.rate.norm) is reported alongside the time.
+    Any JMH command line options are accepted (ex: -p size=1000 -f 2 MapBenchmark)
+*/
+
+public class BenchmarksRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(
+                new OptionsBuilder()
+                        .parent(new CommandLineOptions(args))
+                        .addProfiler(GCProfiler.class)
+                        .build())
+                .run();
+    }
+}
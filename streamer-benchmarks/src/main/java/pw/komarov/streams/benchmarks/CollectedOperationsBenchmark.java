@@ -0,0 +1,100 @@
+package pw.komarov.streams.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pw.komarov.streams.Streamer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+    Operations, which collects the whole upstream: sorted(), distinct(), last(), reversed()
+    (java.util.stream has no last()/reversed(), so nearest equivalents are used)
+*/
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CollectedOperationsBenchmark {
+    private static final int LAST = 10;
+
+    @Param({"100", "10000", "1000000"})
+    private int size;
+
+    private Integer[] data;
+
+    @Setup
+    public void setup() {
+        data = Data.randomIntegers(size, Math.max(size / 4, 1)); //with duplicates, for distinct()
+    }
+
+    @Benchmark
+    public void streamerSorted(Blackhole blackhole) {
+        Streamer.of(data).sorted().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamSorted(Blackhole blackhole) {
+        Arrays.stream(data).sorted().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamerSortedLimit(Blackhole blackhole) {
+        Streamer.of(data).sorted().limit(LAST).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamSortedLimit(Blackhole blackhole) {
+        Arrays.stream(data).sorted().limit(LAST).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamerDistinct(Blackhole blackhole) {
+        Streamer.of(data).distinct().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamDistinct(Blackhole blackhole) {
+        Arrays.stream(data).distinct().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamerLast(Blackhole blackhole) {
+        Streamer.of(data).filter(i -> i >= 0).last(LAST).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamLast(Blackhole blackhole) {
+        List<Integer> list = Arrays.stream(data).filter(i -> i >= 0).collect(Collectors.toList());
+        list.subList(Math.max(list.size() - LAST, 0), list.size()).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public Object streamerFindLast() {
+        return Streamer.of(data).filter(i -> i >= 0).findLast();
+    }
+
+    @Benchmark
+    public Object streamFindLast() {
+        return Arrays.stream(data).filter(i -> i >= 0).reduce((first, second) -> second);
+    }
+
+    @Benchmark
+    public void streamerReversed(Blackhole blackhole) {
+        Streamer.of(data).reversed().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamReversed(Blackhole blackhole) {
+        List<Integer> list = Arrays.stream(data).collect(Collectors.toCollection(ArrayList::new));
+        Collections.reverse(list);
+        list.forEach(blackhole::consume);
+    }
+}
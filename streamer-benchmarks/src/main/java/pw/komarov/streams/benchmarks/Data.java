@@ -0,0 +1,17 @@
+package pw.komarov.streams.benchmarks;
+
+import java.util.Random;
+
+final class Data {
+    private Data() {}
+
+    static Integer[] randomIntegers(int size, int bound) {
+        Random random = new Random(size); //same data for the same size
+
+        Integer[] integers = new Integer[size];
+        for (int i = 0; i < size; i++)
+            integers[i] = random.nextInt(bound);
+
+        return integers;
+    }
+}
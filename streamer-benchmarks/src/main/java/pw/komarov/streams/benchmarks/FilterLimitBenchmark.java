@@ -0,0 +1,68 @@
+package pw.komarov.streams.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pw.komarov.streams.Streamer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/*
+    filter().limit() over infinite sources (iterate/generate)
+*/
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterLimitBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int limit;
+
+    @Benchmark
+    public void streamerIterate(Blackhole blackhole) {
+        Streamer.iterate(1, i -> i + 1)
+                .filter(i -> (i & 1) == 0)
+                .limit(limit)
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamIterate(Blackhole blackhole) {
+        Stream.iterate(1, i -> i + 1)
+                .filter(i -> (i & 1) == 0)
+                .limit(limit)
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void intStreamIterate(Blackhole blackhole) {
+        IntStream.iterate(1, i -> i + 1)
+                .filter(i -> (i & 1) == 0)
+                .limit(limit)
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamerGenerate(Blackhole blackhole) {
+        int[] counter = new int[1];
+
+        Streamer.generate(() -> counter[0]++)
+                .filter(i -> (i & 1) == 0)
+                .limit(limit)
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamGenerate(Blackhole blackhole) {
+        int[] counter = new int[1];
+
+        Stream.generate(() -> counter[0]++)
+                .filter(i -> (i & 1) == 0)
+                .limit(limit)
+                .forEach(blackhole::consume);
+    }
+}
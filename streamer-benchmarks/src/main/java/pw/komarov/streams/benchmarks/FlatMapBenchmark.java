@@ -0,0 +1,62 @@
+package pw.komarov.streams.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pw.komarov.streams.Streamer;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/*
+    flatMap() and flatMapToInt() (two children per element)
+*/
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlatMapBenchmark {
+    @Param({"100", "10000", "1000000"})
+    private int size;
+
+    private Integer[] data;
+
+    @Setup
+    public void setup() {
+        data = Data.randomIntegers(size, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public void streamerFlatMap(Blackhole blackhole) {
+        Streamer.of(data)
+                .flatMap(i -> Stream.of(i, -i))
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamFlatMap(Blackhole blackhole) {
+        Arrays.stream(data)
+                .flatMap(i -> Stream.of(i, -i))
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public long streamerFlatMapToInt() {
+        return Streamer.of(data)
+                .flatMapToInt(i -> IntStream.of(i, -i))
+                .asLongStream()
+                .sum();
+    }
+
+    @Benchmark
+    public long streamFlatMapToInt() {
+        return Arrays.stream(data)
+                .flatMapToInt(i -> IntStream.of(i, -i))
+                .asLongStream()
+                .sum();
+    }
+}
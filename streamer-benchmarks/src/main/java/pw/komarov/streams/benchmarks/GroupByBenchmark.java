@@ -0,0 +1,43 @@
+package pw.komarov.streams.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pw.komarov.streams.Streamer;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+    groupBy() vs Collectors.groupingBy()
+*/
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GroupByBenchmark {
+    @Param({"100", "10000", "1000000"})
+    private int size;
+
+    @Param({"16", "10000"})
+    private int groups;
+
+    private Integer[] data;
+
+    @Setup
+    public void setup() {
+        data = Data.randomIntegers(size, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public Object streamerGroupBy() {
+        return Streamer.of(data).groupBy(i -> i % groups);
+    }
+
+    @Benchmark
+    public Object streamGroupingBy() {
+        return Arrays.stream(data).collect(Collectors.groupingBy(i -> i % groups));
+    }
+}
@@ -0,0 +1,64 @@
+package pw.komarov.streams.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pw.komarov.streams.Streamer;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/*
+    map() chains and mapToInt() over sized source
+*/
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapBenchmark {
+    @Param({"100", "10000", "1000000"})
+    private int size;
+
+    private Integer[] data;
+
+    @Setup
+    public void setup() {
+        data = Data.randomIntegers(size, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public void streamerMapChain(Blackhole blackhole) {
+        Streamer.of(data)
+                .map(i -> i + 1)
+                .map(i -> i * 3)
+                .map(i -> i ^ 0x5555)
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamMapChain(Blackhole blackhole) {
+        Arrays.stream(data)
+                .map(i -> i + 1)
+                .map(i -> i * 3)
+                .map(i -> i ^ 0x5555)
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public long streamerMapToInt() {
+        return Streamer.of(data)
+                .mapToInt(Integer::intValue)
+                .asLongStream()
+                .sum();
+    }
+
+    @Benchmark
+    public long streamMapToInt() {
+        return Arrays.stream(data)
+                .mapToInt(Integer::intValue)
+                .asLongStream()
+                .sum();
+    }
+}